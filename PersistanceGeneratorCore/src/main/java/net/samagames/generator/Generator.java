@@ -16,7 +16,10 @@ import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.*;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 /*
@@ -312,29 +315,69 @@ public class Generator {
         object.addField(pdata, "playerData", Modifier.PROTECTED);
         object.addField(apimpl, "api", Modifier.PROTECTED);
 
-        List<String> createdFields = new ArrayList<>();
+        //DIRTY START
+        //One bit per field set since the last write, so update() can skip untouched objects
+        //The masks are read and cleared under the object lock, a bit set meanwhile is never lost
+        Map<String, Integer> bits = new LinkedHashMap<>();
+        if (isUpdatable)
+        {
+            object.addField(long.class, "dirty", Modifier.PRIVATE);
+            object.addField(long.class, "incremented", Modifier.PRIVATE);
+
+            for (Method method : subDeclaredMethods)
+            {
+                if (!method.getName().startsWith("set")
+                        || method.getParameterCount() != 1
+                        || !method.getReturnType().equals(void.class))
+                    continue;
+
+                if (bits.size() == Long.SIZE)
+                    throw new IllegalStateException(type.getSimpleName() + " has more than " + Long.SIZE + " fields, they don't fit in the dirty mask");
+
+                int bit = bits.size();
+                bits.put(method.getName(), bit);
+
+                MethodSpec.Builder setter = MethodSpec.methodBuilder(method.getName())
+                        .addModifiers(Modifier.PUBLIC)
+                        .addAnnotation(Override.class)
+                        .addParameter(method.getParameters()[0].getType(), "arg0")
+                        .returns(void.class);
+                setter.beginControlFlow("synchronized (this)")
+                        .addStatement("super." + method.getName() + "(arg0)")
+                        .addStatement("dirty |= 1L << " + bit);
+                //A set value replaces the increments not written yet
+                if (isNumber(method.getParameters()[0].getType()))
+                {
+                    setter.addStatement(method.getName().substring(3) + "Vector = 0")
+                            .addStatement("incremented &= ~(1L << " + bit + ")");
+                }
+                setter.endControlFlow();
+                object.addMethod(setter.build());
+            }
+
+            MethodSpec.Builder isDirty = MethodSpec.methodBuilder("isDirty")
+                    .addModifiers(Modifier.PUBLIC, Modifier.SYNCHRONIZED)
+                    .returns(boolean.class)
+                    .addStatement("return dirty != 0 || incremented != 0");
+            object.addMethod(isDirty.build());
+        }
+        //DIRTY END
+
+        List<Method> incrementables = new ArrayList<>();
 
         for (Method method : subDeclaredMethods)
         {
             String methodName = method.getName();
             if (method.getParameters().length > 0)
             {
-                boolean isIncrementable = false;
                 Class<?> type1 = method.getParameters()[0].getType();
-                if (type1.equals(int.class)
-                        || type1.equals(long.class)
-                        || type1.equals(double.class)
-                        || type1.equals(float.class))
-                    isIncrementable = true;
+                boolean isIncrementable = isNumber(type1);
 
                 if (methodName.startsWith("set") && isIncrementable)
                 {
                     methodName = "incrBy" + methodName.substring(3);
                     String fieldName = method.getName().substring(3) + "Vector";
-                    createdFields.add(fieldName);
-                    /*FieldSpec vector = FieldSpec.builder(type1, fieldName)
-                            .addModifiers(Modifier.PRIVATE).initializer("0").build();
-                    object.addField(vector);*/
+                    incrementables.add(method);
 
                     MethodSpec.Builder builder = MethodSpec.methodBuilder(methodName);
                     if (method.getParameterCount() > 0)
@@ -346,7 +389,22 @@ public class Generator {
                     }
                     builder.addModifiers(Modifier.PUBLIC);
                     builder.returns(method.getReturnType());
-                    builder.addStatement(method.getName() + "(get" + method.getName().substring(3) + "() + arg0)");
+
+                    if (isUpdatable && bits.containsKey(method.getName()))
+                    {
+                        //Sum of the increments not written yet, added to the stored value on update
+                        object.addField(type1, fieldName, Modifier.PRIVATE);
+
+                        builder.beginControlFlow("synchronized (this)")
+                                .addStatement("super." + method.getName() + "(get" + method.getName().substring(3) + "() + arg0)")
+                                .addStatement(fieldName + " += arg0")
+                                .addStatement("incremented |= 1L << " + bits.get(method.getName()))
+                                .endControlFlow();
+                    }
+                    else
+                    {
+                        builder.addStatement(method.getName() + "(get" + method.getName().substring(3) + "() + arg0)");
+                    }
                     object.addMethod(builder.build());
                 }
             }
@@ -360,11 +418,128 @@ public class Generator {
 
         if (isUpdatable)
         {
-            update.addStatement("    try {\n" +
-                    "  this.api.getGameServiceManager().update" + type.getSimpleName().replace("StatisticsBean", "") + "Statistics(playerData.getPlayerBean(), this);\n" +
-                    "} catch (Exception e) {\n" +
-                    "  e.printStackTrace();\n" +
-                    "}");
+            String game = type.getSimpleName().replace("StatisticsBean", "");
+            String manager = "this.api.getGameServiceManager()";
+            TypeName numbers = ParameterizedTypeName.get(Map.class, String.class, Number.class);
+
+            update.addStatement("long written");
+            update.addStatement("long added");
+            for (Method method : incrementables)
+            {
+                if (bits.containsKey(method.getName()))
+                    update.addStatement("$T " + method.getName().substring(3) + "Delta", method.getParameters()[0].getType());
+            }
+            update.beginControlFlow("synchronized (this)");
+            //Nothing changed since loaded or last written
+            update.beginControlFlow("if (dirty == 0 && incremented == 0)")
+                    .addStatement("return")
+                    .endControlFlow();
+            update.addStatement("written = dirty");
+            update.addStatement("added = incremented");
+            update.addStatement("dirty = 0");
+            update.addStatement("incremented = 0");
+            //Increments are swapped with the masks, one made meanwhile goes to the next write
+            for (Method method : incrementables)
+            {
+                if (!bits.containsKey(method.getName()))
+                    continue;
+
+                String field = method.getName().substring(3);
+                update.addStatement(field + "Delta = " + field + "Vector");
+                update.addStatement(field + "Vector = 0");
+            }
+            update.endControlFlow();
+
+            update.beginControlFlow("try");
+            update.addStatement("$T stored = " + manager + ".get" + game + "Statistics(playerData.getPlayerBean())", type);
+
+            //No row to increment yet, the first one is written whole, under the lock so that no increment is counted twice
+            update.beginControlFlow("if (stored == null)");
+            update.beginControlFlow("synchronized (this)");
+            update.addStatement(manager + ".update" + game + "Statistics(playerData.getPlayerBean(), this)");
+            update.addStatement("dirty = 0");
+            update.addStatement("incremented = 0");
+            for (Method method : incrementables)
+            {
+                if (bits.containsKey(method.getName()))
+                    update.addStatement(method.getName().substring(3) + "Vector = 0");
+            }
+            update.endControlFlow();
+            update.addStatement("return");
+            update.endControlFlow();
+
+            //Fields set here are written with the row, the others keep what is stored
+            update.beginControlFlow("if (written != 0)");
+            update.beginControlFlow("synchronized (this)");
+            for (Map.Entry<String, Integer> entry : bits.entrySet())
+            {
+                Method setter = findMethod(subDeclaredMethods, entry.getKey());
+                String field = entry.getKey().substring(3);
+                String local = getterName(setter) + "()";
+
+                //Increments made since the snapshot go with the next increment
+                if (isNumber(setter.getParameters()[0].getType()))
+                    local += " - " + field + "Vector";
+
+                update.addStatement("if ((written & " + (1L << entry.getValue()) + "L) != 0) stored." + entry.getKey() + "(" + local + ")");
+            }
+            update.endControlFlow();
+            update.addStatement(manager + ".update" + game + "Statistics(playerData.getPlayerBean(), stored)");
+            update.addStatement("written = 0");
+            update.endControlFlow();
+
+            //Increments are added by the database, so what other servers wrote meanwhile is kept
+            update.addStatement("$T values = new $T<>()", numbers, HashMap.class);
+            update.beginControlFlow("if (added != 0)");
+            update.addStatement("$T deltas = new $T<>()", numbers, HashMap.class);
+            for (Method method : incrementables)
+            {
+                if (!bits.containsKey(method.getName()))
+                    continue;
+
+                String field = method.getName().substring(3);
+                update.addStatement("if ((added & " + (1L << bits.get(method.getName())) + "L) != 0) deltas.put(\"" + column(field) + "\", " + field + "Delta)");
+            }
+            update.addStatement("values = this.api.getPlugin().getStatisticsStore().increment(\"" + table(game) + "\", playerData.getPlayerID(), deltas)");
+            update.addStatement("added = 0");
+            update.endControlFlow();
+
+            //Fields not changed here meanwhile take the stored value, plus the increments not written yet
+            update.beginControlFlow("synchronized (this)");
+            for (Map.Entry<String, Integer> entry : bits.entrySet())
+            {
+                Method setter = findMethod(subDeclaredMethods, entry.getKey());
+                Class<?> fieldType = setter.getParameters()[0].getType();
+                String field = entry.getKey().substring(3);
+                String value = "stored." + getterName(setter) + "()";
+
+                if (isNumber(fieldType))
+                {
+                    String column = column(field);
+                    value = "(values.containsKey(\"" + column + "\") ? values.get(\"" + column + "\")." + fieldType.getName() + "Value() : " + value + ") + " + field + "Vector";
+                }
+
+                update.addStatement("if ((dirty & " + (1L << entry.getValue()) + "L) == 0) super." + entry.getKey() + "(" + value + ")");
+            }
+            update.endControlFlow();
+
+            update.nextControlFlow("catch (Exception e)");
+            update.beginControlFlow("synchronized (this)");
+            update.addStatement("dirty |= written");
+            update.beginControlFlow("if (added != 0)");
+            update.addStatement("incremented |= added");
+            for (Method method : incrementables)
+            {
+                if (!bits.containsKey(method.getName()))
+                    continue;
+
+                String field = method.getName().substring(3);
+                update.addStatement(field + "Vector += " + field + "Delta");
+            }
+            update.endControlFlow();
+            update.endControlFlow();
+            update.addStatement("e.printStackTrace()");
+            update.endControlFlow();
         }
 
         /*update.addStatement("$T jedis = this.api.getBungeeResource()", jedis);
@@ -446,11 +621,59 @@ public class Generator {
                 copy.addStatement(setters.getName() + "(data." + (setters.getParameters()[0].getType().equals(boolean.class)?"is":"get") + setters.getName().substring(3) + "())");
             }
         }
+        //Values read from the database are not changes
+        if (isUpdatable)
+        {
+            copy.beginControlFlow("synchronized (this)");
+            copy.addStatement("dirty = 0");
+            copy.addStatement("incremented = 0");
+            for (Method method : incrementables)
+            {
+                if (bits.containsKey(method.getName()))
+                    copy.addStatement(method.getName().substring(3) + "Vector = 0");
+            }
+            copy.endControlFlow();
+        }
         object.addMethod(copy.build());
 
         return object.build();
     }
 
+    static boolean isNumber(Class<?> type)
+    {
+        return type.equals(int.class)
+                || type.equals(long.class)
+                || type.equals(double.class)
+                || type.equals(float.class);
+    }
+
+    //Statistics tables and columns as PersistanceAPI names them: <game>_stats and the snake_case fields
+    static String table(String game)
+    {
+        return column(game) + "_stats";
+    }
+
+    static String column(String field)
+    {
+        return field.replaceAll("([a-z0-9])([A-Z])", "$1_$2").toLowerCase();
+    }
+
+    private static String getterName(Method setter)
+    {
+        return (setter.getParameters()[0].getType().equals(boolean.class) ? "is" : "get") + setter.getName().substring(3);
+    }
+
+    private static Method findMethod(Method[] methods, String name)
+    {
+        for (Method method : methods)
+        {
+            if (method.getName().equals(name) && method.getParameterCount() == 1)
+                return method;
+        }
+
+        throw new IllegalArgumentException("No method " + name);
+    }
+
     public static TypeSpec createSImplementationClass(String package_, Class type)
     {
         String name = type.getSimpleName().replaceAll("Bean", "");
@@ -0,0 +1,160 @@
+package net.samagames.generator;
+
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.TypeSpec;
+import org.junit.Test;
+
+import java.beans.ConstructorProperties;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/*
+ * This file is part of SamaGamesCore.
+ *
+ * SamaGamesCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SamaGamesCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SamaGamesCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+public class GeneratorTest
+{
+    private final TypeSpec generated = Generator.createImplementationClass("net.samagames.api.stats.games", SampleStatisticsBean.class, "statistic:", true);
+
+    @Test
+    public void incrementsAreAddedByTheDatabase()
+    {
+        String update = code("update");
+
+        assertTrue(update.contains("deltas.put(\"kills\", KillsDelta)"));
+        assertTrue(update.contains("deltas.put(\"played_time\", PlayedTimeDelta)"));
+        assertTrue(update.contains("getStatisticsStore().increment(\"sample_stats\", playerData.getPlayerID(), deltas)"));
+    }
+
+    @Test
+    public void rowIsWrittenOnlyForSetFields()
+    {
+        String update = code("update");
+        int check = update.indexOf("if (written != 0) {");
+        int write = update.indexOf("updateSampleStatistics(playerData.getPlayerBean(), stored)");
+
+        assertTrue(check >= 0);
+        assertTrue(write > check);
+        // The row carries the set value, not the increments made since the snapshot
+        assertTrue(update.contains("stored.setKills(getKills() - KillsVector)"));
+        assertTrue(update.contains("stored.setWon(isWon())"));
+    }
+
+    @Test
+    public void setValueReplacesPendingIncrements()
+    {
+        String setter = code("setKills");
+
+        assertTrue(setter.contains("KillsVector = 0"));
+        assertFalse(code("setWon").contains("Vector"));
+    }
+
+    @Test
+    public void localValuesAreOnlyChangedUnderTheLock()
+    {
+        for (MethodSpec method : this.generated.methodSpecs)
+        {
+            Deque<Boolean> blocks = new ArrayDeque<>();
+
+            for (String line : method.code.toString().split("\n"))
+            {
+                for (char c : line.toCharArray())
+                {
+                    if (c == '}')
+                        blocks.pop();
+                    else if (c == '{')
+                        blocks.push(line.contains("synchronized (this)"));
+                }
+
+                if (line.contains("super.set") && !blocks.contains(true))
+                    fail(method.name + " changes a value outside of the lock: " + line.trim());
+            }
+        }
+    }
+
+    @Test
+    public void tablesAndColumnsAreSnakeCase()
+    {
+        assertEquals("played_time", Generator.column("PlayedTime"));
+        assertEquals("hero_battle_stats", Generator.table("HeroBattle"));
+    }
+
+    private String code(String name)
+    {
+        for (MethodSpec method : this.generated.methodSpecs)
+            if (method.name.equals(name))
+                return method.code.toString();
+
+        throw new AssertionError("No generated method " + name);
+    }
+
+    public static class SampleStatisticsBean
+    {
+        private UUID uuid;
+        private int kills;
+        private long playedTime;
+        private boolean won;
+
+        @ConstructorProperties({"uuid", "kills", "playedTime", "won"})
+        public SampleStatisticsBean(UUID uuid, int kills, long playedTime, boolean won)
+        {
+            this.uuid = uuid;
+            this.kills = kills;
+            this.playedTime = playedTime;
+            this.won = won;
+        }
+
+        public UUID getUuid()
+        {
+            return this.uuid;
+        }
+
+        public int getKills()
+        {
+            return this.kills;
+        }
+
+        public void setKills(int kills)
+        {
+            this.kills = kills;
+        }
+
+        public long getPlayedTime()
+        {
+            return this.playedTime;
+        }
+
+        public void setPlayedTime(long playedTime)
+        {
+            this.playedTime = playedTime;
+        }
+
+        public boolean isWon()
+        {
+            return this.won;
+        }
+
+        public void setWon(boolean won)
+        {
+            this.won = won;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package net.samagames.core.api.hydroangeas.connection;
+
+import com.google.gson.Gson;
+import net.samagames.core.api.hydroangeas.QPlayer;
+import net.samagames.core.api.hydroangeas.packets.queues.QueueAddPlayerPacket;
+import net.samagames.core.api.hydroangeas.packets.queues.QueueInfosUpdatePacket;
+import net.samagames.core.api.hydroangeas.packets.queues.QueuePacket;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * This file is part of SamaGamesCore.
+ *
+ * SamaGamesCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SamaGamesCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SamaGamesCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * Packet id lookup and wire (de)serialisation of the Hydroangeas queue packets, JSON against binary
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConnectionManagerBenchmark
+{
+    private ConnectionManager connectionManager;
+    private Gson gson;
+    private QueueAddPlayerPacket addPacket;
+    private QueueInfosUpdatePacket infosPacket;
+    private String addJson;
+    private String infosJson;
+    private byte[] addBinary;
+    private byte[] infosBinary;
+
+    @Setup
+    public void setup()
+    {
+        this.connectionManager = new ConnectionManager(null, null, true);
+        this.gson = new Gson();
+
+        QPlayer player = new QPlayer(UUID.randomUUID(), 3);
+        this.addPacket = new QueueAddPlayerPacket(QueuePacket.TypeQueue.NAMED, "uhcrun", "classic", player);
+        this.infosPacket = new QueueInfosUpdatePacket(player, QueueInfosUpdatePacket.Type.INFO, "uhcrun", "classic");
+        this.infosPacket.setMessage(Arrays.asList("Position 3 sur 12", "Serveur en préparation"));
+
+        this.addJson = this.gson.toJson(this.addPacket);
+        this.infosJson = this.gson.toJson(this.infosPacket);
+        this.addBinary = this.connectionManager.encode(this.addPacket);
+        this.infosBinary = this.connectionManager.encode(this.infosPacket);
+    }
+
+    @Benchmark
+    public int packetIdFirst()
+    {
+        return this.connectionManager.packetId(this.addPacket);
+    }
+
+    @Benchmark
+    public int packetIdLast()
+    {
+        return this.connectionManager.packetId(this.infosPacket);
+    }
+
+    @Benchmark
+    public String serializeAddPlayer()
+    {
+        return this.gson.toJson(this.addPacket);
+    }
+
+    @Benchmark
+    public QueueAddPlayerPacket deserializeAddPlayer()
+    {
+        return this.gson.fromJson(this.addJson, QueueAddPlayerPacket.class);
+    }
+
+    @Benchmark
+    public String serializeInfosUpdate()
+    {
+        return this.gson.toJson(this.infosPacket);
+    }
+
+    @Benchmark
+    public QueueInfosUpdatePacket deserializeInfosUpdate()
+    {
+        return this.gson.fromJson(this.infosJson, QueueInfosUpdatePacket.class);
+    }
+
+    @Benchmark
+    public byte[] encodeAddPlayer()
+    {
+        return this.connectionManager.encode(this.addPacket);
+    }
+
+    @Benchmark
+    public Packet decodeAddPlayer()
+    {
+        return this.connectionManager.decode(this.addBinary);
+    }
+
+    @Benchmark
+    public byte[] encodeInfosUpdate()
+    {
+        return this.connectionManager.encode(this.infosPacket);
+    }
+
+    @Benchmark
+    public Packet decodeInfosUpdate()
+    {
+        return this.connectionManager.decode(this.infosBinary);
+    }
+}
@@ -0,0 +1,85 @@
+package net.samagames.core.api.parties;
+
+import net.samagames.core.benchmarks.Fixtures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * This file is part of SamaGamesCore.
+ *
+ * SamaGamesCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SamaGamesCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SamaGamesCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PartiesManagerBenchmark
+{
+    @Param({"10", "100"})
+    private int partyCount;
+
+    private PartiesManager manager;
+    private UUID lastMember;
+    private UUID stranger;
+
+    @Setup
+    public void setup()
+    {
+        HashMap<UUID, Party> parties = new HashMap<>();
+
+        for (int i = 0; i < this.partyCount; i++)
+        {
+            List<UUID> players = new ArrayList<>();
+            for (int j = 0; j < 1 + i % 8; j++)
+                players.add(UUID.randomUUID());
+
+            UUID id = UUID.randomUUID();
+            parties.put(id, new Party(id, players.get(0), players));
+            this.lastMember = players.get(players.size() - 1);
+        }
+
+        this.stranger = UUID.randomUUID();
+        this.manager = Fixtures.allocate(PartiesManager.class);
+        Fixtures.set(this.manager, "parties", parties);
+    }
+
+    @Benchmark
+    public Party getPartyForMember()
+    {
+        return this.manager.getPartyForPlayer(this.lastMember);
+    }
+
+    @Benchmark
+    public Party getPartyForStranger()
+    {
+        return this.manager.getPartyForPlayer(this.stranger);
+    }
+}
@@ -0,0 +1,75 @@
+package net.samagames.core.api.permissions;
+
+import net.samagames.core.benchmarks.Fixtures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * This file is part of SamaGamesCore.
+ *
+ * SamaGamesCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SamaGamesCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SamaGamesCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PermissionEntityBenchmark
+{
+    private PermissionEntity entity;
+
+    @Setup
+    public void setup()
+    {
+        Map<String, Boolean> permissions = new HashMap<>();
+
+        for (int i = 0; i < 300; i++)
+            permissions.put("network.permission." + i, i % 3 != 0);
+        permissions.put("api.chat.bypass", false);
+
+        this.entity = Fixtures.allocate(PermissionEntity.class);
+        Fixtures.set(this.entity, "permissions", permissions);
+    }
+
+    @Benchmark
+    public boolean hasPermissionGranted()
+    {
+        return this.entity.hasPermission("network.permission.100");
+    }
+
+    @Benchmark
+    public boolean hasPermissionDenied()
+    {
+        return this.entity.hasPermission("api.chat.bypass");
+    }
+
+    @Benchmark
+    public boolean hasPermissionMissing()
+    {
+        return this.entity.hasPermission("network.admin");
+    }
+}
@@ -0,0 +1,90 @@
+package net.samagames.core.api.pubsub;
+
+import net.samagames.api.pubsub.IPacketsReceiver;
+import net.samagames.core.APIPlugin;
+import net.samagames.core.DebugListener;
+import net.samagames.core.benchmarks.Fixtures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * This file is part of SamaGamesCore.
+ *
+ * SamaGamesCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SamaGamesCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SamaGamesCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * Dispatch of one redis message to the registered receivers
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SubscriberBenchmark
+{
+    @Param({"1", "8"})
+    private int receivers;
+
+    private Subscriber subscriber;
+    private Blackhole blackhole;
+
+    @Setup
+    public void setup(Blackhole blackhole)
+    {
+        this.blackhole = blackhole;
+
+        // onMessage forwards every message to the plugin debug listener
+        APIPlugin plugin = Fixtures.allocate(APIPlugin.class);
+        Fixtures.set(plugin, "debugListener", new DebugListener());
+        Fixtures.setStatic(APIPlugin.class, "instance", plugin);
+
+        // Run handlers inline to measure the dispatch itself
+        this.subscriber = new Subscriber(new ChannelDispatcher(Runnable::run, 1000), false);
+
+        for (int i = 0; i < 20; i++)
+            this.subscriber.registerReceiver("channel" + i, new ConsumingReceiver());
+
+        for (int i = 1; i < this.receivers; i++)
+            this.subscriber.registerReceiver("channel0", new ConsumingReceiver());
+    }
+
+    @Benchmark
+    public void onMessage()
+    {
+        this.subscriber.onMessage("channel0", "heartbeat Hub_1 127.0.0.1 25565");
+    }
+
+    private class ConsumingReceiver implements IPacketsReceiver
+    {
+        @Override
+        public void receive(String channel, String packet)
+        {
+            blackhole.consume(packet);
+        }
+    }
+}
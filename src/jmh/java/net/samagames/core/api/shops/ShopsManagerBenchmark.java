@@ -0,0 +1,72 @@
+package net.samagames.core.api.shops;
+
+import net.samagames.core.benchmarks.Fixtures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * This file is part of SamaGamesCore.
+ *
+ * SamaGamesCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SamaGamesCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SamaGamesCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShopsManagerBenchmark
+{
+    private static final int ITEMS = 1000;
+
+    private ShopsManager manager;
+
+    @Setup
+    public void setup()
+    {
+        ItemDescription[] items = new ItemDescription[ITEMS];
+
+        for (int i = 0; i < ITEMS; i++)
+        {
+            // ItemDescription is only built from a bean, fill its strings directly
+            items[i] = Fixtures.allocate(ItemDescription.class);
+            Fixtures.setStrings(items[i], "item_" + i);
+        }
+
+        this.manager = Fixtures.allocate(ShopsManager.class);
+        Fixtures.set(this.manager, "itemsCache", items);
+    }
+
+    @Benchmark
+    public ItemDescription getFirstItem() throws Exception
+    {
+        return this.manager.getItemDescriptionByName("item_0");
+    }
+
+    @Benchmark
+    public ItemDescription getLastItem() throws Exception
+    {
+        return this.manager.getItemDescriptionByName("item_" + (ITEMS - 1));
+    }
+}
@@ -0,0 +1,132 @@
+package net.samagames.core.benchmarks;
+
+import sun.misc.Unsafe;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+/*
+ * This file is part of SamaGamesCore.
+ *
+ * SamaGamesCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SamaGamesCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SamaGamesCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * Builds core objects without running their constructors, which all
+ * expect a running server and databases. Only the fields a benchmark
+ * reads need to be filled.
+ */
+public final class Fixtures
+{
+    private static final Unsafe UNSAFE;
+
+    static
+    {
+        try
+        {
+            Field field = Unsafe.class.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            UNSAFE = (Unsafe) field.get(null);
+        }
+        catch (ReflectiveOperationException e)
+        {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private Fixtures() {}
+
+    @SuppressWarnings("unchecked")
+    public static <T> T allocate(Class<T> clazz)
+    {
+        try
+        {
+            return (T) UNSAFE.allocateInstance(clazz);
+        }
+        catch (InstantiationException e)
+        {
+            throw new IllegalStateException("Cannot allocate " + clazz.getName(), e);
+        }
+    }
+
+    public static void set(Object target, String name, Object value)
+    {
+        try
+        {
+            field(target.getClass(), name).set(target, value);
+        }
+        catch (IllegalAccessException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static void setStatic(Class<?> clazz, String name, Object value)
+    {
+        try
+        {
+            field(clazz, name).set(null, value);
+        }
+        catch (IllegalAccessException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Set every non-static String field of the object, for classes only built from beans
+     */
+    public static void setStrings(Object target, String value)
+    {
+        for (Class<?> clazz = target.getClass(); clazz != null; clazz = clazz.getSuperclass())
+        {
+            for (Field field : clazz.getDeclaredFields())
+            {
+                if (field.getType() != String.class || Modifier.isStatic(field.getModifiers()))
+                    continue;
+
+                try
+                {
+                    field.setAccessible(true);
+                    field.set(target, value);
+                }
+                catch (IllegalAccessException e)
+                {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+    }
+
+    public static Class<?> fieldType(Class<?> clazz, String name)
+    {
+        return field(clazz, name).getType();
+    }
+
+    private static Field field(Class<?> clazz, String name)
+    {
+        for (Class<?> current = clazz; current != null; current = current.getSuperclass())
+        {
+            try
+            {
+                Field field = current.getDeclaredField(name);
+                field.setAccessible(true);
+                return field;
+            }
+            catch (NoSuchFieldException ignored) {}
+        }
+
+        throw new IllegalArgumentException("No field " + name + " in " + clazz.getName());
+    }
+}
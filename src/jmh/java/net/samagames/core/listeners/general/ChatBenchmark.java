@@ -0,0 +1,85 @@
+package net.samagames.core.listeners.general;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * This file is part of SamaGamesCore.
+ *
+ * SamaGamesCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SamaGamesCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SamaGamesCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * Chat filtering run on every message by {@link ChatHandleListener}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChatBenchmark
+{
+    @Param({"50", "500"})
+    private int blacklistSize;
+
+    private Map<String, String> blacklist;
+    private String cleanMessage;
+    private String dirtyMessage;
+    private String colouredMessage;
+
+    @Setup
+    public void setup()
+    {
+        this.blacklist = new HashMap<>();
+
+        for (int i = 0; i < this.blacklistSize; i++)
+            this.blacklist.put("word" + i, i % 2 == 0 ? null : "mot" + i);
+
+        this.cleanMessage = "Salut tout le monde, quelqu'un pour une partie de UHC ce soir ?";
+        this.dirtyMessage = "word1 et word2, vraiment word" + (this.blacklistSize - 1) + " !";
+        this.colouredMessage = "&aBienvenue &lsur &6SamaGames&r, &bbon jeu !";
+    }
+
+    @Benchmark
+    public String censorClean()
+    {
+        return ChatHandleListener.censor(this.cleanMessage, this.blacklist);
+    }
+
+    @Benchmark
+    public String censorDirty()
+    {
+        return ChatHandleListener.censor(this.dirtyMessage, this.blacklist);
+    }
+
+    @Benchmark
+    public String replaceColors()
+    {
+        return ChatHandleListener.replaceColors(this.colouredMessage);
+    }
+}
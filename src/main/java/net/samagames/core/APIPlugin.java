@@ -4,7 +4,10 @@ import com.google.common.io.ByteArrayDataOutput;
 import com.google.common.io.ByteStreams;
 import net.samagames.core.api.hydroangeas.HydroangeasManager;
 import net.samagames.core.database.DatabaseConnector;
+import net.samagames.core.database.EconomyStore;
+import net.samagames.core.database.StatisticsStore;
 import net.samagames.core.database.RedisServer;
+import net.samagames.core.database.async.AsyncRedisClient;
 import net.samagames.core.legacypvp.LegacyManager;
 import net.samagames.core.listeners.general.*;
 import net.samagames.core.listeners.pluginmessages.PluginMessageListener;
@@ -20,7 +23,9 @@ import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerLoginEvent;
+import org.bukkit.plugin.PluginDescriptionFile;
 import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.plugin.java.JavaPluginLoader;
 import org.bukkit.scheduler.BukkitTask;
 import redis.clients.jedis.Jedis;
 
@@ -59,6 +64,7 @@ public class APIPlugin extends JavaPlugin implements Listener
     private DatabaseConnector databaseConnector;
     private String serverName;
     private FileConfiguration configuration;
+    private YamlConfiguration dataConfiguration;
     private boolean allowJoin;
     private boolean disableWhitelist;
     private final String denyJoinReason = ChatColor.RED + "Serveur non initialisé.";
@@ -81,10 +87,25 @@ public class APIPlugin extends JavaPlugin implements Listener
     private GlobalJoinListener globalJoinListener;
 
     private GameServiceManager gameServiceManager;
+    private EconomyStore economyStore;
+    private StatisticsStore statisticsStore;
 
     private HydroangeasManager hydroangeasManager;
 
 
+    public APIPlugin()
+    {
+        super();
+    }
+
+    /**
+     * Plugin created without a server, for tests
+     */
+    protected APIPlugin(JavaPluginLoader loader, PluginDescriptionFile description, File dataFolder, File file)
+    {
+        super(loader, description, dataFolder, file);
+    }
+
     public static APIPlugin getInstance()
     {
         return instance;
@@ -105,6 +126,14 @@ public class APIPlugin extends JavaPlugin implements Listener
         return api;
     }
 
+    /**
+     * Network wide settings read from data.yml
+     */
+    public YamlConfiguration getDataConfiguration()
+    {
+        return dataConfiguration;
+    }
+
     public void onEnable()
     {
         instance = this;
@@ -146,29 +175,9 @@ public class APIPlugin extends JavaPlugin implements Listener
             return;
         } else
         {
-            YamlConfiguration dataYML = YamlConfiguration.loadConfiguration(conf);
-
-            String bungeeIp = dataYML.getString("redis-bungee-ip", "127.0.0.1");
-            int bungeePort = dataYML.getInt("redis-bungee-port", 4242);
-            String bungeePassword = dataYML.getString("redis-bungee-password", "passw0rd");
-            RedisServer bungee = new RedisServer(bungeeIp, bungeePort, bungeePassword);
-
-            String sqlUrl = dataYML.getString("sql-url", "127.0.0.1");
-            String sqlUsername = dataYML.getString("sql-user", "root");
-            String sqlPassword = dataYML.getString("sql-pass", "passw0rd");
-            int sqlMinPoolSize = dataYML.getInt("sql-minpoolsize", 1);
-            int sqlMaxPoolSize = dataYML.getInt("sql-maxpoolsize", 10);
-            dataUrl = dataYML.getString("data-url", "http://127.0.0.1/");
-
-            gameServiceManager = new GameServiceManager(sqlUrl, sqlUsername, sqlPassword, sqlMinPoolSize, sqlMaxPoolSize);
-
-            databaseConnector = new DatabaseConnector(this, bungee);
-
+            loadCore(YamlConfiguration.loadConfiguration(conf));
         }
 
-        hydroangeasManager = new HydroangeasManager(this);
-
-        api = new ApiImplementation(this);
         /*
         Loading listeners
 		 */
@@ -180,6 +189,10 @@ public class APIPlugin extends JavaPlugin implements Listener
         api.getPubSub().subscribe("mute.add", chatHandleListener);
         api.getPubSub().subscribe("mute.remove", chatHandleListener);
 
+        // Replies are only read when requests wait for them
+        if (hydroangeasManager.isAwaitingReplies())
+            api.getPubSub().subscribe("hydroHubReceiver", hydroangeasManager);
+
         Bukkit.getPluginManager().registerEvents(chatHandleListener, this);
 
         globalJoinListener = new GlobalJoinListener(api);
@@ -250,6 +263,62 @@ public class APIPlugin extends JavaPlugin implements Listener
         this.startTimer = getServer().getScheduler().runTaskTimer(this, this::postInit, 20L, 20L);
     }
 
+    /**
+     * Connect to the databases and build the API, nothing here needs a running server
+     */
+    void loadCore(YamlConfiguration dataYML)
+    {
+        dataConfiguration = dataYML;
+
+        String bungeeIp = dataYML.getString("redis-bungee-ip", "127.0.0.1");
+        int bungeePort = dataYML.getInt("redis-bungee-port", 4242);
+        String bungeePassword = dataYML.getString("redis-bungee-password", "passw0rd");
+        int bungeeTimeout = dataYML.getInt("redis-bungee-timeout", 2000);
+        int bungeeMinPoolSize = dataYML.getInt("redis-bungee-minpoolsize", 2);
+        int bungeeMaxPoolSize = dataYML.getInt("redis-bungee-maxpoolsize", 64);
+        long bungeeMaxWait = dataYML.getLong("redis-bungee-maxwait", 2000L);
+        boolean bungeeNettyAsync = dataYML.getBoolean("redis-bungee-netty-async", false);
+        RedisServer bungee = new RedisServer(bungeeIp, bungeePort, bungeePassword, bungeeTimeout, bungeeMinPoolSize, bungeeMaxPoolSize, bungeeMaxWait, bungeeNettyAsync);
+
+        String sqlUrl = dataYML.getString("sql-url", "127.0.0.1");
+        String sqlUsername = dataYML.getString("sql-user", "root");
+        String sqlPassword = dataYML.getString("sql-pass", "passw0rd");
+        int sqlMinPoolSize = dataYML.getInt("sql-minpoolsize", 1);
+        int sqlMaxPoolSize = dataYML.getInt("sql-maxpoolsize", 10);
+        dataUrl = dataYML.getString("data-url", "http://127.0.0.1/");
+
+        gameServiceManager = createGameServiceManager(sqlUrl, sqlUsername, sqlPassword, sqlMinPoolSize, sqlMaxPoolSize);
+        economyStore = createEconomyStore(sqlUrl, sqlUsername, sqlPassword);
+        statisticsStore = new StatisticsStore(sqlUrl, sqlUsername, sqlPassword);
+
+        databaseConnector = new DatabaseConnector(this, bungee);
+        hydroangeasManager = new HydroangeasManager(this);
+
+        api = new ApiImplementation(this);
+    }
+
+    /**
+     * Start the core outside a server, with the databases given by data.yml
+     */
+    void loadHeadless(String serverName, YamlConfiguration dataYML)
+    {
+        instance = this;
+        this.serverName = serverName;
+        this.executor = Executors.newScheduledThreadPool(4);
+
+        loadCore(dataYML);
+    }
+
+    protected GameServiceManager createGameServiceManager(String url, String username, String password, int minPoolSize, int maxPoolSize)
+    {
+        return new GameServiceManager(url, username, password, minPoolSize, maxPoolSize);
+    }
+
+    protected EconomyStore createEconomyStore(String url, String username, String password)
+    {
+        return new EconomyStore(url, username, password);
+    }
+
     public void disable()
     {
         this.setEnabled(false);
@@ -290,6 +359,8 @@ public class APIPlugin extends JavaPlugin implements Listener
             e.printStackTrace();
         }
         api.onShutdown();
+        economyStore.close();
+        statisticsStore.close();
         databaseConnector.killConnection();
         getServer().shutdown();
     }
@@ -332,9 +403,7 @@ public class APIPlugin extends JavaPlugin implements Listener
         {
             String bungeename = getServerName();
 
-            Jedis rb_jedis = databaseConnector.getBungeeResource();
-            rb_jedis.hset("servers", bungeename, this.getServer().getIp() + ":" + this.getServer().getPort());
-            rb_jedis.close();
+            databaseConnector.getAsyncResource().hset("servers", bungeename, this.getServer().getIp() + ":" + this.getServer().getPort()).whenComplete(AsyncRedisClient::logFailure);
 
 
             api.getPubSub().send("servers", "heartbeat " + bungeename + " " + this.getServer().getIp() + " " + this.getServer().getPort());
@@ -409,6 +478,16 @@ public class APIPlugin extends JavaPlugin implements Listener
         return gameServiceManager;
     }
 
+    public EconomyStore getEconomyStore()
+    {
+        return economyStore;
+    }
+
+    public StatisticsStore getStatisticsStore()
+    {
+        return statisticsStore;
+    }
+
     public HydroangeasManager getHydroangeasManager() {
         return hydroangeasManager;
     }
@@ -12,6 +12,7 @@ import net.samagames.core.api.network.JoinManagerImplement;
 import net.samagames.core.api.network.ModerationJoinHandler;
 import net.samagames.core.api.network.PartiesPubSub;
 import net.samagames.core.api.network.RegularJoinHandler;
+import net.samagames.core.api.network.SessionHandoff;
 import net.samagames.core.api.options.ServerOptions;
 import net.samagames.core.api.parties.PartiesManager;
 import net.samagames.core.api.parties.PartyListener;
@@ -19,6 +20,9 @@ import net.samagames.core.api.permissions.PermissionManager;
 import net.samagames.core.api.player.PlayerDataManager;
 import net.samagames.core.api.pubsub.PubSubAPI;
 import net.samagames.core.api.remoteaccess.RemoteAccessManager;
+import net.samagames.core.api.remoteaccess.functions.DatabaseFunction;
+import net.samagames.core.api.remoteaccess.functions.LoginFunction;
+import net.samagames.core.api.remoteaccess.functions.PubSubFunction;
 import net.samagames.core.api.remoteaccess.functions.ServerFunction;
 import net.samagames.core.api.remoteaccess.functions.StopFunction;
 import net.samagames.core.api.remoteaccess.functions.WhitelistFunction;
@@ -27,6 +31,9 @@ import net.samagames.core.api.settings.SettingsManager;
 import net.samagames.core.api.shops.ShopsManager;
 import net.samagames.core.api.stats.StatsManager;
 import net.samagames.core.api.storage.StorageManager;
+import net.samagames.core.database.RedisBatch;
+import net.samagames.core.database.async.AsyncRedisClient;
+import net.samagames.core.listeners.general.LoginStatistics;
 import net.samagames.core.listeners.pubsub.GlobalUpdateListener;
 import net.samagames.persistanceapi.GameServiceManager;
 import net.samagames.tools.SkyFactory;
@@ -76,6 +83,8 @@ public class ApiImplementation extends SamaGamesAPI
     private StorageManager storageManager;
 
     private RemoteAccessManager remoteAccessManager;
+    private final LoginStatistics loginStatistics;
+    private final SessionHandoff sessionHandoff;
 
     private final ServerOptions serverOptions;
 
@@ -131,11 +140,17 @@ public class ApiImplementation extends SamaGamesAPI
         friendsManager = new FriendsManager(this);
         this.shopsManager = new ShopsManager(this);
 
+        this.loginStatistics = new LoginStatistics();
+        this.sessionHandoff = new SessionHandoff(this, plugin.getDataConfiguration().getInt("session-handoff-expiry", 30));
+
         this.remoteAccessManager = new RemoteAccessManager();
         try {
             remoteAccessManager.registerMBean(new WhitelistFunction());
             remoteAccessManager.registerMBean(new StopFunction());
             remoteAccessManager.registerMBean(new ServerFunction());
+            remoteAccessManager.registerMBean(new DatabaseFunction(plugin.getDatabaseConnector()));
+            remoteAccessManager.registerMBean(new PubSubFunction(this.pubSub));
+            remoteAccessManager.registerMBean(new LoginFunction(this.loginStatistics));
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -278,6 +293,30 @@ public class ApiImplementation extends SamaGamesAPI
         return plugin.getDatabaseConnector().getBungeeResource();
     }
 
+    /**
+     * Non-blocking redis access, safe on the main thread
+     */
+    public AsyncRedisClient getAsyncBungeeResource()
+    {
+        return plugin.getDatabaseConnector().getAsyncResource();
+    }
+
+    /**
+     * Pipeline several redis commands in one round-trip
+     */
+    public RedisBatch createBatch()
+    {
+        return new RedisBatch(plugin.getDatabaseConnector(), false);
+    }
+
+    /**
+     * Same as {@link #createBatch()} but commands are wrapped in MULTI/EXEC
+     */
+    public RedisBatch createTransaction()
+    {
+        return new RedisBatch(plugin.getDatabaseConnector(), true);
+    }
+
     public GameServiceManager getGameServiceManager()
     {
         return plugin.getGameServiceManager();
@@ -288,6 +327,16 @@ public class ApiImplementation extends SamaGamesAPI
         return plugin.getHydroangeasManager();
     }
 
+    public LoginStatistics getLoginStatistics()
+    {
+        return loginStatistics;
+    }
+
+    public SessionHandoff getSessionHandoff()
+    {
+        return sessionHandoff;
+    }
+
     @Override
     public String getServerName()
     {
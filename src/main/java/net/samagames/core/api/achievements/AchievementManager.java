@@ -3,6 +3,7 @@ package net.samagames.core.api.achievements;
 import com.google.common.base.Preconditions;
 import net.samagames.api.achievements.*;
 import net.samagames.core.ApiImplementation;
+import net.samagames.core.api.network.SessionHandoff;
 import net.samagames.core.api.player.PlayerData;
 import net.samagames.persistanceapi.beans.achievements.AchievementBean;
 import net.samagames.persistanceapi.beans.achievements.AchievementCategoryBean;
@@ -86,7 +87,8 @@ public class AchievementManager implements IAchievementManager
         try
         {
             PlayerData playerData = this.api.getPlayerManager().getPlayerData(uuid);
-            List<AchievementProgressBean> list = this.api.getGameServiceManager().getAchievementProgresses(playerData.getPlayerBean());
+            SessionHandoff.Session session = this.api.getSessionHandoff().getSession(uuid);
+            List<AchievementProgressBean> list = (session != null && session.getAchievements() != null) ? session.getAchievements() : this.api.getGameServiceManager().getAchievementProgresses(playerData.getPlayerBean());
             list.forEach(bean ->
             {
                 Achievement achievement = this.getAchievementByID(bean.getAchievementId());
@@ -100,6 +102,25 @@ public class AchievementManager implements IAchievementManager
         }
     }
 
+    /**
+     * Progress of the player as known here, only the ones already in the database
+     * (the others are created when the player is unloaded and would be duplicated)
+     */
+    public List<AchievementProgressBean> getProgresses(UUID player)
+    {
+        List<AchievementProgressBean> list = new ArrayList<>();
+
+        for (Achievement achievement : this.achievementsCache)
+        {
+            AchievementProgress progress = achievement.getProgress(player);
+
+            if (progress != null && progress.getProgressId() != -1)
+                list.add(new AchievementProgressBean(progress.getProgressId(), achievement.getID(), progress.getProgress(), progress.getStartTime(), progress.getUnlockTime(), player));
+        }
+
+        return list;
+    }
+
     public void unloadPlayer(UUID player)
     {
         for (Achievement achievement : this.achievementsCache)
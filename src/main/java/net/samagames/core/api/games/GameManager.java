@@ -6,14 +6,15 @@ import net.samagames.api.games.themachine.ICoherenceMachine;
 import net.samagames.api.games.pearls.IPearlManager;
 import net.samagames.api.parties.IParty;
 import net.samagames.core.ApiImplementation;
+import net.samagames.core.api.hydroangeas.packets.queues.QueueInfosUpdatePacket;
 import net.samagames.core.api.games.pearls.PearlManager;
 import net.samagames.core.api.games.themachine.CoherenceMachineImpl;
+import net.samagames.core.database.async.AsyncRedisClient;
 import net.samagames.persistanceapi.beans.statistics.HostStatisticsBean;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.OfflinePlayer;
 import org.bukkit.entity.Player;
-import redis.clients.jedis.Jedis;
 
 import java.util.Map;
 import java.util.UUID;
@@ -52,6 +53,7 @@ public class GameManager implements IGameManager
 
     private long startTimestamp;
     private long endTimestamp;
+    private final long rewardWindow;
 
     public GameManager(ApiImplementation api)
     {
@@ -67,6 +69,7 @@ public class GameManager implements IGameManager
         this.gameProperties = new GameProperties();
         this.gameStatisticsHelper = null;
         this.pearlManager = new PearlManager(api);
+        this.rewardWindow = api.getPlugin().getDataConfiguration().getLong("reward-session-window", 2000L);
     }
 
     @Override
@@ -110,7 +113,7 @@ public class GameManager implements IGameManager
 
             if(party == null)
             {
-                this.api.getHydroangeasManager().addPlayerToQueue(p.getUniqueId(), getGameProperties().getTemplateID());
+                this.api.getHydroangeasManager().addPlayerToQueue(p.getUniqueId(), getGameProperties().getTemplateID()).whenComplete((reply, throwable) -> this.notifyQueueReply(p, reply, throwable));
             }
             else
             {
@@ -120,11 +123,20 @@ public class GameManager implements IGameManager
                     return;
                 }
 
-                this.api.getHydroangeasManager().addPartyToQueue(p.getUniqueId(), party.getParty(), getGameProperties().getTemplateID());
+                this.api.getHydroangeasManager().addPartyToQueue(p.getUniqueId(), party.getParty(), getGameProperties().getTemplateID()).whenComplete((reply, throwable) -> this.notifyQueueReply(p, reply, throwable));
             }
         });
     }
 
+    private void notifyQueueReply(Player p, QueueInfosUpdatePacket reply, Throwable throwable)
+    {
+        // Timeouts stay silent, Hydroangeas may simply not answer
+        if (throwable instanceof IllegalStateException)
+            p.sendMessage(ChatColor.RED + "Veuillez patienter, vos demandes précédentes sont en cours de traitement.");
+        else if (reply != null && !reply.isSuccess() && reply.getErrorMessage() != null)
+            p.sendMessage(ChatColor.RED + reply.getErrorMessage());
+    }
+
     @Override
     public void kickPlayer(Player p, String msg)
     {
@@ -155,12 +167,7 @@ public class GameManager implements IGameManager
 
             this.playerDisconnectedTime.put(player.getUniqueId(), currentTime);
 
-            this.api.getPlugin().getExecutor().execute(() -> {
-                Jedis jedis = api.getBungeeResource();
-                jedis.set("rejoin:" + player.getUniqueId(), this.api.getServerName());
-                jedis.expire("rejoin:" + player.getUniqueId(), this.maxReconnectTime * 60);
-                jedis.close();
-            });
+            this.api.getAsyncBungeeResource().setex("rejoin:" + player.getUniqueId(), this.maxReconnectTime * 60, this.api.getServerName()).whenComplete(AsyncRedisClient::logFailure);
         }
 
         this.game.handleLogout(player);
@@ -207,6 +214,11 @@ public class GameManager implements IGameManager
     {
         this.endTimestamp = System.currentTimeMillis();
 
+        // Game end rewards of every player are written together, in one transaction once
+        // reward-session-window is over (0 to write each credit on its own)
+        if (this.rewardWindow > 0)
+            this.api.getPlayerManager().openRewardSession().commitAfter(this.rewardWindow);
+
         this.api.getPlugin().getExecutor().execute(() ->
         {
             HostStatisticsBean hostStatisticsBean = new HostStatisticsBean(
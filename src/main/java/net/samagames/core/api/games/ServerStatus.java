@@ -1,7 +1,6 @@
 package net.samagames.core.api.games;
 
 import com.google.gson.Gson;
-import net.samagames.api.SamaGamesAPI;
 import net.samagames.api.games.Status;
 import net.samagames.core.APIPlugin;
 
@@ -25,6 +24,8 @@ import java.util.logging.Level;
  */
 public class ServerStatus
 {
+    private static final Gson GSON = new Gson();
+
     private String bungeeName;
     private String game;
     private String map;
@@ -44,8 +45,9 @@ public class ServerStatus
 
     public void sendToHubs()
     {
-        String json = new Gson().toJson(this);
-        SamaGamesAPI.get().getPubSub().send("serverUpdateChannel", json);
+        String json = GSON.toJson(this);
+        // Only the freshest status of this server matters
+        APIPlugin.getInstance().getAPI().getPubSub().sendCoalesced("serverstatus:" + this.bungeeName, "serverUpdateChannel", json);
         //SamaGamesAPI.get().getPubSub().send("hubsChannel", json);
 
         APIPlugin.log(Level.INFO, "Sended server status to Hydroangeas. (" + json + ")");
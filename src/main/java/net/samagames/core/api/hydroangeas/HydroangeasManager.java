@@ -1,17 +1,25 @@
 package net.samagames.core.api.hydroangeas;
 
 import net.samagames.core.APIPlugin;
-import net.samagames.core.ApiImplementation;
 import net.samagames.core.api.hydroangeas.connection.ConnectionManager;
+import net.samagames.core.api.hydroangeas.connection.Packet;
+import net.samagames.core.api.hydroangeas.packets.queues.QueueAddGroupPacket;
 import net.samagames.core.api.hydroangeas.packets.queues.QueueAddPlayerPacket;
 import net.samagames.core.api.hydroangeas.packets.queues.QueueAttachPlayerPacket;
+import net.samagames.core.api.hydroangeas.packets.queues.QueueInfosUpdatePacket;
 import net.samagames.core.api.hydroangeas.packets.queues.QueuePacket;
 import net.samagames.core.api.hydroangeas.packets.queues.QueueRemovePlayerPacket;
 import net.samagames.core.api.parties.Party;
+import net.samagames.core.api.pubsub.IBinaryReceiver;
+import org.bukkit.configuration.file.YamlConfiguration;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
 /*
@@ -30,92 +38,193 @@ import java.util.stream.Collectors;
  * You should have received a copy of the GNU General Public License
  * along with SamaGamesCore.  If not, see <http://www.gnu.org/licenses/>.
  */
-public class HydroangeasManager
+public class HydroangeasManager implements IBinaryReceiver
 {
     private final ConnectionManager connectionManager;
     private final PacketReceiver packetReceiver;
+    private final PendingRequests pendingRequests;
+    private final boolean replies;
+    private final boolean groupPacket;
 
     private APIPlugin plugin;
-    private ApiImplementation api;
 
     public HydroangeasManager(APIPlugin plugin)
     {
         this.plugin = plugin;
-        this.api = plugin.getAPI();
-        this.connectionManager = new ConnectionManager(plugin, this);
+
+        YamlConfiguration configuration = plugin.getDataConfiguration();
+
+        this.connectionManager = new ConnectionManager(plugin, this, configuration.getBoolean("hydroangeas-binary", false));
         this.packetReceiver = new PacketReceiver(plugin);
+        this.pendingRequests = new PendingRequests(plugin.getExecutor(), configuration.getLong("hydroangeas-request-timeout", 5000L), configuration.getInt("hydroangeas-max-inflight", 3));
+
+        // Off until Hydroangeas echoes request ids, otherwise every request would time out
+        this.replies = configuration.getBoolean("hydroangeas-request-replies", false);
+
+        // QueueAddGroupPacket (105) is unknown to older Hydroangeas, set to false to add then attach with them
+        this.groupPacket = configuration.getBoolean("hydroangeas-group-packet", true);
 
         //TODO save all template data in redis
-       /* plugin.getAPI().getPubSub().subscribe("hydroHubReceiver", (channel, packet) ->
+    }
+
+    /**
+     * Packets sent by Hydroangeas on hydroHubReceiver (binary or legacy JSON)
+     */
+    @Override
+    public void receive(String channel, byte[] packet)
+    {
+        try
+        {
+            this.connectionManager.getPacket(packet);
+        }
+        catch(Exception e)
+        {
+            e.printStackTrace();
+        }
+    }
+
+    public void handlePacket(Packet packet)
+    {
+        if (packet instanceof QueueInfosUpdatePacket)
+            this.pendingRequests.complete((QueueInfosUpdatePacket) packet);
+
+        this.packetReceiver.callPacket(packet);
+    }
+
+    /**
+     * Send a queue packet and wait for the Hydroangeas reply to it.
+     * The future fails with a {@link TimeoutException} without reply and
+     * with an {@link IllegalStateException} when the player has too many
+     * requests waiting. It completes with null right away when replies
+     * are not awaited ("hydroangeas-request-replies").
+     *
+     * @param limited false for packets that must always be sent, they never take an in-flight slot
+     */
+    private CompletableFuture<QueueInfosUpdatePacket> request(UUID player, QueuePacket packet, boolean limited)
+    {
+        CompletableFuture<QueueInfosUpdatePacket> future = new CompletableFuture<>();
+
+        if (!this.replies)
+        {
+            this.connectionManager.sendPacket(packet);
+            future.complete(null);
+            return future;
+        }
+
+        int requestId = this.pendingRequests.open(player, future, limited);
+
+        if (requestId == 0)
         {
-            try
-            {
-                this.connectionManager.getPacket(packet);
-            }
-            catch(Exception e)
-            {
-                e.printStackTrace();
-            }
-        });*/
+            future.completeExceptionally(new IllegalStateException("Too many queue requests waiting for " + player));
+            return future;
+        }
+
+        packet.setRequestId(requestId);
+        this.connectionManager.sendPacket(packet);
 
+        return future;
     }
 
-    public void rejoinQueueToLeader(UUID leader, UUID player)
+    public CompletableFuture<QueueInfosUpdatePacket> rejoinQueueToLeader(UUID leader, UUID player)
     {
         List<QPlayer> list = new ArrayList<>();
         list.add(new QPlayer(player, getPriority(player)));
 
-        this.connectionManager.sendPacket(new QueueAttachPlayerPacket(new QPlayer(leader, getPriority(leader)), list));
+        return this.request(player, new QueueAttachPlayerPacket(new QPlayer(leader, getPriority(leader)), list), true);
     }
 
-    public void removePlayerFromQueues(UUID uuid)
+    public CompletableFuture<QueueInfosUpdatePacket> removePlayerFromQueues(UUID uuid)
     {
-        this.connectionManager.sendPacket(new QueueRemovePlayerPacket(new QPlayer(uuid, getPriority(uuid))));
+        return this.request(uuid, new QueueRemovePlayerPacket(new QPlayer(uuid, getPriority(uuid))), false);
     }
 
-    public void addPlayerToQueue(UUID player, String game, String map)
+    public CompletableFuture<QueueInfosUpdatePacket> addPlayerToQueue(UUID player, String game, String map)
     {
         QPlayer qPlayer = new QPlayer(player, getPriority(player));
-        this.connectionManager.sendPacket(new QueueAddPlayerPacket(QueuePacket.TypeQueue.NAMED, game, map, qPlayer));
+        return this.request(player, new QueueAddPlayerPacket(QueuePacket.TypeQueue.NAMED, game, map, qPlayer), true);
     }
 
-    public void addPlayerToQueue(UUID player, String templateID)
+    public CompletableFuture<QueueInfosUpdatePacket> addPlayerToQueue(UUID player, String templateID)
     {
         QPlayer qPlayer = new QPlayer(player, getPriority(player));
-        this.connectionManager.sendPacket(new QueueAddPlayerPacket(QueuePacket.TypeQueue.NAMEDID, templateID, qPlayer));
+        return this.request(player, new QueueAddPlayerPacket(QueuePacket.TypeQueue.NAMEDID, templateID, qPlayer), true);
     }
 
-    public void addPartyToQueue(UUID leader, UUID party, String game, String map)
+    /**
+     * Add the leader and all its party members with a single packet,
+     * priorities of every member are resolved at once
+     */
+    public CompletableFuture<QueueInfosUpdatePacket> addPartyToQueue(UUID leader, UUID party, String game, String map)
     {
-        Party party1 = api.getPartiesManager().getParty(party);
+        List<QPlayer> players = this.getPartyMembers(leader, party);
+        QPlayer qLeader = players.remove(0);
+
+        if (this.groupPacket)
+            return this.request(leader, new QueueAddGroupPacket(QueuePacket.TypeQueue.NAMED, game, map, qLeader, players), true);
+
+        return this.addThenAttach(new QueueAddPlayerPacket(QueuePacket.TypeQueue.NAMED, game, map, qLeader), qLeader, players);
+    }
+
+    public CompletableFuture<QueueInfosUpdatePacket> addPartyToQueue(UUID leader, UUID party, String templateID)
+    {
+        List<QPlayer> players = this.getPartyMembers(leader, party);
+        QPlayer qLeader = players.remove(0);
+
+        if (this.groupPacket)
+            return this.request(leader, new QueueAddGroupPacket(QueuePacket.TypeQueue.NAMEDID, templateID, qLeader, players), true);
 
-        List<QPlayer> players = party1.getPlayers().stream().map(player -> new QPlayer(player, getPriority(player))).collect(Collectors.toList());
-        QPlayer qPlayer = new QPlayer(leader, getPriority(leader));
+        return this.addThenAttach(new QueueAddPlayerPacket(QueuePacket.TypeQueue.NAMEDID, templateID, qLeader), qLeader, players);
+    }
+
+    /**
+     * Party queueing for Hydroangeas without the group packet: add the leader, then attach the members to it
+     */
+    private CompletableFuture<QueueInfosUpdatePacket> addThenAttach(QueuePacket add, QPlayer leader, List<QPlayer> members)
+    {
+        CompletableFuture<QueueInfosUpdatePacket> future = this.request(leader.getUUID(), add, true);
 
-        addPlayerToQueue(leader, game, map);
+        if (!future.isCompletedExceptionally())
+            this.connectionManager.sendPacket(new QueueAttachPlayerPacket(leader, members));
 
-        this.connectionManager.sendPacket(new QueueAttachPlayerPacket(qPlayer, players));
+        return future;
     }
 
-    public void addPartyToQueue(UUID leader, UUID party, String templateID)
+    /**
+     * @return the leader first, then the other members
+     */
+    private List<QPlayer> getPartyMembers(UUID leader, UUID party)
     {
-        Party party1 = api.getPartiesManager().getParty(party);
+        Party party1 = plugin.getAPI().getPartiesManager().getParty(party);
 
-        List<QPlayer> players = party1.getPlayers().stream().map(player -> new QPlayer(player, getPriority(player))).collect(Collectors.toList());
-        QPlayer qPlayer = new QPlayer(leader, getPriority(leader));
+        List<UUID> members = new ArrayList<>();
+        members.add(leader);
+        party1.getPlayers().stream().filter(player -> !player.equals(leader)).forEach(members::add);
 
-        addPlayerToQueue(leader, templateID);
+        Map<UUID, Integer> ranks = plugin.getAPI().getPermissionsManager().getRanks(members);
 
-        this.connectionManager.sendPacket(new QueueAttachPlayerPacket(qPlayer, players));
+        return members.stream().map(player -> new QPlayer(player, ranks.get(player))).collect(Collectors.toList());
     }
 
     public int getPriority(UUID uuid)
     {
-        return plugin.getAPI().getPermissionsManager().getPlayer(uuid).getRank();
+        return plugin.getAPI().getPermissionsManager().getRanks(Collections.singletonList(uuid)).get(uuid);
+    }
+
+    /**
+     * Whether queue requests wait for the Hydroangeas reply ("hydroangeas-request-replies")
+     */
+    public boolean isAwaitingReplies()
+    {
+        return this.replies;
     }
 
     public PacketReceiver getPacketReceiver()
     {
         return this.packetReceiver;
     }
+
+    public PendingRequests getPendingRequests()
+    {
+        return this.pendingRequests;
+    }
 }
@@ -4,8 +4,10 @@ import net.samagames.core.APIPlugin;
 import net.samagames.core.api.hydroangeas.connection.Packet;
 import net.samagames.core.api.hydroangeas.packets.PacketCallBack;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /*
  * This file is part of SamaGamesCore.
@@ -26,17 +28,18 @@ import java.util.List;
 public class PacketReceiver
 {
     private final APIPlugin plugin;
-    private final List<PacketCallBack> callbacks;
+    private final Map<Class<? extends Packet>, List<PacketCallBack>> callbacks;
 
     public PacketReceiver(APIPlugin plugin)
     {
         this.plugin = plugin;
-        this.callbacks = new ArrayList<>();
+        this.callbacks = new ConcurrentHashMap<>();
     }
 
+    @SuppressWarnings("unchecked")
     public void registerCallBack(PacketCallBack callBack)
     {
-        this.callbacks.add(callBack);
+        this.callbacks.computeIfAbsent(callBack.getPacketClass(), key -> new CopyOnWriteArrayList<>()).add(callBack);
     }
 
     public void clearCallbacks()
@@ -44,8 +47,25 @@ public class PacketReceiver
         this.callbacks.clear();
     }
 
+    @SuppressWarnings("unchecked")
     public void callPacket(Packet packet)
     {
-        this.callbacks.stream().filter(callBack -> callBack.getPacketClass().getName().equals(packet.getClass().getName())).forEach(callBack -> this.plugin.getExecutor().execute(() -> callBack.call(packet)));
+        List<PacketCallBack> matching = this.callbacks.get(packet.getClass());
+
+        if (matching == null || matching.isEmpty())
+            return;
+
+        // One task for every callback of the packet
+        this.plugin.getExecutor().execute(() -> matching.forEach(callBack ->
+        {
+            try
+            {
+                callBack.call(packet);
+            }
+            catch (Exception e)
+            {
+                e.printStackTrace();
+            }
+        }));
     }
 }
@@ -0,0 +1,179 @@
+package net.samagames.core.api.hydroangeas;
+
+import net.samagames.core.api.hydroangeas.packets.queues.QueueInfosUpdatePacket;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * This file is part of SamaGamesCore.
+ *
+ * SamaGamesCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SamaGamesCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SamaGamesCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * Queue requests waiting for their {@link QueueInfosUpdatePacket} reply,
+ * matched on the request id Hydroangeas echoes back and on the player.
+ *
+ * Replies are broadcast to every hub, ids are random so that two hubs
+ * do not hand out the same ones.
+ */
+public class PendingRequests
+{
+    private final ScheduledExecutorService executor;
+    private final long timeout;
+    private final int maxInFlight;
+
+    private final Map<Integer, Request> requests = new ConcurrentHashMap<>();
+    private final Map<UUID, Integer> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicInteger timedOut = new AtomicInteger();
+    private final AtomicInteger rejected = new AtomicInteger();
+
+    public PendingRequests(ScheduledExecutorService executor, long timeout, int maxInFlight)
+    {
+        this.executor = executor;
+        this.timeout = timeout;
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Reserve a request id for the player
+     *
+     * @param limited whether the request takes one of the player in-flight slots
+     * @return the id, or 0 if the player already has too many requests waiting
+     */
+    public int open(UUID player, CompletableFuture<QueueInfosUpdatePacket> future, boolean limited)
+    {
+        if (limited && this.inFlight.merge(player, 1, Integer::sum) > this.maxInFlight)
+        {
+            release(player);
+            this.rejected.incrementAndGet();
+            return 0;
+        }
+
+        Request request = new Request(player, future, limited);
+        int id;
+
+        do
+        {
+            id = ThreadLocalRandom.current().nextInt(1, Integer.MAX_VALUE);
+        }
+        while (this.requests.putIfAbsent(id, request) != null);
+
+        int requestId = id;
+
+        try
+        {
+            request.timeoutTask = this.executor.schedule(() -> expire(requestId), this.timeout, TimeUnit.MILLISECONDS);
+        }
+        catch (RejectedExecutionException ignored)
+        {
+            // Shutting down, the request will never be answered
+            expire(requestId);
+        }
+
+        return id;
+    }
+
+    /**
+     * @return true if the packet was the reply to a pending request
+     */
+    public boolean complete(QueueInfosUpdatePacket packet)
+    {
+        if (packet.getRequestId() == 0)
+            return false;
+
+        Request request = this.requests.get(packet.getRequestId());
+
+        // Same id handed out by another hub, or to another player
+        if (request == null || (packet.getPlayer() != null && !request.player.equals(packet.getPlayer().getUUID())))
+            return false;
+
+        if (!close(packet.getRequestId(), request))
+            return false;
+
+        if (request.timeoutTask != null)
+            request.timeoutTask.cancel(false);
+
+        request.future.complete(packet);
+        return true;
+    }
+
+    private void expire(int id)
+    {
+        Request request = this.requests.get(id);
+
+        if (request == null || !close(id, request))
+            return;
+
+        this.timedOut.incrementAndGet();
+        request.future.completeExceptionally(new TimeoutException("No reply from Hydroangeas after " + this.timeout + "ms"));
+    }
+
+    private boolean close(int id, Request request)
+    {
+        if (!this.requests.remove(id, request))
+            return false;
+
+        if (request.limited)
+            release(request.player);
+
+        return true;
+    }
+
+    private void release(UUID player)
+    {
+        this.inFlight.computeIfPresent(player, (key, count) -> count > 1 ? count - 1 : null);
+    }
+
+    public int getPendingCount()
+    {
+        return this.requests.size();
+    }
+
+    public int getTimedOutCount()
+    {
+        return this.timedOut.get();
+    }
+
+    public int getRejectedCount()
+    {
+        return this.rejected.get();
+    }
+
+    private static class Request
+    {
+        private final UUID player;
+        private final CompletableFuture<QueueInfosUpdatePacket> future;
+        private final boolean limited;
+        private volatile ScheduledFuture<?> timeoutTask;
+
+        private Request(UUID player, CompletableFuture<QueueInfosUpdatePacket> future, boolean limited)
+        {
+            this.player = player;
+            this.future = future;
+            this.limited = limited;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package net.samagames.core.api.hydroangeas;
 
+import net.samagames.core.api.hydroangeas.connection.PacketBuffer;
+
 import java.util.UUID;
 
 /*
@@ -48,4 +50,23 @@ public class QPlayer
     {
         this.priority = priority;
     }
+
+    public static void write(PacketBuffer buffer, QPlayer player)
+    {
+        buffer.writeBoolean(player != null);
+
+        if (player != null)
+        {
+            buffer.writeUUID(player.uuid);
+            buffer.writeVarInt(player.priority);
+        }
+    }
+
+    public static QPlayer read(PacketBuffer buffer)
+    {
+        if (!buffer.readBoolean())
+            return null;
+
+        return new QPlayer(buffer.readUUID(), buffer.readVarInt());
+    }
 }
@@ -5,7 +5,12 @@ import net.samagames.api.SamaGamesAPI;
 import net.samagames.core.APIPlugin;
 import net.samagames.core.api.hydroangeas.HydroangeasManager;
 import net.samagames.core.api.hydroangeas.packets.queues.*;
+import net.samagames.core.api.pubsub.BinaryPendingMessage;
 
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -27,29 +32,57 @@ import java.util.logging.Logger;
  */
 public class ConnectionManager
 {
+    /**
+     * First byte of a binary packet, legacy "<id>:<json>" packets start with an ASCII digit.
+     * Version 2 added the request id to queue packets.
+     */
+    public static final byte BINARY_VERSION = 2;
+
     private APIPlugin plugin;
 
     private final HydroangeasManager manager;
     private final Gson gson;
     private final Packet[] packets;
+    private final Supplier<? extends Packet>[] factories;
+    private final Map<Class<? extends Packet>, Integer> packetIds;
+    private final boolean binary;
 
     public ConnectionManager(APIPlugin plugin, HydroangeasManager manager)
+    {
+        this(plugin, manager, false);
+    }
+
+    @SuppressWarnings("unchecked")
+    public ConnectionManager(APIPlugin plugin, HydroangeasManager manager, boolean binary)
     {
         this.plugin = plugin;
         this.manager = manager;
         this.gson = new Gson();
+        this.binary = binary;
 
         this.packets = new Packet[256];
+        this.factories = new Supplier[256];
+        this.packetIds = new HashMap<>();
 
         // Queues Packets (out)
-        this.packets[100] = new QueueAddPlayerPacket();
-        this.packets[101] = new QueueRemovePlayerPacket();
-        this.packets[102] = new QueueAttachPlayerPacket();
-        this.packets[103] = new QueueDetachPlayerPacket();
-        this.packets[104] = new QueueInfosUpdatePacket();
+        this.register(100, QueueAddPlayerPacket::new);
+        this.register(101, QueueRemovePlayerPacket::new);
+        this.register(102, QueueAttachPlayerPacket::new);
+        this.register(103, QueueDetachPlayerPacket::new);
+        this.register(104, QueueInfosUpdatePacket::new);
+        this.register(105, QueueAddGroupPacket::new);
 
     }
 
+    private void register(int id, Supplier<? extends Packet> factory)
+    {
+        Packet packet = factory.get();
+
+        this.packets[id] = packet;
+        this.factories[id] = factory;
+        this.packetIds.put(packet.getClass(), id);
+    }
+
     public void getPacket(String packet)
     {
         String id;
@@ -79,18 +112,74 @@ public class ConnectionManager
         this.handler(Integer.valueOf(id), packet);
     }
 
-    public int packetId(Packet p)
+    /**
+     * Entry point of the binary channel, old peers may still send JSON on it
+     */
+    public void getPacket(byte[] packet)
     {
-        for (int i = 0; i < this.packets.length; i++)
+        if (packet.length == 0)
         {
-            if(this.packets[i] == null)
-                continue;
+            Logger.getAnonymousLogger().log(Level.SEVERE, "Error empty packet in the channel");
+            return;
+        }
 
-            if(this.packets[i].getClass().equals(p.getClass()))
-                return i;
+        if (packet[0] >= '0' && packet[0] <= '9')
+        {
+            this.getPacket(new String(packet, StandardCharsets.UTF_8));
+            return;
         }
 
-        return -1;
+        try
+        {
+            this.manager.handlePacket(this.decode(packet));
+        }
+        catch (Exception e)
+        {
+            e.printStackTrace();
+        }
+    }
+
+    public int packetId(Packet p)
+    {
+        Integer id = this.packetIds.get(p.getClass());
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * [version byte][varint packet id][packet fields]
+     */
+    public byte[] encode(Packet packet)
+    {
+        int id = this.packetId(packet);
+
+        if (id < 0)
+            throw new IllegalArgumentException("Unregistered packet " + packet.getClass().getName());
+
+        PacketBuffer buffer = new PacketBuffer();
+        buffer.writeByte(BINARY_VERSION);
+        buffer.writeVarInt(id);
+        packet.write(buffer);
+
+        return buffer.toByteArray();
+    }
+
+    public Packet decode(byte[] data)
+    {
+        PacketBuffer buffer = new PacketBuffer(data);
+        byte version = buffer.readByte();
+
+        if (version != BINARY_VERSION)
+            throw new IllegalStateException("Unsupported packet version " + version);
+
+        int id = buffer.readVarInt();
+
+        if (id < 0 || id >= this.factories.length || this.factories[id] == null)
+            throw new IllegalStateException("Bad packet ID " + id);
+
+        Packet packet = this.factories[id].get();
+        packet.read(buffer);
+
+        return packet;
     }
 
     public void sendPacket(String channel, Packet data)
@@ -112,7 +201,10 @@ public class ConnectionManager
 
         try
         {
-            SamaGamesAPI.get().getPubSub().send(channel, id + ":" + this.gson.toJson(data));
+            if (this.binary)
+                SamaGamesAPI.get().getPubSub().send(new BinaryPendingMessage(channel, this.encode(data)));
+            else
+                SamaGamesAPI.get().getPubSub().send(channel, id + ":" + this.gson.toJson(data));
         }
         catch (Exception e)
         {
@@ -125,11 +217,16 @@ public class ConnectionManager
         this.sendPacket("global@hydroangeas-server", packet);
     }
 
+    public boolean isBinary()
+    {
+        return this.binary;
+    }
+
     public void handler(int id, String data)
     {
         try
         {
-            this.manager.getPacketReceiver().callPacket(this.gson.fromJson(data, this.packets[id].getClass()));
+            this.manager.handlePacket(this.gson.fromJson(data, this.packets[id].getClass()));
         }
         catch (Exception e)
         {
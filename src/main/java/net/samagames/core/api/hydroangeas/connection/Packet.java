@@ -39,4 +39,11 @@ public class Packet
         }
         catch (Exception ignored) {}
     }
+
+    /**
+     * Binary form of the packet fields, see {@link PacketBuffer}
+     */
+    public void write(PacketBuffer buffer) {}
+
+    public void read(PacketBuffer buffer) {}
 }
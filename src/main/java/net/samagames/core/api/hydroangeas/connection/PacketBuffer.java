@@ -0,0 +1,245 @@
+package net.samagames.core.api.hydroangeas.connection;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/*
+ * This file is part of SamaGamesCore.
+ *
+ * SamaGamesCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SamaGamesCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SamaGamesCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * Binary encoding of the Hydroangeas packets: varints for ids and sizes,
+ * UUIDs as two longs, length-prefixed UTF-8 strings. Every reference type
+ * is nullable.
+ */
+public class PacketBuffer
+{
+    private byte[] data;
+    private int position;
+    private int limit;
+
+    /**
+     * Buffer to write to
+     */
+    public PacketBuffer()
+    {
+        this.data = new byte[64];
+        this.position = 0;
+        this.limit = 0;
+    }
+
+    /**
+     * Buffer to read from
+     */
+    public PacketBuffer(byte[] data)
+    {
+        this.data = data;
+        this.position = 0;
+        this.limit = data.length;
+    }
+
+    public byte[] toByteArray()
+    {
+        return Arrays.copyOf(this.data, this.limit);
+    }
+
+    private void ensureCapacity(int extra)
+    {
+        if (this.limit + extra > this.data.length)
+            this.data = Arrays.copyOf(this.data, Math.max(this.data.length * 2, this.limit + extra));
+    }
+
+    private void checkReadable(int length)
+    {
+        if (this.position + length > this.limit)
+            throw new IllegalStateException("Packet truncated: " + length + " bytes needed at " + this.position + "/" + this.limit);
+    }
+
+    public void writeByte(int value)
+    {
+        ensureCapacity(1);
+        this.data[this.limit++] = (byte) value;
+    }
+
+    public byte readByte()
+    {
+        checkReadable(1);
+        return this.data[this.position++];
+    }
+
+    public void writeBoolean(boolean value)
+    {
+        writeByte(value ? 1 : 0);
+    }
+
+    public boolean readBoolean()
+    {
+        return readByte() != 0;
+    }
+
+    public void writeVarInt(int value)
+    {
+        while ((value & ~0x7F) != 0)
+        {
+            writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+
+        writeByte(value);
+    }
+
+    public int readVarInt()
+    {
+        int value = 0;
+
+        for (int shift = 0; shift < 35; shift += 7)
+        {
+            byte b = readByte();
+            value |= (b & 0x7F) << shift;
+
+            if ((b & 0x80) == 0)
+                return value;
+        }
+
+        throw new IllegalStateException("VarInt too big");
+    }
+
+    public void writeLong(long value)
+    {
+        ensureCapacity(8);
+
+        for (int i = 7; i >= 0; i--)
+            this.data[this.limit++] = (byte) (value >>> (i * 8));
+    }
+
+    public long readLong()
+    {
+        checkReadable(8);
+        long value = 0;
+
+        for (int i = 0; i < 8; i++)
+            value = (value << 8) | (this.data[this.position++] & 0xFF);
+
+        return value;
+    }
+
+    public void writeString(String value)
+    {
+        if (value == null)
+        {
+            writeVarInt(0);
+            return;
+        }
+
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(bytes.length + 1);
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, this.data, this.limit, bytes.length);
+        this.limit += bytes.length;
+    }
+
+    public String readString()
+    {
+        int length = readVarInt() - 1;
+
+        if (length < 0)
+            return null;
+
+        checkReadable(length);
+        String value = new String(this.data, this.position, length, StandardCharsets.UTF_8);
+        this.position += length;
+
+        return value;
+    }
+
+    public void writeUUID(UUID value)
+    {
+        writeBoolean(value != null);
+
+        if (value != null)
+        {
+            writeLong(value.getMostSignificantBits());
+            writeLong(value.getLeastSignificantBits());
+        }
+    }
+
+    public UUID readUUID()
+    {
+        if (!readBoolean())
+            return null;
+
+        return new UUID(readLong(), readLong());
+    }
+
+    public void writeEnum(Enum<?> value)
+    {
+        writeVarInt(value == null ? 0 : value.ordinal() + 1);
+    }
+
+    public <T extends Enum<T>> T readEnum(Class<T> clazz)
+    {
+        int ordinal = readVarInt() - 1;
+
+        if (ordinal < 0)
+            return null;
+
+        T[] values = clazz.getEnumConstants();
+
+        if (ordinal >= values.length)
+            throw new IllegalStateException("Unknown " + clazz.getSimpleName() + " ordinal " + ordinal);
+
+        return values[ordinal];
+    }
+
+    public <T> void writeList(List<T> list, BiConsumer<PacketBuffer, T> writer)
+    {
+        if (list == null)
+        {
+            writeVarInt(0);
+            return;
+        }
+
+        writeVarInt(list.size() + 1);
+
+        for (T element : list)
+            writer.accept(this, element);
+    }
+
+    public <T> List<T> readList(Function<PacketBuffer, T> reader)
+    {
+        int size = readVarInt() - 1;
+
+        if (size < 0)
+            return null;
+
+        List<T> list = new ArrayList<>(Math.min(size, 256));
+
+        for (int i = 0; i < size; i++)
+            list.add(reader.apply(this));
+
+        return list;
+    }
+
+    public boolean isReadable()
+    {
+        return this.position < this.limit;
+    }
+}
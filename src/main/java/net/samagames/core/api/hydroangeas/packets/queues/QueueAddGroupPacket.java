@@ -0,0 +1,77 @@
+package net.samagames.core.api.hydroangeas.packets.queues;
+
+import net.samagames.core.api.hydroangeas.QPlayer;
+import net.samagames.core.api.hydroangeas.connection.PacketBuffer;
+
+import java.util.List;
+
+/*
+ * This file is part of SamaGamesCore.
+ *
+ * SamaGamesCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SamaGamesCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SamaGamesCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * Add a leader and its party members in one go, so Hydroangeas puts them
+ * in the same queue atomically
+ */
+public class QueueAddGroupPacket extends QueuePacket
+{
+    private QPlayer leader;
+    private List<QPlayer> players;
+
+    public QueueAddGroupPacket() {}
+
+    public QueueAddGroupPacket(QueuePacket.TypeQueue typeQueue, String game, String map, QPlayer leader, List<QPlayer> players)
+    {
+        super(typeQueue, game, map);
+
+        this.leader = leader;
+        this.players = players;
+    }
+
+    public QueueAddGroupPacket(QueuePacket.TypeQueue typeQueue, String templateID, QPlayer leader, List<QPlayer> players)
+    {
+        super(typeQueue, templateID);
+
+        this.leader = leader;
+        this.players = players;
+    }
+
+    public QPlayer getLeader()
+    {
+        return this.leader;
+    }
+
+    public List<QPlayer> getPlayers()
+    {
+        return this.players;
+    }
+
+    @Override
+    public void write(PacketBuffer buffer)
+    {
+        super.write(buffer);
+        QPlayer.write(buffer, this.leader);
+        buffer.writeList(this.players, QPlayer::write);
+    }
+
+    @Override
+    public void read(PacketBuffer buffer)
+    {
+        super.read(buffer);
+        this.leader = QPlayer.read(buffer);
+        this.players = buffer.readList(QPlayer::read);
+    }
+}
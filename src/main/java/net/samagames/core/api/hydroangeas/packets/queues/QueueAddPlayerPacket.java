@@ -1,6 +1,7 @@
 package net.samagames.core.api.hydroangeas.packets.queues;
 
 import net.samagames.core.api.hydroangeas.QPlayer;
+import net.samagames.core.api.hydroangeas.connection.PacketBuffer;
 
 /*
  * This file is part of SamaGamesCore.
@@ -42,4 +43,18 @@ public class QueueAddPlayerPacket extends QueuePacket
     {
         return this.player;
     }
+
+    @Override
+    public void write(PacketBuffer buffer)
+    {
+        super.write(buffer);
+        QPlayer.write(buffer, this.player);
+    }
+
+    @Override
+    public void read(PacketBuffer buffer)
+    {
+        super.read(buffer);
+        this.player = QPlayer.read(buffer);
+    }
 }
@@ -1,6 +1,7 @@
 package net.samagames.core.api.hydroangeas.packets.queues;
 
 import net.samagames.core.api.hydroangeas.QPlayer;
+import net.samagames.core.api.hydroangeas.connection.PacketBuffer;
 
 import java.util.List;
 
@@ -42,4 +43,20 @@ public class QueueAttachPlayerPacket extends QueuePacket
     {
         return this.players;
     }
+
+    @Override
+    public void write(PacketBuffer buffer)
+    {
+        super.write(buffer);
+        QPlayer.write(buffer, this.leader);
+        buffer.writeList(this.players, QPlayer::write);
+    }
+
+    @Override
+    public void read(PacketBuffer buffer)
+    {
+        super.read(buffer);
+        this.leader = QPlayer.read(buffer);
+        this.players = buffer.readList(QPlayer::read);
+    }
 }
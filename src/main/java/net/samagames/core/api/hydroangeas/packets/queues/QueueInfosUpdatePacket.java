@@ -3,6 +3,7 @@ package net.samagames.core.api.hydroangeas.packets.queues;
 
 import net.samagames.core.api.hydroangeas.QPlayer;
 import net.samagames.core.api.hydroangeas.connection.Packet;
+import net.samagames.core.api.hydroangeas.connection.PacketBuffer;
 
 import java.util.List;
 
@@ -35,6 +36,8 @@ public class QueueInfosUpdatePacket extends Packet
 
     private QPlayer player;
 
+    private int requestId;
+
     public QueueInfosUpdatePacket() {}
 
     public QueueInfosUpdatePacket(QPlayer player, Type type, boolean success, String errorMessage)
@@ -93,5 +96,41 @@ public class QueueInfosUpdatePacket extends Packet
         this.message = message;
     }
 
+    public int getRequestId()
+    {
+        return this.requestId;
+    }
+
+    public void setRequestId(int requestId)
+    {
+        this.requestId = requestId;
+    }
+
+    @Override
+    public void write(PacketBuffer buffer)
+    {
+        buffer.writeEnum(this.type);
+        buffer.writeBoolean(this.success);
+        buffer.writeString(this.errorMessage);
+        buffer.writeList(this.message, PacketBuffer::writeString);
+        buffer.writeString(this.game);
+        buffer.writeString(this.map);
+        QPlayer.write(buffer, this.player);
+        buffer.writeVarInt(this.requestId);
+    }
+
+    @Override
+    public void read(PacketBuffer buffer)
+    {
+        this.type = buffer.readEnum(Type.class);
+        this.success = buffer.readBoolean();
+        this.errorMessage = buffer.readString();
+        this.message = buffer.readList(PacketBuffer::readString);
+        this.game = buffer.readString();
+        this.map = buffer.readString();
+        this.player = QPlayer.read(buffer);
+        this.requestId = buffer.readVarInt();
+    }
+
     public enum Type {ADD, REMOVE, INFO}
 }
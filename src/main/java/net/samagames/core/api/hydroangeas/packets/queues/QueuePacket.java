@@ -1,6 +1,7 @@
 package net.samagames.core.api.hydroangeas.packets.queues;
 
 import net.samagames.core.api.hydroangeas.connection.Packet;
+import net.samagames.core.api.hydroangeas.connection.PacketBuffer;
 
 /*
  * This file is part of SamaGamesCore.
@@ -26,6 +27,7 @@ public class QueuePacket extends Packet
     private String map;
     private String templateID;
     private TypeQueue typeQueue;
+    private int requestId;
 
     public QueuePacket() {}
 
@@ -62,4 +64,37 @@ public class QueuePacket extends Packet
     {
         return this.game;
     }
+
+    /**
+     * Echoed by Hydroangeas in its {@link QueueInfosUpdatePacket} reply, 0 when no reply is awaited
+     */
+    public int getRequestId()
+    {
+        return this.requestId;
+    }
+
+    public void setRequestId(int requestId)
+    {
+        this.requestId = requestId;
+    }
+
+    @Override
+    public void write(PacketBuffer buffer)
+    {
+        buffer.writeEnum(this.typeQueue);
+        buffer.writeString(this.game);
+        buffer.writeString(this.map);
+        buffer.writeString(this.templateID);
+        buffer.writeVarInt(this.requestId);
+    }
+
+    @Override
+    public void read(PacketBuffer buffer)
+    {
+        this.typeQueue = buffer.readEnum(TypeQueue.class);
+        this.game = buffer.readString();
+        this.map = buffer.readString();
+        this.templateID = buffer.readString();
+        this.requestId = buffer.readVarInt();
+    }
 }
@@ -5,9 +5,10 @@ import net.samagames.api.SamaGamesAPI;
 import net.samagames.api.network.IJoinHandler;
 import net.samagames.api.network.IJoinManager;
 import net.samagames.api.network.JoinResponse;
-import net.samagames.core.APIPlugin;
 import net.samagames.core.ApiImplementation;
 import net.samagames.core.api.parties.Party;
+import net.samagames.core.listeners.general.GlobalJoinListener;
+import net.samagames.core.utils.ExpiringSet;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
@@ -15,9 +16,13 @@ import org.bukkit.event.player.AsyncPlayerPreLoginEvent.Result;
 import redis.clients.jedis.Jedis;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 import java.util.TreeMap;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
 /*
  * This file is part of SamaGamesCore.
@@ -38,8 +43,10 @@ import java.util.UUID;
 public class JoinManagerImplement implements IJoinManager
 {
     private final TreeMap<Integer, IJoinHandler> joiners = new TreeMap<>();
-    private final List<UUID> moderatorsExpected = new ArrayList<>();
-    private final List<UUID> playersExpected = new ArrayList<>();
+    private static final long EXPECTED_TIMEOUT = 15 * 1000L;
+
+    private final Set<UUID> moderatorsExpected = ConcurrentHashMap.newKeySet();
+    private final ExpiringSet<UUID> playersExpected;
     private final boolean isPartyLimited;
 
     private ApiImplementation api;
@@ -48,6 +55,7 @@ public class JoinManagerImplement implements IJoinManager
     {
         this.api = api;
         this.isPartyLimited = !api.getPlugin().isHub();
+        this.playersExpected = new ExpiringSet<>(api.getPlugin().getExecutor(), 1000L, 32);
     }
 
     private boolean isPartyLimited()
@@ -64,17 +72,22 @@ public class JoinManagerImplement implements IJoinManager
     @Override
     public int countExpectedPlayers()
     {
-        return this.getExpectedPlayers().size() + this.getModeratorsExpected().size();
+        return this.playersExpected.size() + this.moderatorsExpected.size();
     }
 
+    /**
+     * Copy of the players expected right now. It is no longer the live list:
+     * changing it has no effect, expectations end when the player joins or
+     * after 15 seconds.
+     */
     @Override
     public List<UUID> getExpectedPlayers()
     {
-        return this.playersExpected;
+        return new ArrayList<>(this.playersExpected.elements());
     }
 
 
-    private JoinResponse requestSoloJoin(UUID player)
+    private JoinResponse requestSoloJoin(UUID player, boolean alreadyConnected)
     {
         JoinResponse response = new JoinResponse();
 
@@ -88,8 +101,10 @@ public class JoinManagerImplement implements IJoinManager
 
         if (response.isAllowed())
         {
-            playersExpected.add(player);
-            Bukkit.getScheduler().runTaskLater(APIPlugin.getInstance(), () -> playersExpected.remove(player), 20 * 15L);
+            playersExpected.add(player, EXPECTED_TIMEOUT);
+
+            if (!alreadyConnected)
+                prefetch(Collections.singletonList(player));
         }
 
         return response;
@@ -116,14 +131,18 @@ public class JoinManagerImplement implements IJoinManager
             //C'est bon, si c'est le leader on teleporte toute la partie
             if(leader.equals(joiningPlayer) && !alreadyConnected)
             {
-                members.stream()
+                List<UUID> coming = members.stream()
                         .filter(player ->
                                 Bukkit.getPlayer(player) == null && !player.equals(joiningPlayer))
-                        .forEach(player -> {
-                            playersExpected.add(player);
-                            Bukkit.getScheduler().runTaskLater(APIPlugin.getInstance(),
-                                    () -> playersExpected.remove(player), 20 * 15L);
+                        .collect(Collectors.toList());
+
+                //Load the whole party at once before teleporting it
+                List<UUID> prefetched = new ArrayList<>(coming);
+                prefetched.add(joiningPlayer);
+                prefetch(prefetched);
 
+                coming.forEach(player -> {
+                            playersExpected.add(player, EXPECTED_TIMEOUT);
                             api.getPlayerManager().connectToServer(player, SamaGamesAPI.get().getServerName());
                         });
             }
@@ -152,7 +171,18 @@ public class JoinManagerImplement implements IJoinManager
             return requestPartyJoin(party, player, alreadyConnected);
         }
 
-        return requestSoloJoin(player);
+        return requestSoloJoin(player, alreadyConnected);
+    }
+
+    /**
+     * Warm the caches of players about to log in
+     */
+    private void prefetch(List<UUID> players)
+    {
+        GlobalJoinListener listener = api.getPlugin().getGlobalJoinListener();
+
+        if (listener != null && !players.isEmpty())
+            listener.getLoginPipeline().prefetch(players);
     }
 
     public void onLogin(AsyncPlayerPreLoginEvent event)
@@ -194,11 +224,8 @@ public class JoinManagerImplement implements IJoinManager
 
     public void onLogout(Player player)
     {
-        if (moderatorsExpected.contains(player.getUniqueId()))
-        {
-            moderatorsExpected.remove(player.getUniqueId());
+        if (moderatorsExpected.remove(player.getUniqueId()))
             return;
-        }
 
         for (IJoinHandler handler : joiners.values())
         {
@@ -211,7 +238,7 @@ public class JoinManagerImplement implements IJoinManager
         moderatorsExpected.add(moderator);
     }
 
-    public List<UUID> getModeratorsExpected()
+    public Set<UUID> getModeratorsExpected()
     {
         return moderatorsExpected;
     }
@@ -0,0 +1,267 @@
+package net.samagames.core.api.network;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import net.samagames.core.ApiImplementation;
+import net.samagames.core.api.permissions.PermissionEntity;
+import net.samagames.core.api.player.PlayerData;
+import net.samagames.core.api.settings.ImpPlayerSettings;
+import net.samagames.core.api.shops.PlayerShop;
+import net.samagames.core.utils.TimestampAdapter;
+import net.samagames.persistanceapi.beans.achievements.AchievementProgressBean;
+import net.samagames.persistanceapi.beans.players.GroupsBean;
+import net.samagames.persistanceapi.beans.players.PlayerBean;
+import net.samagames.persistanceapi.beans.players.PlayerSettingsBean;
+import net.samagames.persistanceapi.beans.players.SanctionBean;
+import net.samagames.persistanceapi.beans.shop.TransactionBean;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/*
+ * This file is part of SamaGamesCore.
+ *
+ * SamaGamesCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SamaGamesCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SamaGamesCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * Hands the state of a player over to the next server.
+ *
+ * When a player is about to leave, what this server has in memory is
+ * written in a single short-lived redis blob. The next server reads it
+ * in one GET at login and its loaders use it instead of querying the
+ * database.
+ *
+ * The blob is a version byte followed by the deflated JSON, a blob of
+ * another version is ignored and the loaders query the database.
+ */
+public class SessionHandoff
+{
+    private static final int VERSION = 2;
+    private static final String KEY = "session:";
+
+    private static final Gson GSON = new GsonBuilder().registerTypeAdapter(Timestamp.class, new TimestampAdapter()).create();
+
+    private final ApiImplementation api;
+    private final int expiry;
+    private final Map<UUID, Session> received = new ConcurrentHashMap<>();
+
+    /**
+     * @param expiry seconds the blob waits for the next server
+     */
+    public SessionHandoff(ApiImplementation api, int expiry)
+    {
+        this.api = api;
+        this.expiry = expiry;
+    }
+
+    /**
+     * Leave the player state for the next server, pending writes must be done before
+     */
+    public void handOff(UUID player)
+    {
+        PlayerData data = this.api.getPlayerManager().getPlayerData(player);
+
+        if (data == null)
+            return;
+
+        Session session = new Session();
+        session.player = data.getPlayerBean();
+        session.mute = data.getMuteSanction();
+
+        PermissionEntity permissions = this.api.getPermissionsManager().getPlayer(player);
+
+        if (permissions != null)
+        {
+            session.group = permissions.getGroupsBean();
+            session.permissions = permissions.getPermissions();
+        }
+
+        // Serialized as beans, the implementations also hold references to the API
+        ImpPlayerSettings settings = this.api.getSettingsManager().getSettings(player);
+
+        if (settings != null)
+            session.settings = GSON.toJsonTree(settings, PlayerSettingsBean.class);
+
+        PlayerShop shop = this.api.getShopsManager().getPlayer(player);
+
+        if (shop != null)
+            session.transactions = shop.getTransactionBeans();
+
+        session.achievements = this.api.getAchievementManager().getProgresses(player);
+
+        // Written before the player is let go, so that its next login finds it
+        try (Jedis jedis = this.api.getBungeeResource())
+        {
+            jedis.setex(key(player), this.expiry, encode(session));
+        }
+        catch (Exception e)
+        {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Take the blob the previous server left, if any. Loaders then read it with {@link #getSession(UUID)}.
+     */
+    public void receive(UUID player)
+    {
+        byte[] blob;
+
+        try (Jedis jedis = this.api.getBungeeResource())
+        {
+            // Read once, a later login must not get an outdated state
+            Pipeline pipeline = jedis.pipelined();
+            Response<byte[]> response = pipeline.get(key(player));
+            pipeline.del(key(player));
+            pipeline.sync();
+
+            blob = response.get();
+        }
+
+        if (blob == null)
+            return;
+
+        Session session = decode(blob);
+
+        if (session != null && session.player != null)
+            this.received.put(player, session);
+    }
+
+    public boolean isReceived(UUID player)
+    {
+        return this.received.containsKey(player);
+    }
+
+    public Session getSession(UUID player)
+    {
+        return this.received.get(player);
+    }
+
+    /**
+     * The login is over, loaders will not need the blob anymore
+     */
+    public void forget(UUID player)
+    {
+        this.received.remove(player);
+    }
+
+    static byte[] encode(Session session)
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(512);
+        out.write(VERSION);
+
+        try (DeflaterOutputStream deflater = new DeflaterOutputStream(out))
+        {
+            deflater.write(GSON.toJson(session).getBytes(StandardCharsets.UTF_8));
+        }
+        catch (IOException e)
+        {
+            // Written in memory
+            throw new UncheckedIOException(e);
+        }
+
+        return out.toByteArray();
+    }
+
+    /**
+     * @return null if the blob is of another version or cannot be read
+     */
+    static Session decode(byte[] blob)
+    {
+        if (blob.length == 0 || blob[0] != VERSION)
+            return null;
+
+        try (Reader reader = new InputStreamReader(new InflaterInputStream(new ByteArrayInputStream(blob, 1, blob.length - 1)), StandardCharsets.UTF_8))
+        {
+            return GSON.fromJson(reader, Session.class);
+        }
+        catch (IOException | JsonParseException e)
+        {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private static byte[] key(UUID player)
+    {
+        return (KEY + player).getBytes(StandardCharsets.UTF_8);
+    }
+
+    public static class Session
+    {
+        private PlayerBean player;
+        private SanctionBean mute;
+        private GroupsBean group;
+        private Map<String, Boolean> permissions;
+        private JsonElement settings;
+        private List<TransactionBean> transactions;
+        private List<AchievementProgressBean> achievements;
+
+        public PlayerBean getPlayer()
+        {
+            return this.player;
+        }
+
+        public SanctionBean getMute()
+        {
+            return this.mute;
+        }
+
+        /**
+         * @return the group, null if permissions were not loaded on the previous server
+         */
+        public GroupsBean getGroup()
+        {
+            return this.group;
+        }
+
+        public Map<String, Boolean> getPermissions()
+        {
+            return this.permissions;
+        }
+
+        public PlayerSettingsBean getSettings()
+        {
+            return this.settings == null ? null : GSON.fromJson(this.settings, PlayerSettingsBean.class);
+        }
+
+        public List<TransactionBean> getTransactions()
+        {
+            return this.transactions;
+        }
+
+        public List<AchievementProgressBean> getAchievements()
+        {
+            return this.achievements;
+        }
+    }
+}
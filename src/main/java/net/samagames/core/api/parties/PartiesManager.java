@@ -3,10 +3,12 @@ package net.samagames.core.api.parties;
 import net.samagames.api.parties.IPartiesManager;
 import net.samagames.api.parties.IParty;
 import net.samagames.core.ApiImplementation;
+import net.samagames.core.database.RedisBatch;
 import org.bukkit.Bukkit;
 import redis.clients.jedis.Jedis;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 /*
@@ -47,14 +49,11 @@ public class PartiesManager implements IPartiesManager
             if (party == null)
             {
                 Jedis jedis = api.getBungeeResource();
-                if (!jedis.exists("currentparty:" + player))
-                {
-                    jedis.close();
-                    return;
-                }
-                UUID partieID = UUID.fromString(jedis.get("currentparty:" + player));
-                loadParty(partieID);
+                String current = jedis.get("currentparty:" + player);
                 jedis.close();
+                if (current == null)
+                    return;
+                loadParty(UUID.fromString(current));
             }
         }catch (Exception e)
         {
@@ -65,10 +64,13 @@ public class PartiesManager implements IPartiesManager
 
     public void loadParty(UUID party)
     {
-        Jedis jedis = api.getBungeeResource();
-        String leader = jedis.get("party:" + party + ":lead");
-        Map<String, String> data = jedis.hgetAll("party:" + party + ":members");
-        jedis.close();
+        RedisBatch batch = api.createBatch();
+        CompletableFuture<String> leaderFuture = batch.queue(pipeline -> pipeline.get("party:" + party + ":lead"));
+        CompletableFuture<Map<String, String>> dataFuture = batch.queue(pipeline -> pipeline.hgetAll("party:" + party + ":members"));
+        batch.execute();
+
+        String leader = leaderFuture.join();
+        Map<String, String> data = dataFuture.join();
         if (leader == null)
             return;
 
@@ -78,6 +78,7 @@ public class PermissionEntity implements IPermissionsEntity {
             PlayerPermissionsBean allPlayerPermission = null;
             try {
                 this.groupsBean = plugin.getGameServiceManager().getPlayerGroup(playerData.getPlayerBean());
+                plugin.getAPI().getPermissionsManager().shareRank(uuid, groupsBean.getRank());
                 allPlayerPermission = plugin.getGameServiceManager().getAllPlayerPermissions(playerData.getPlayerBean());
             } catch (Exception e) {
                 e.printStackTrace();
@@ -104,6 +105,21 @@ public class PermissionEntity implements IPermissionsEntity {
             //jedis.close();
         }*/
     }
+    /**
+     * Use the group and permissions handed over by the previous server instead of querying them
+     */
+    public void load(GroupsBean groupsBean, Map<String, Boolean> permissions)
+    {
+        this.groupsBean = groupsBean;
+        plugin.getAPI().getPermissionsManager().shareRank(uuid, groupsBean.getRank());
+
+        this.permissions.clear();
+        if (permissions != null)
+            this.permissions.putAll(permissions);
+
+        reloadPermissions(Bukkit.getPlayer(uuid));
+    }
+
     public void reloadPermissions(Player player)
     {
         if (attachment != null) {
@@ -134,6 +150,11 @@ public class PermissionEntity implements IPermissionsEntity {
         attachment.remove();
     }
 
+    public GroupsBean getGroupsBean()
+    {
+        return this.groupsBean;
+    }
+
     public GroupsBean getDisplayGroup()
     {
         return (playerData.hasNickname()) ? plugin.getAPI().getPermissionsManager().getFakeGroupBean() : this.groupsBean;
@@ -4,6 +4,8 @@ import net.samagames.api.SamaGamesAPI;
 import net.samagames.api.permissions.IPermissionsEntity;
 import net.samagames.api.permissions.IPermissionsManager;
 import net.samagames.core.ApiImplementation;
+import net.samagames.core.api.network.SessionHandoff;
+import net.samagames.core.database.async.AsyncRedisClient;
 import net.samagames.persistanceapi.beans.players.GroupsBean;
 import net.samagames.persistanceapi.beans.players.PlayerBean;
 import org.bukkit.Bukkit;
@@ -11,9 +13,15 @@ import org.bukkit.ChatColor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.command.ConsoleCommandSender;
 import org.bukkit.entity.Player;
+import redis.clients.jedis.Jedis;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 /*
  * This file is part of SamaGamesCore.
@@ -33,8 +41,15 @@ import java.util.UUID;
  */
 public class PermissionManager implements IPermissionsManager
 {
+    /**
+     * Rank of a player, written by every server it is loaded on and expiring
+     * after permissions-rank-expiry so demoted or gone players do not linger
+     */
+    public static final String RANK_KEY = "permissions:rank:";
+
     private final boolean isLobby;
-    private final HashMap<UUID, PermissionEntity> cache = new HashMap<>();
+    private final int rankExpiry;
+    private final ConcurrentHashMap<UUID, PermissionEntity> cache = new ConcurrentHashMap<>();
     private ApiImplementation api;
 
     private GroupsBean fakeGroupBean;
@@ -43,6 +58,7 @@ public class PermissionManager implements IPermissionsManager
     {
         this.api = api;
         this.isLobby = SamaGamesAPI.get().getServerName().startsWith("Hub");
+        this.rankExpiry = api.getPlugin().getDataConfiguration().getInt("permissions-rank-expiry", 6 * 3600);
         Bukkit.getLogger().info("Lobby mode was set to : " + isLobby);
     }
 
@@ -50,7 +66,12 @@ public class PermissionManager implements IPermissionsManager
     {
         try{
             PermissionEntity permissionEntity = new PermissionEntity(player, api.getPlugin());
-            permissionEntity.refresh();
+            SessionHandoff.Session session = api.getSessionHandoff().getSession(player);
+
+            if (session != null && session.getGroup() != null)
+                permissionEntity.load(session.getGroup(), session.getPermissions());
+            else
+                permissionEntity.refresh();
             cache.put(player, permissionEntity);
         }catch (Exception e)
         {
@@ -72,6 +93,15 @@ public class PermissionManager implements IPermissionsManager
         }
     }
 
+    /**
+     * Drop a player that never joined (failed login)
+     */
+    public void unloadPlayer(UUID player)
+    {
+        if (!api.isKeepCache())
+            cache.remove(player);
+    }
+
     public boolean isLobby()
     {
         return isLobby;
@@ -83,6 +113,73 @@ public class PermissionManager implements IPermissionsManager
         return cache.get(player);
     }
 
+    /**
+     * Ranks of several players, loaded ones come from the cache and the
+     * others (on another server) from one MGET on {@link #RANK_KEY}.
+     * Unknown players get rank 0.
+     */
+    public Map<UUID, Integer> getRanks(Collection<UUID> players)
+    {
+        Map<UUID, Integer> ranks = new HashMap<>();
+        List<UUID> remote = new ArrayList<>();
+
+        for (UUID player : players)
+        {
+            PermissionEntity entity = cache.get(player);
+
+            if (entity != null)
+                ranks.put(player, entity.getRank());
+            else
+                remote.add(player);
+        }
+
+        if (remote.isEmpty())
+            return ranks;
+
+        String[] keys = new String[remote.size()];
+
+        for (int i = 0; i < keys.length; i++)
+            keys[i] = RANK_KEY + remote.get(i);
+
+        List<String> values = null;
+
+        try (Jedis jedis = api.getBungeeResource())
+        {
+            values = jedis.mget(keys);
+        }
+        catch (Exception e)
+        {
+            e.printStackTrace();
+        }
+
+        for (int i = 0; i < keys.length; i++)
+        {
+            String value = values == null ? null : values.get(i);
+            int rank = 0;
+
+            if (value != null)
+            {
+                try
+                {
+                    rank = Integer.parseInt(value);
+                }
+                catch (NumberFormatException ignored) {}
+            }
+
+            ranks.put(remote.get(i), rank);
+        }
+
+        return ranks;
+    }
+
+    /**
+     * Publish the rank of a loaded player for {@link #getRanks(Collection)} on other servers
+     */
+    public void shareRank(UUID player, int rank)
+    {
+        api.getAsyncBungeeResource().setex(RANK_KEY + player, rankExpiry, String.valueOf(rank)).whenComplete(AsyncRedisClient::logFailure);
+    }
+
     @Override
     public String getPrefix(IPermissionsEntity entity) {
         String value = entity.getPrefix();
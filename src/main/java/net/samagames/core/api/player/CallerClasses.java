@@ -0,0 +1,125 @@
+package net.samagames.core.api.player;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/*
+ * This file is part of SamaGamesCore.
+ *
+ * SamaGamesCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SamaGamesCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SamaGamesCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * Tells whether a class of the calling frames matches, without building a
+ * stack trace. The result per class is computed once.
+ *
+ * On a Java 9+ runtime the frames are walked lazily by StackWalker and the
+ * walk stops at the first match. The plugin is built for Java 8, so it is
+ * looked up by reflection, with getClassContext as the Java 8 fallback.
+ */
+class CallerClasses extends SecurityManager
+{
+    private final ClassValue<Boolean> matches;
+    private final Predicate<Class<?>> matching;
+    private final Function<Predicate<Class<?>>, Boolean> stackWalker;
+
+    CallerClasses(Predicate<Class<?>> predicate)
+    {
+        this(predicate, true);
+    }
+
+    CallerClasses(Predicate<Class<?>> predicate, boolean useStackWalker)
+    {
+        this.matches = new ClassValue<Boolean>()
+        {
+            @Override
+            protected Boolean computeValue(Class<?> type)
+            {
+                return predicate.test(type);
+            }
+        };
+        this.matching = this.matches::get;
+        this.stackWalker = useStackWalker ? stackWalker() : null;
+    }
+
+    boolean isCalledFrom()
+    {
+        if (this.stackWalker != null)
+            return this.stackWalker.apply(this.matching);
+
+        for (Class<?> caller : getClassContext())
+            if (this.matching.test(caller))
+                return true;
+
+        return false;
+    }
+
+    boolean usesStackWalker()
+    {
+        return this.stackWalker != null;
+    }
+
+    /**
+     * @return StackWalker.walk(frames -> frames.anyMatch(...)), null before Java 9
+     */
+    @SuppressWarnings("unchecked")
+    private static Function<Predicate<Class<?>>, Boolean> stackWalker()
+    {
+        try
+        {
+            Class<?> walkerType = Class.forName("java.lang.StackWalker");
+            Class<?> frameType = Class.forName("java.lang.StackWalker$StackFrame");
+            Class<? extends Enum> optionType = (Class<? extends Enum>) Class.forName("java.lang.StackWalker$Option");
+
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            Object walker = lookup.findStatic(walkerType, "getInstance", MethodType.methodType(walkerType, optionType))
+                    .invoke(Enum.valueOf(optionType, "RETAIN_CLASS_REFERENCE"));
+            MethodHandle walk = lookup.findVirtual(walkerType, "walk", MethodType.methodType(Object.class, Function.class)).bindTo(walker);
+            MethodHandle declaringClass = lookup.findVirtual(frameType, "getDeclaringClass", MethodType.methodType(Class.class));
+
+            return predicate ->
+            {
+                Function<Stream<Object>, Boolean> anyMatch = frames -> frames.anyMatch(frame ->
+                {
+                    try
+                    {
+                        return predicate.test((Class<?>) declaringClass.invoke(frame));
+                    }
+                    catch (Throwable e)
+                    {
+                        throw new IllegalStateException(e);
+                    }
+                });
+
+                try
+                {
+                    return (Boolean) walk.invoke(anyMatch);
+                }
+                catch (Throwable e)
+                {
+                    throw new IllegalStateException(e);
+                }
+            };
+        }
+        catch (Throwable e)
+        {
+            // Java 8
+            return null;
+        }
+    }
+}
@@ -0,0 +1,317 @@
+package net.samagames.core.api.player;
+
+import net.samagames.api.player.IFinancialCallback;
+import net.samagames.core.database.EconomyStore;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/*
+ * This file is part of SamaGamesCore.
+ *
+ * SamaGamesCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SamaGamesCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SamaGamesCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * Write-behind journal of coins, stars and powders changes.
+ *
+ * Changes are summed per player and written on a timer: one increment of
+ * the stored balances per player per flush, whatever the number of
+ * changes. The database adds the sums itself, no lock is taken between
+ * servers. A change with a callback is written soon after, together with
+ * the changes made meanwhile. Several players can be flushed in one
+ * transaction.
+ */
+public class EconomyLedger
+{
+    public static final int COINS = 0;
+    public static final int STARS = 1;
+    public static final int POWDERS = 2;
+
+    private final ScheduledExecutorService executor;
+    private final EconomyStore store;
+    private final Map<UUID, Journal> journals = new ConcurrentHashMap<>();
+
+    public EconomyLedger(ScheduledExecutorService executor, EconomyStore store, long flushInterval)
+    {
+        this.executor = executor;
+        this.store = store;
+
+        executor.scheduleWithFixedDelay(this::flushAll, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Journal a change, the callback gets the balance once it is written
+     */
+    public void append(PlayerData data, int type, long amount, IFinancialCallback callback)
+    {
+        Journal journal;
+
+        while (true)
+        {
+            journal = this.journals.computeIfAbsent(data.getPlayerID(), key -> new Journal(data));
+
+            synchronized (journal)
+            {
+                // Dropped by flushAll in the meantime
+                if (journal.closed)
+                    continue;
+
+                journal.deltas[type] += amount;
+
+                if (callback != null)
+                    journal.entries.add(new Entry(type, amount, callback));
+
+                break;
+            }
+        }
+
+        if (callback != null && journal.flushRequested.compareAndSet(false, true))
+            this.requestFlush(data.getPlayerID(), journal);
+    }
+
+    private void requestFlush(UUID player, Journal journal)
+    {
+        try
+        {
+            this.executor.execute(() ->
+            {
+                journal.flushRequested.set(false);
+
+                try
+                {
+                    this.flush(player);
+                }
+                catch (Exception ignored)
+                {
+                    // Already logged, retried on next flush
+                }
+            });
+        }
+        catch (RejectedExecutionException e)
+        {
+            // Shutting down, written by the last flushAll
+            journal.flushRequested.set(false);
+        }
+    }
+
+    /**
+     * Write a change now, it is not journaled: nothing is changed if the write fails
+     *
+     * @return the written balance
+     * @throws IllegalStateException if the write failed
+     */
+    public long commit(PlayerData data, int type, long amount)
+    {
+        long[] deltas = new long[3];
+        deltas[type] = amount;
+
+        try
+        {
+            long[] balances = this.store.increment(data.getPlayerID(), deltas);
+            data.economyWritten(balances);
+
+            return balances[type];
+        }
+        catch (Exception e)
+        {
+            throw new IllegalStateException("Cannot write economy of " + data.getPlayerID(), e);
+        }
+    }
+
+    /**
+     * Write the pending changes of a player
+     *
+     * @return the balances after the write, null if the player had nothing to write
+     */
+    public long[] flush(UUID player)
+    {
+        return this.flush(Collections.singleton(player)).get(player);
+    }
+
+    /**
+     * Write the pending changes of several players in one transaction,
+     * nothing is written if it fails
+     *
+     * @return the balances after the write of the players who had something to write
+     */
+    public Map<UUID, long[]> flush(Collection<UUID> players)
+    {
+        // Always locked in the same order so that two flushes cannot wait for each other
+        List<Journal> journals = players.stream().distinct().sorted().map(this.journals::get).filter(Objects::nonNull).collect(Collectors.toList());
+
+        return this.flush(journals, 0);
+    }
+
+    private Map<UUID, long[]> flush(List<Journal> journals, int locked)
+    {
+        // One flush at a time per player, the callbacks then see the balances in order
+        if (locked < journals.size())
+        {
+            synchronized (journals.get(locked).flushLock)
+            {
+                return this.flush(journals, locked + 1);
+            }
+        }
+
+        Map<UUID, long[]> deltas = new LinkedHashMap<>();
+        Map<Journal, List<Entry>> entries = new LinkedHashMap<>();
+
+        for (Journal journal : journals)
+        {
+            synchronized (journal)
+            {
+                if (journal.isEmpty())
+                    continue;
+
+                deltas.put(journal.data.getPlayerID(), journal.deltas);
+                entries.put(journal, new ArrayList<>(journal.entries));
+
+                journal.deltas = new long[3];
+                journal.entries.clear();
+            }
+        }
+
+        if (deltas.isEmpty())
+            return Collections.emptyMap();
+
+        Map<UUID, long[]> balances;
+
+        try
+        {
+            balances = this.store.increment(deltas);
+        }
+        catch (Exception e)
+        {
+            e.printStackTrace();
+
+            // Keep everything for the next flush
+            for (Map.Entry<Journal, List<Entry>> entry : entries.entrySet())
+            {
+                Journal journal = entry.getKey();
+                long[] kept = deltas.get(journal.data.getPlayerID());
+
+                synchronized (journal)
+                {
+                    for (int i = 0; i < kept.length; i++)
+                        journal.deltas[i] += kept[i];
+
+                    journal.entries.addAll(0, entry.getValue());
+                }
+            }
+
+            throw new IllegalStateException("Cannot write economy of " + deltas.keySet(), e);
+        }
+
+        for (Map.Entry<Journal, List<Entry>> entry : entries.entrySet())
+        {
+            long[] written = balances.get(entry.getKey().data.getPlayerID());
+            entry.getKey().data.economyWritten(written);
+
+            for (Entry change : entry.getValue())
+            {
+                try
+                {
+                    change.callback.done(written[change.type], change.amount, null);
+                }
+                catch (Exception e)
+                {
+                    e.printStackTrace();
+                }
+            }
+        }
+
+        return balances;
+    }
+
+    public void flushAll()
+    {
+        for (Map.Entry<UUID, Journal> entry : this.journals.entrySet())
+        {
+            Journal journal = entry.getValue();
+            boolean pending;
+
+            synchronized (journal)
+            {
+                pending = !journal.isEmpty();
+            }
+
+            try
+            {
+                if (pending)
+                    this.flush(entry.getKey());
+            }
+            catch (Exception ignored)
+            {
+                // Already logged, retried on next flush
+            }
+
+            // Forget players gone from this server once nothing is left to write
+            synchronized (journal)
+            {
+                if (journal.isEmpty() && !journal.data.manager.isLoaded(entry.getKey()))
+                {
+                    journal.closed = true;
+                    this.journals.remove(entry.getKey(), journal);
+                }
+            }
+        }
+    }
+
+    private static class Journal
+    {
+        private final PlayerData data;
+        private final Object flushLock = new Object();
+        private final AtomicBoolean flushRequested = new AtomicBoolean();
+        private final List<Entry> entries = new ArrayList<>();
+        private long[] deltas = new long[3];
+        private boolean closed;
+
+        private Journal(PlayerData data)
+        {
+            this.data = data;
+        }
+
+        private boolean isEmpty()
+        {
+            return this.entries.isEmpty() && this.deltas[COINS] == 0 && this.deltas[STARS] == 0 && this.deltas[POWDERS] == 0;
+        }
+    }
+
+    private static class Entry
+    {
+        private final int type;
+        private final long amount;
+        private final IFinancialCallback callback;
+
+        private Entry(int type, long amount, IFinancialCallback callback)
+        {
+            this.type = type;
+            this.amount = amount;
+            this.callback = callback;
+        }
+    }
+}
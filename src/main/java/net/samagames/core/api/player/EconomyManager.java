@@ -2,10 +2,10 @@ package net.samagames.core.api.player;
 
 import net.md_5.bungee.api.ChatColor;
 import net.samagames.core.ApiImplementation;
+import net.samagames.core.api.permissions.PermissionEntity;
 import net.samagames.persistanceapi.beans.shop.PromotionsBean;
 import org.bukkit.scheduler.BukkitTask;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
@@ -28,24 +28,27 @@ import java.util.UUID;
 public class EconomyManager
 {
     private final ApiImplementation api;
-    private List<PromotionsBean> promotions;
+    private volatile PromotionIndex promotions;
 
     private final BukkitTask discountTask;
 
     public EconomyManager(ApiImplementation api)
     {
         this.api = api;
-        this.promotions = new ArrayList<>();
+        this.promotions = PromotionIndex.EMPTY;
 
         // Run task every 30 minutes
         discountTask = api.getPlugin().getServer().getScheduler().runTaskTimerAsynchronously(this.api.getPlugin(), this::reload, 0L, 36000L);
     }
 
+    /**
+     * Rebuild the promotion index, readers keep the previous one until it is swapped
+     */
     public void reload()
     {
-        promotions.clear();
         try {
-            promotions.addAll(api.getGameServiceManager().getAllActivePromotions());
+            List<PromotionsBean> active = api.getGameServiceManager().getAllActivePromotions();
+            promotions = new PromotionIndex(active);
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -53,6 +56,12 @@ public class EconomyManager
 
     public Multiplier getGroupMultiplier(UUID player)
     {
+        // Refreshed on groupchange, only players loaded elsewhere need a query
+        PermissionEntity entity = api.getPermissionsManager().getPlayer(player);
+
+        if (entity != null)
+            return new Multiplier(entity.getMultiplier(), 0);
+
         PlayerData user = api.getPlayerManager().getPlayerData(player);
         int groupMultiplier = 1;
 
@@ -67,26 +76,7 @@ public class EconomyManager
 
     public Multiplier getPromotionMultiplier( int type, int game)
     {
-        Multiplier result = new Multiplier(1, 0);
-        long currentTime = System.currentTimeMillis();
-        for (PromotionsBean promotion : promotions)
-        {
-            if (promotion.getPromotionType() == -1 || promotion.getPromotionType() == type) //Check type (global coins or stars)
-            {
-                if ((promotion.getGame() == game || promotion.getGame() == -1) //Check Game number
-                        && promotion.getStartDate().getTime() < currentTime
-                        && promotion.getEndDate().getTime() > currentTime)
-                {
-                    Multiplier multiplier = new Multiplier(promotion.getMultiplier(),
-                            promotion.getEndDate().getTime(),
-                            promotion.getMessage());
-
-                    result.cross(multiplier);
-                }
-            }
-        }
-
-        return result;
+        return promotions.getMultiplier(type, game, System.currentTimeMillis());
     }
 
     public String getCreditMessage(long amount, int type, String reason, Multiplier multiplier)
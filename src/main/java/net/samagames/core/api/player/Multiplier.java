@@ -38,6 +38,12 @@ public class Multiplier
         this.endTime = endTime;
     }
 
+    Multiplier(int globalAmount, long endTime, Map<String, Integer> combinedData)
+    {
+        this(globalAmount, endTime);
+        this.combinedData.putAll(combinedData);
+    }
+
     public int getGlobalAmount()
     {
         return (globalAmount >= 1) ? globalAmount : 1;
@@ -1,22 +1,35 @@
 package net.samagames.core.api.player;
 
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
 import com.mojang.authlib.GameProfile;
 import net.samagames.api.player.AbstractPlayerData;
 import net.samagames.api.player.IFinancialCallback;
 import net.samagames.core.APIPlugin;
 import net.samagames.core.ApiImplementation;
+import net.samagames.core.api.network.SessionHandoff;
+import net.samagames.core.database.async.AsyncRedisClient;
+import net.samagames.core.utils.TimestampAdapter;
 import net.samagames.persistanceapi.beans.players.PlayerBean;
 import net.samagames.persistanceapi.beans.players.SanctionBean;
 import net.samagames.tools.Reflection;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.sql.Timestamp;
 import java.util.Date;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /*
  * This file is part of SamaGamesCore.
@@ -36,23 +49,34 @@ import java.util.UUID;
  */
 public class PlayerData extends AbstractPlayerData
 {
+    private static final CallerClasses CALLERS = new CallerClasses(type -> type.getName().contains("hub"));
+    private static final Gson GSON = new GsonBuilder().registerTypeAdapter(Timestamp.class, new TimestampAdapter()).create();
+
     protected final ApiImplementation api;
     protected final PlayerDataManager manager;
 
-    private PlayerBean playerBean;
+    private volatile PlayerBean playerBean;
 
-    private long lastRefresh;
+    private volatile long lastRefresh;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
     private UUID playerUUID;
 
     private GameProfile fakeProfile;
 
     private UUID fakeUUID;
 
-    private final static String key = "playerdata:";
+    // playerdata:<uuid> is the hash of the generated CacheLoader, the JSON copy lives beside it
+    final static String key = "playerdata:shared:";
 
     private SanctionBean muteSanction = null;
 
     private boolean loaded = false;
+    // Bean as read from the redis copy, as the tree the merge compares to, other services may have written the database since
+    private JsonObject sharedTree;
+
+    private String indexedName;
+    private String indexedDisplayName;
+    private boolean unindexed;
 
     protected PlayerData(UUID playerID, ApiImplementation api, PlayerDataManager manager)
     {
@@ -74,29 +98,89 @@ public class PlayerData extends AbstractPlayerData
                 null,
                 0);
 
-        refreshData();
+        loadData();
+    }
+
+    /**
+     * First load, from what the previous server handed over or left in redis if it did
+     */
+    private boolean loadData()
+    {
+        if (loadSession())
+            return true;
+
+        try (Jedis jedis = api.getBungeeResource())
+        {
+            Pipeline pipeline = jedis.pipelined();
+            Response<String> cached = pipeline.get(key + playerUUID);
+            Response<Map<String, String>> mute = pipeline.hgetAll("mute:" + playerUUID);
+            pipeline.sync();
+
+            PlayerBean bean = decodeBean(cached.get());
+
+            if (bean != null)
+            {
+                playerBean = bean;
+                sharedTree = GSON.toJsonTree(bean).getAsJsonObject();
+                lastRefresh = System.currentTimeMillis();
+                readMute(mute.get());
+                indexNames();
+                loaded = true;
+                return true;
+            }
+        }
+        catch (Exception e)
+        {
+            e.printStackTrace();
+        }
+
+        //Not shared by any server, read the database
+        return refreshData();
+    }
+
+    /**
+     * Read again what may have changed since the data was prefetched: the
+     * previous server saved the player when it left, after the prefetch
+     */
+    boolean reloadData()
+    {
+        return loadSession() || refreshData();
+    }
+
+    private synchronized boolean loadSession()
+    {
+        SessionHandoff.Session session = api.getSessionHandoff().getSession(playerUUID);
+
+        if (session == null)
+            return false;
+
+        playerBean = session.getPlayer();
+        sharedTree = null;
+        muteSanction = session.getMute();
+        lastRefresh = System.currentTimeMillis();
+        indexNames();
+        loaded = true;
+        return true;
     }
 
     //Warning load all data soi may be heavy
-    public boolean refreshData()
+    public synchronized boolean refreshData()
     {
         lastRefresh = System.currentTimeMillis();
         //Load from redis
 
         try(Jedis jedis = api.getBungeeResource()){
-            //CacheLoader.load(jedis, key + playerUUID, playerBean);
             playerBean = api.getGameServiceManager().getPlayer(playerUUID, playerBean);
-            if (jedis.exists("mute:" + playerUUID))
-            {
-                String by = jedis.hget("mute:" + playerUUID, "by");
-                String expireAt = jedis.hget("mute:" + playerUUID, "expireAt");
-                muteSanction = new SanctionBean(playerUUID,
-                        SanctionBean.MUTE,
-                        jedis.hget("mute:" + playerUUID, "reason"),
-                        (by != null) ? UUID.fromString(by) : null,
-                        (expireAt != null)? new Timestamp(Long.valueOf(expireAt)): null,
-                        false);
-            }
+            sharedTree = null;
+
+            //One round-trip to share the fresh data and read the mute, empty if there is no mute
+            Pipeline pipeline = jedis.pipelined();
+            pipeline.setex(key + playerUUID, manager.getCacheExpiry(), GSON.toJson(playerBean));
+            Response<Map<String, String>> mute = pipeline.hgetAll("mute:" + playerUUID);
+            pipeline.sync();
+
+            readMute(mute.get());
+            indexNames();
             /**
             if (hasNickname()) {
                 this.fakeUUID = this.api.getUUIDTranslator().getUUID(playerBean.getNickName(), true);
@@ -110,20 +194,78 @@ public class PlayerData extends AbstractPlayerData
         return false;
     }
 
+    private void readMute(Map<String, String> mute)
+    {
+        if (!mute.isEmpty())
+        {
+            String by = mute.get("by");
+            String expireAt = mute.get("expireAt");
+            muteSanction = new SanctionBean(playerUUID,
+                    SanctionBean.MUTE,
+                    mute.get("reason"),
+                    (by != null) ? UUID.fromString(by) : null,
+                    (expireAt != null)? new Timestamp(Long.valueOf(expireAt)): null,
+                    false);
+        }
+    }
+
+    private PlayerBean decodeBean(String json)
+    {
+        if (json == null)
+            return null;
+
+        try
+        {
+            return GSON.fromJson(json, PlayerBean.class);
+        }
+        catch (JsonParseException e)
+        {
+            // Written by another version, reload from the database
+            return null;
+        }
+    }
+
+    /**
+     * Keep the redis copy in sync after a write to the database
+     */
+    private void shareData()
+    {
+        api.getAsyncBungeeResource().setex(key + playerUUID, manager.getCacheExpiry(), GSON.toJson(playerBean)).whenComplete(AsyncRedisClient::logFailure);
+    }
+
+    /**
+     * Follow name and nickname changes in the manager name lookups
+     */
+    synchronized void indexNames()
+    {
+        if (unindexed)
+            return;
+
+        indexedName = manager.indexName(playerUUID, indexedName, getEffectiveName(), false);
+        indexedDisplayName = manager.indexName(playerUUID, indexedDisplayName, hasNickname() ? getCustomName() : null, true);
+    }
+
+    /**
+     * The player is unloaded, a refresh still running must not index it again
+     */
+    synchronized void unindexNames()
+    {
+        unindexed = true;
+        indexedName = manager.indexName(playerUUID, indexedName, null, false);
+        indexedDisplayName = manager.indexName(playerUUID, indexedDisplayName, null, true);
+    }
+
     public void updateData()
     {
         if(playerBean != null && loaded)
         {
-            //Save in redisResource
-            //Jedis jedis = api.getBungee();
-            //Generated class so FUCK IT i made it static
-            //CacheLoader.send(jedis, key + playerUUID, playerBean);
             try {
-                api.getGameServiceManager().updatePlayer(playerBean);
+                writeData();
+                shareData();
+                indexNames();
             } catch (Exception e) {
                 e.printStackTrace();
             }
-            //jedis.close();
         }
     }
 
@@ -154,6 +296,11 @@ public class PlayerData extends AbstractPlayerData
 
     private void creditEconomy(int type, long amountFinal, String reason, boolean applyMultiplier, IFinancialCallback financialCallback)
     {
+        RewardSession session = manager.getRewardSession();
+
+        if (session != null && session.credit(this, type, amountFinal, reason, applyMultiplier, financialCallback))
+            return;
+
         int game = 0;
         APIPlugin.getInstance().getExecutor().execute(() -> {
             try
@@ -177,11 +324,8 @@ public class PlayerData extends AbstractPlayerData
                         Bukkit.getPlayer(getPlayerID()).sendMessage(message);
                 }
 
-                //edit here for more type of coins
-                long result = (type == 0) ? increaseCoins(amount) : (type == 1) ? increaseStars(amount) : increasePowders(amount);
-
-                if (financialCallback != null)
-                    financialCallback.done(result, amount, null);
+                //Written with the next ledger flush, the callback gets the written balance
+                manager.getEconomyLedger().append(this, type, amount, financialCallback);
 
             } catch (Exception e)
             {
@@ -193,12 +337,7 @@ public class PlayerData extends AbstractPlayerData
     @Override
     public void withdrawCoins(long amount, IFinancialCallback financialCallback)
     {
-        APIPlugin.getInstance().getExecutor().execute(() -> {
-            long result = decreaseCoins(amount);
-            if (financialCallback != null)
-                financialCallback.done(result, -amount, null);
-
-        });
+        manager.getEconomyLedger().append(this, EconomyLedger.COINS, -amount, financialCallback);
     }
 
     @Override
@@ -206,13 +345,7 @@ public class PlayerData extends AbstractPlayerData
     {
         this.assertHub();
 
-        APIPlugin.getInstance().getExecutor().execute(() -> {
-            long result = decreaseStars(amount);
-
-            if (financialCallback != null)
-                financialCallback.done(result, -amount, null);
-
-        });
+        manager.getEconomyLedger().append(this, EconomyLedger.STARS, -amount, financialCallback);
     }
 
     @Override
@@ -220,44 +353,26 @@ public class PlayerData extends AbstractPlayerData
     {
         this.assertHub();
 
-        APIPlugin.getInstance().getExecutor().execute(() -> {
-            long result = decreasePowders(amount);
-
-            if (financialCallback != null)
-                financialCallback.done(result, -amount, null);
-
-        });
+        manager.getEconomyLedger().append(this, EconomyLedger.POWDERS, -amount, financialCallback);
     }
 
     @Override
     public long increaseCoins(long incrBy) {
-        refreshData();
-        int result = (int) (playerBean.getCoins() + incrBy);
-        playerBean.setCoins(result);
-        updateData();
-        return result;
+        return manager.getEconomyLedger().commit(this, EconomyLedger.COINS, incrBy);
     }
 
     @Override
     public long increaseStars(long incrBy) {
         this.assertHub();
 
-        refreshData();
-        int result = (int) (playerBean.getStars() + incrBy);
-        playerBean.setStars(result);
-        updateData();
-        return result;
+        return manager.getEconomyLedger().commit(this, EconomyLedger.STARS, incrBy);
     }
 
     @Override
     public long increasePowders(long incrBy) {
         this.assertHub();
 
-        refreshData();
-        int result = (int) (playerBean.getPowders() + incrBy);
-        playerBean.setPowders(result);
-        updateData();
-        return result;
+        return manager.getEconomyLedger().commit(this, EconomyLedger.POWDERS, incrBy);
     }
 
     @Override
@@ -269,17 +384,78 @@ public class PlayerData extends AbstractPlayerData
     @Override
     public long decreaseStars(long decrBy)
     {
-        this.assertHub();
         return increaseStars(-decrBy);
     }
 
     @Override
     public long decreasePowders(long decrBy)
     {
-        this.assertHub();
         return increasePowders(-decrBy);
     }
 
+    /**
+     * Write the whole bean but the balances, which only the ledger changes.
+     * A bean read from the redis copy only brings the fields changed here,
+     * the others are taken from the database.
+     *
+     * The GameServiceManager only writes whole rows: the balances are read
+     * just before and written back as they were. A ledger flush of another
+     * server landing in between would be lost, a player only plays on one
+     * server at a time and its data is written when it leaves.
+     */
+    private synchronized void writeData() throws Exception
+    {
+        PlayerBean stored = api.getGameServiceManager().getPlayer(playerUUID, new PlayerBean(playerUUID, "", null, 0, 0, 0, null, null, null, null, 0));
+
+        if (sharedTree != null)
+        {
+            playerBean = merge(sharedTree, playerBean, stored);
+            sharedTree = null;
+        }
+
+        long[] balances = api.getPlugin().getEconomyStore().getBalances(playerUUID);
+        setBalances(balances);
+
+        api.getGameServiceManager().updatePlayer(playerBean);
+    }
+
+    /**
+     * @return stored with the fields that differ between base and local
+     */
+    private static PlayerBean merge(JsonObject baseTree, PlayerBean local, PlayerBean stored)
+    {
+        JsonObject merged = GSON.toJsonTree(stored).getAsJsonObject();
+
+        for (Map.Entry<String, JsonElement> field : GSON.toJsonTree(local).getAsJsonObject().entrySet())
+        {
+            if (!field.getValue().equals(baseTree.get(field.getKey())))
+                merged.add(field.getKey(), field.getValue());
+        }
+
+        return GSON.fromJson(merged, PlayerBean.class);
+    }
+
+    /**
+     * Balances written by the economy ledger, the database summed them
+     * so changes written meanwhile by other servers are included
+     */
+    void economyWritten(long[] balances)
+    {
+        synchronized (this)
+        {
+            setBalances(balances);
+        }
+
+        shareData();
+    }
+
+    private void setBalances(long[] balances)
+    {
+        playerBean.setCoins((int) balances[EconomyLedger.COINS]);
+        playerBean.setStars((int) balances[EconomyLedger.STARS]);
+        playerBean.setPowders((int) balances[EconomyLedger.POWDERS]);
+    }
+
     @Override
     public long getCoins()
     {
@@ -328,13 +504,29 @@ public class PlayerData extends AbstractPlayerData
 
 
     /**
-     *  Need to be call before edit data
+     *  Need to be call before edit data, outdated data is still served until a worker reloaded it
      */
     public void refreshIfNeeded()
     {
-        if (lastRefresh + 1000 * 60 < System.currentTimeMillis())
+        if (lastRefresh + manager.getRefreshInterval() < System.currentTimeMillis() && refreshing.compareAndSet(false, true))
         {
-            refreshData();
+            try
+            {
+                APIPlugin.getInstance().getExecutor().execute(() -> {
+                    try
+                    {
+                        refreshData();
+                    }
+                    finally
+                    {
+                        refreshing.set(false);
+                    }
+                });
+            }
+            catch (RejectedExecutionException e)
+            {
+                refreshing.set(false);
+            }
         }
     }
 
@@ -372,19 +564,7 @@ public class PlayerData extends AbstractPlayerData
 
     private void assertHub()
     {
-        StackTraceElement[] stackTraceElements = Thread.currentThread().getStackTrace();
-        boolean isHub = false;
-
-        for (StackTraceElement stackTraceElement : stackTraceElements)
-        {
-            if (stackTraceElement.getClassName().contains("hub"))
-            {
-                isHub = true;
-                break;
-            }
-        }
-
-        if (!isHub)
+        if (!CALLERS.isCalledFrom())
         {
             throw new UnsupportedOperationException("You don't have the permission to use this method! Maybe it's now deprecated or for private use only.");
         }
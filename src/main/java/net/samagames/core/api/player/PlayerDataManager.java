@@ -5,10 +5,15 @@ import net.md_5.bungee.api.chat.TextComponent;
 import net.samagames.api.SamaGamesAPI;
 import net.samagames.api.player.IPlayerDataManager;
 import net.samagames.core.ApiImplementation;
+import net.samagames.core.database.async.AsyncRedisClient;
 import org.bukkit.Bukkit;
 
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 
 /*
  * This file is part of SamaGamesCore.
@@ -31,13 +36,22 @@ public class PlayerDataManager implements IPlayerDataManager
 
     private final ApiImplementation api;
     private final ConcurrentHashMap<UUID, PlayerData> cache = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, UUID> names = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, UUID> displayNames = new ConcurrentHashMap<>();
     private final EconomyManager economyManager;
+    private final EconomyLedger economyLedger;
+    private final AtomicReference<RewardSession> rewardSession = new AtomicReference<>();
+    private final long refreshInterval;
+    private final int cacheExpiry;
 
 
     public PlayerDataManager(ApiImplementation api)
     {
         this.api = api;
         economyManager = new EconomyManager(api);
+        economyLedger = new EconomyLedger(api.getPlugin().getExecutor(), api.getPlugin().getEconomyStore(), api.getPlugin().getDataConfiguration().getLong("economy-flush-interval", 2000L));
+        refreshInterval = api.getPlugin().getDataConfiguration().getLong("playerdata-refresh-interval", 60 * 1000L);
+        cacheExpiry = api.getPlugin().getDataConfiguration().getInt("playerdata-cache-expiry", 300);
     }
 
     public EconomyManager getEconomyManager()
@@ -45,6 +59,71 @@ public class PlayerDataManager implements IPlayerDataManager
         return economyManager;
     }
 
+    public EconomyLedger getEconomyLedger()
+    {
+        return economyLedger;
+    }
+
+    long getRefreshInterval()
+    {
+        return refreshInterval;
+    }
+
+    /**
+     * @return seconds the redis copy of a player data is kept
+     */
+    int getCacheExpiry()
+    {
+        return cacheExpiry;
+    }
+
+    /**
+     * Credits given until the session is committed all go through it
+     *
+     * @return the open session, a new one if there was none
+     */
+    public RewardSession openRewardSession()
+    {
+        RewardSession created = new RewardSession(this, api.getPlugin().getExecutor(), 0);
+        return rewardSession.updateAndGet(session -> session != null ? session : created);
+    }
+
+    public RewardSession getRewardSession()
+    {
+        return rewardSession.get();
+    }
+
+    /**
+     * The database row of a player was written by another service: read it
+     * again if the player is here, else drop the redis copy so the next
+     * server does not load the old one
+     */
+    public void invalidateShared(UUID player)
+    {
+        PlayerData data = cache.get(player);
+
+        if (data != null)
+            data.refreshData();
+        else
+            api.getAsyncBungeeResource().del(PlayerData.key + player).whenComplete(AsyncRedisClient::logFailure);
+    }
+
+    /**
+     * Write the credits a player has pending in the open reward session
+     */
+    public void commitRewards(UUID player)
+    {
+        RewardSession session = rewardSession.get();
+
+        if (session != null)
+            session.commit(player);
+    }
+
+    void closeRewardSession(RewardSession session)
+    {
+        rewardSession.compareAndSet(session, null);
+    }
+
     @Override
     public PlayerData getPlayerData(UUID player)
     {
@@ -75,17 +154,58 @@ public class PlayerDataManager implements IPlayerDataManager
         return data;
     }
 
+    public boolean isLoaded(UUID player)
+    {
+        return cache.containsKey(player);
+    }
+
+    /**
+     * Case-insensitive, real names are looked up before nicknames
+     */
     public PlayerData getPlayerDataByName(String name)
     {
-        for (PlayerData data : cache.values())
-        {
-            if (data.getEffectiveName().equals(name))
-                return data;
-        }
+        String key = name.toLowerCase(Locale.ROOT);
+
+        // Entries may lag behind a rename or an unload, check them against the cached data
+        PlayerData data = getCached(names.get(key));
+
+        if (data != null && name.equalsIgnoreCase(data.getEffectiveName()))
+            return data;
+
+        data = getCached(displayNames.get(key));
+
+        if (data != null && data.hasNickname() && name.equalsIgnoreCase(data.getCustomName()))
+            return data;
 
         return null;
     }
 
+    private PlayerData getCached(UUID player)
+    {
+        return player == null ? null : cache.get(player);
+    }
+
+    /**
+     * Move a player from its previous name to its new one
+     *
+     * @return the new name key
+     */
+    String indexName(UUID player, String previous, String name, boolean display)
+    {
+        Map<String, UUID> index = display ? displayNames : names;
+        String key = name == null ? null : name.toLowerCase(Locale.ROOT);
+
+        if (Objects.equals(previous, key))
+            return key;
+
+        if (previous != null)
+            index.remove(previous, player);
+        if (key != null)
+            index.put(key, player);
+
+        return key;
+    }
+
     public void loadPlayer(UUID player)
     {
         try{
@@ -97,6 +217,19 @@ public class PlayerDataManager implements IPlayerDataManager
         }
     }
 
+    /**
+     * Login of a player whose data was prefetched
+     */
+    public void reloadPlayer(UUID player)
+    {
+        PlayerData data = cache.get(player);
+
+        if (data == null)
+            loadPlayer(player);
+        else
+            data.reloadData();
+    }
+
     public void unloadPlayer(UUID player)
     {
         //Update data before delete
@@ -104,10 +237,28 @@ public class PlayerDataManager implements IPlayerDataManager
             cache.get(player).updateData();*/
         //Continuous update, save here result in data lose for shop
 
+        //Write pending coins before the player is on another server
+        api.getPlugin().getExecutor().execute(() -> {
+            try
+            {
+                commitRewards(player);
+                economyLedger.flush(player);
+            }
+            catch (Exception ignored)
+            {
+                // Already logged, retried by the next flush
+            }
+        });
+
         //Schedule that because of nickname needs
         if (!api.isKeepCache())
         {
-            Bukkit.getScheduler().runTaskLater(api.getPlugin(), () -> cache.remove(player), 2L);
+            Bukkit.getScheduler().runTaskLater(api.getPlugin(), () -> {
+                PlayerData data = cache.remove(player);
+
+                if (data != null)
+                    data.unindexNames();
+            }, 2L);
         }
 
     }
@@ -134,6 +285,13 @@ public class PlayerDataManager implements IPlayerDataManager
 
     public void onShutdown()
     {
+        RewardSession session = rewardSession.get();
+
+        // The executor is already stopped, write on this thread
+        if (session != null)
+            session.commit(Runnable::run);
+
+        economyLedger.flushAll();
         economyManager.onShutdown();
     }
 }
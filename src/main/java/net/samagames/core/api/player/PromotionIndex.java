@@ -0,0 +1,160 @@
+package net.samagames.core.api.player;
+
+import net.samagames.persistanceapi.beans.shop.PromotionsBean;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/*
+ * This file is part of SamaGamesCore.
+ *
+ * SamaGamesCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SamaGamesCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SamaGamesCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * Immutable view of the active promotions. For every (currency type, game)
+ * the timeline is cut at each promotion start and end, and the crossed
+ * multiplier of every slice is computed once.
+ */
+class PromotionIndex
+{
+    static final PromotionIndex EMPTY = new PromotionIndex(Collections.emptyList());
+
+    private static final int ANY = -1;
+    private static final Slice NONE = new Slice(1, Collections.emptyMap());
+
+    private final Map<Long, Timeline> timelines = new HashMap<>();
+
+    PromotionIndex(List<PromotionsBean> promotions)
+    {
+        Set<Integer> types = new LinkedHashSet<>();
+        Set<Integer> games = new LinkedHashSet<>();
+
+        types.add(ANY);
+        games.add(ANY);
+
+        for (PromotionsBean promotion : promotions)
+        {
+            types.add(promotion.getPromotionType());
+            games.add(promotion.getGame());
+        }
+
+        // ANY stands for a type or game no promotion targets, only the global promotions apply to it
+        for (int type : types)
+        {
+            for (int game : games)
+            {
+                List<PromotionsBean> applicable = new ArrayList<>();
+
+                for (PromotionsBean promotion : promotions)
+                    if ((promotion.getPromotionType() == ANY || promotion.getPromotionType() == type)
+                            && (promotion.getGame() == ANY || promotion.getGame() == game))
+                        applicable.add(promotion);
+
+                this.timelines.put(key(type, game), new Timeline(applicable));
+            }
+        }
+    }
+
+    /**
+     * @return a new multiplier, callers are free to cross it
+     */
+    Multiplier getMultiplier(int type, int game, long time)
+    {
+        Timeline timeline = this.timelines.get(key(type, game));
+
+        if (timeline == null)
+            timeline = this.timelines.get(key(type, ANY));
+        if (timeline == null)
+            timeline = this.timelines.get(key(ANY, game));
+        if (timeline == null)
+            timeline = this.timelines.get(key(ANY, ANY));
+
+        Slice slice = timeline.at(time);
+        return new Multiplier(slice.globalAmount, 0, slice.combinedData);
+    }
+
+    private static long key(int type, int game)
+    {
+        return ((long) type << 32) | (game & 0xFFFFFFFFL);
+    }
+
+    private static class Timeline
+    {
+        private final long[] bounds;
+        private final Slice[] slices;
+
+        private Timeline(List<PromotionsBean> promotions)
+        {
+            TreeSet<Long> times = new TreeSet<>();
+
+            for (PromotionsBean promotion : promotions)
+            {
+                times.add(promotion.getStartDate().getTime());
+                times.add(promotion.getEndDate().getTime());
+            }
+
+            this.bounds = times.stream().mapToLong(Long::longValue).toArray();
+            this.slices = new Slice[Math.max(0, this.bounds.length - 1)];
+
+            for (int i = 0; i < this.slices.length; i++)
+            {
+                int globalAmount = 1;
+                Map<String, Integer> combinedData = new HashMap<>();
+
+                for (PromotionsBean promotion : promotions)
+                {
+                    if (promotion.getStartDate().getTime() > this.bounds[i] || promotion.getEndDate().getTime() < this.bounds[i + 1])
+                        continue;
+
+                    // Same as crossing a Multiplier per promotion
+                    int amount = Math.max(1, promotion.getMultiplier());
+                    globalAmount *= amount;
+                    combinedData.put(promotion.getMessage(), amount);
+                }
+
+                this.slices[i] = globalAmount == 1 && combinedData.isEmpty() ? NONE : new Slice(globalAmount, combinedData);
+            }
+        }
+
+        private Slice at(long time)
+        {
+            int index = Arrays.binarySearch(this.bounds, time);
+
+            if (index < 0)
+                index = -index - 2;
+
+            return index >= 0 && index < this.slices.length ? this.slices[index] : NONE;
+        }
+    }
+
+    private static class Slice
+    {
+        private final int globalAmount;
+        private final Map<String, Integer> combinedData;
+
+        private Slice(int globalAmount, Map<String, Integer> combinedData)
+        {
+            this.globalAmount = globalAmount;
+            this.combinedData = combinedData;
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package net.samagames.core.api.player;
+
+import net.samagames.api.player.IFinancialCallback;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * This file is part of SamaGamesCore.
+ *
+ * SamaGamesCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SamaGamesCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SamaGamesCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * Collects every credit given while it is open (typically at the end of
+ * a game) and commits them together: multipliers are computed once per
+ * player, every balance is written in one transaction and each player
+ * gets a single message.
+ */
+public class RewardSession
+{
+    private final PlayerDataManager manager;
+    private final ScheduledExecutorService executor;
+    private final int game;
+    private final Map<UUID, List<Credit>> credits = new LinkedHashMap<>();
+    private final Map<UUID, PlayerData> players = new HashMap<>();
+    private boolean closed;
+    private ScheduledFuture<?> scheduledCommit;
+
+    RewardSession(PlayerDataManager manager, ScheduledExecutorService executor, int game)
+    {
+        this.manager = manager;
+        this.executor = executor;
+        this.game = game;
+    }
+
+    /**
+     * @return false if the session is already committed, the credit must then be given on its own
+     */
+    public synchronized boolean credit(PlayerData data, int type, long amount, String reason, boolean applyMultiplier, IFinancialCallback callback)
+    {
+        if (this.closed)
+            return false;
+
+        this.players.put(data.getPlayerID(), data);
+        this.credits.computeIfAbsent(data.getPlayerID(), key -> new ArrayList<>()).add(new Credit(type, amount, reason, applyMultiplier, callback));
+        return true;
+    }
+
+    /**
+     * Commit the session once the delay is over, or earlier on shutdown
+     */
+    public synchronized void commitAfter(long delay)
+    {
+        if (this.closed)
+            return;
+
+        try
+        {
+            this.scheduledCommit = this.executor.schedule(this::commit, delay, TimeUnit.MILLISECONDS);
+        }
+        catch (RejectedExecutionException e)
+        {
+            // Shutting down, the session is committed by PlayerDataManager.onShutdown
+        }
+    }
+
+    /**
+     * Close the session and write every player balance
+     *
+     * @return completed once the balances are written (or failed, the ledger then keeps the changes)
+     */
+    public CompletableFuture<Void> commit()
+    {
+        return this.commit(this.executor);
+    }
+
+    CompletableFuture<Void> commit(Executor executor)
+    {
+        Map<UUID, List<Credit>> credits;
+        Map<UUID, PlayerData> players;
+
+        synchronized (this)
+        {
+            if (this.closed)
+                return CompletableFuture.completedFuture(null);
+
+            this.closed = true;
+            credits = new LinkedHashMap<>(this.credits);
+            players = new HashMap<>(this.players);
+
+            this.credits.clear();
+            this.players.clear();
+
+            if (this.scheduledCommit != null)
+                this.scheduledCommit.cancel(false);
+        }
+
+        this.manager.closeRewardSession(this);
+
+        Runnable reward = () -> this.reward(credits, players);
+
+        try
+        {
+            return CompletableFuture.runAsync(reward, executor);
+        }
+        catch (RejectedExecutionException e)
+        {
+            // The executor is stopping, the credits must not be lost with it
+            reward.run();
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    /**
+     * Write now the credits of a player leaving the server, so that they
+     * are saved before the next server loads it
+     */
+    public void commit(UUID player)
+    {
+        List<Credit> credits;
+        PlayerData data;
+
+        synchronized (this)
+        {
+            credits = this.credits.remove(player);
+            data = this.players.remove(player);
+        }
+
+        if (credits != null)
+            this.reward(Collections.singletonMap(player, credits), Collections.singletonMap(player, data));
+    }
+
+    /**
+     * Journal the credits of every player and write them all in one transaction
+     */
+    private void reward(Map<UUID, List<Credit>> credits, Map<UUID, PlayerData> players)
+    {
+        for (Map.Entry<UUID, List<Credit>> entry : credits.entrySet())
+        {
+            try
+            {
+                this.reward(players.get(entry.getKey()), entry.getValue());
+            }
+            catch (Exception e)
+            {
+                e.printStackTrace();
+            }
+        }
+
+        try
+        {
+            this.manager.getEconomyLedger().flush(credits.keySet());
+        }
+        catch (Exception ignored)
+        {
+            // Already logged, retried by the next flush
+        }
+    }
+
+    /**
+     * Apply the multipliers, journal the credits and send the summary message
+     */
+    private void reward(PlayerData data, List<Credit> credits)
+    {
+        EconomyManager economy = this.manager.getEconomyManager();
+        EconomyLedger ledger = this.manager.getEconomyLedger();
+
+        // [type][with group multiplier]
+        Multiplier[][] multipliers = new Multiplier[3][2];
+        Multiplier group = null;
+        Map<String, Line> lines = new LinkedHashMap<>();
+
+        for (Credit credit : credits)
+        {
+            int grouped = credit.applyMultiplier ? 1 : 0;
+
+            if (multipliers[credit.type][grouped] == null)
+            {
+                Multiplier multiplier = economy.getPromotionMultiplier(credit.type, this.game);
+
+                if (credit.applyMultiplier)
+                {
+                    if (group == null)
+                        group = economy.getGroupMultiplier(data.getPlayerID());
+
+                    multiplier.cross(group);
+                }
+
+                multipliers[credit.type][grouped] = multiplier;
+            }
+
+            Multiplier multiplier = multipliers[credit.type][grouped];
+            long amount = credit.amount * multiplier.getGlobalAmount();
+
+            ledger.append(data, credit.type, amount, credit.callback);
+
+            // Same reason credited several times is shown once with the sum
+            if (credit.reason != null)
+                lines.computeIfAbsent(credit.type + ":" + grouped + ":" + credit.reason, key -> new Line(credit.type, credit.reason, multiplier)).amount += amount;
+        }
+
+        if (!lines.isEmpty())
+        {
+            StringBuilder message = new StringBuilder();
+
+            for (Line line : lines.values())
+            {
+                if (message.length() > 0)
+                    message.append('\n');
+
+                message.append(economy.getCreditMessage(line.amount, line.type, line.reason, line.multiplier));
+            }
+
+            Player player = Bukkit.getPlayer(data.getPlayerID());
+
+            if (player != null)
+                player.sendMessage(message.toString());
+        }
+    }
+
+    private static class Credit
+    {
+        private final int type;
+        private final long amount;
+        private final String reason;
+        private final boolean applyMultiplier;
+        private final IFinancialCallback callback;
+
+        private Credit(int type, long amount, String reason, boolean applyMultiplier, IFinancialCallback callback)
+        {
+            this.type = type;
+            this.amount = amount;
+            this.reason = reason;
+            this.applyMultiplier = applyMultiplier;
+            this.callback = callback;
+        }
+    }
+
+    private static class Line
+    {
+        private final int type;
+        private final String reason;
+        private final Multiplier multiplier;
+        private long amount;
+
+        private Line(int type, String reason, Multiplier multiplier)
+        {
+            this.type = type;
+            this.reason = reason;
+            this.multiplier = multiplier;
+        }
+    }
+}
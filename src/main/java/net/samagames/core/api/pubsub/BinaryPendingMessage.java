@@ -0,0 +1,40 @@
+package net.samagames.core.api.pubsub;
+
+import net.samagames.api.pubsub.PendingMessage;
+
+/*
+ * This file is part of SamaGamesCore.
+ *
+ * SamaGamesCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SamaGamesCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SamaGamesCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * Message published as raw bytes, the string message is left empty
+ */
+public class BinaryPendingMessage extends PendingMessage
+{
+    private final byte[] payload;
+
+    public BinaryPendingMessage(String channel, byte[] payload)
+    {
+        super(channel, null);
+
+        this.payload = payload;
+    }
+
+    public byte[] getPayload()
+    {
+        return this.payload;
+    }
+}
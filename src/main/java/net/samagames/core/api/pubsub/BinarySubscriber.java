@@ -0,0 +1,110 @@
+package net.samagames.core.api.pubsub;
+
+import redis.clients.jedis.BinaryJedisPubSub;
+import redis.clients.util.SafeEncoder;
+
+import java.util.Arrays;
+import java.util.Set;
+
+/*
+ * This file is part of SamaGamesCore.
+ *
+ * SamaGamesCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SamaGamesCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SamaGamesCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * Same as {@link Subscriber} for binary-safe channels
+ */
+class BinarySubscriber extends BinaryJedisPubSub
+{
+    private final SubscriptionRegistry<IBinaryReceiver> receivers;
+    private final ChannelDispatcher dispatcher;
+
+    public BinarySubscriber(ChannelDispatcher dispatcher)
+    {
+        this.dispatcher = dispatcher;
+
+        this.receivers = new SubscriptionRegistry<>(dispatcher, new SubscriptionRegistry.Connection()
+        {
+            @Override
+            public boolean isSubscribed()
+            {
+                return BinarySubscriber.this.isSubscribed();
+            }
+
+            @Override
+            public void subscribe(String key)
+            {
+                BinarySubscriber.this.subscribe(SafeEncoder.encode(key));
+            }
+
+            @Override
+            public void unsubscribe(String key)
+            {
+                BinarySubscriber.this.unsubscribe(SafeEncoder.encode(key));
+            }
+        });
+    }
+
+    public void registerReceiver(String channel, IBinaryReceiver receiver)
+    {
+        receivers.register(channel, receiver);
+    }
+
+    public void unregisterReceiver(String channel, IBinaryReceiver receiver)
+    {
+        receivers.unregister(channel, receiver);
+    }
+
+    /**
+     * @see SubscriptionRegistry#awaitSubscriptions()
+     */
+    public byte[][] awaitSubscriptions()
+    {
+        String[] channels = receivers.awaitSubscriptions();
+
+        if (channels == null)
+            return null;
+
+        return Arrays.stream(channels).map(SafeEncoder::encode).toArray(byte[][]::new);
+    }
+
+    public void connectionClosed()
+    {
+        receivers.connectionClosed();
+    }
+
+    public void wakeUp()
+    {
+        receivers.wakeUp();
+    }
+
+    @Override
+    public void onSubscribe(byte[] channel, int subscribedChannels)
+    {
+        receivers.synchronize();
+    }
+
+    @Override
+    public void onMessage(byte[] channel, byte[] message)
+    {
+        String name = SafeEncoder.encode(channel);
+        Set<IBinaryReceiver> channelReceivers = receivers.get(name);
+
+        if (channelReceivers == null)
+            return;
+
+        dispatcher.dispatch(name, channelReceivers, receiver -> receiver.receive(name, message));
+    }
+}
@@ -0,0 +1,186 @@
+package net.samagames.core.api.pubsub;
+
+import net.samagames.core.utils.LatencyHistogram;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/*
+ * This file is part of SamaGamesCore.
+ *
+ * SamaGamesCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SamaGamesCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SamaGamesCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * Runs received messages on a worker pool: messages of a channel (or
+ * pattern) run one after the other, in the order redis sent them, and
+ * different channels run in parallel.
+ *
+ * A channel has at most one task in the pool. When its queue is full
+ * the subscriber thread waits, redis then buffers for us.
+ */
+class ChannelDispatcher
+{
+    private final Executor executor;
+    private final int capacity;
+    private final ConcurrentHashMap<String, ChannelQueue> channelQueues = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LatencyHistogram> handlerTimes = new ConcurrentHashMap<>();
+    private final AtomicLong dropped = new AtomicLong();
+
+    public ChannelDispatcher(Executor executor, int capacity)
+    {
+        this.executor = executor;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Queue a message for every receiver, waiting for room when the channel is behind
+     *
+     * @param channel subscribed channel or pattern, the order is kept and the handler time recorded for it
+     */
+    public <T> void dispatch(String channel, Collection<T> receivers, Consumer<T> delivery)
+    {
+        ChannelQueue queue = channelQueues.computeIfAbsent(channel, key -> new ChannelQueue());
+
+        Runnable handler = () ->
+        {
+            // A failing receiver does not keep the message from the others
+            for (T receiver : receivers)
+            {
+                try
+                {
+                    delivery.accept(receiver);
+                } catch (Exception e)
+                {
+                    e.printStackTrace();
+                }
+            }
+        };
+
+        try
+        {
+            queue.tasks.put(timed(channel, handler));
+        } catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        queue.schedule();
+    }
+
+    /**
+     * Queue a message only if the channel has room, for listeners that
+     * must not hold the subscriber thread (e.g. the debug listener)
+     */
+    public void offer(String channel, Runnable handler)
+    {
+        ChannelQueue queue = channelQueues.computeIfAbsent(channel, key -> new ChannelQueue());
+
+        if (queue.tasks.offer(timed(channel, handler)))
+            queue.schedule();
+        else
+            dropped.incrementAndGet();
+    }
+
+    private Runnable timed(String channel, Runnable handler)
+    {
+        LatencyHistogram histogram = handlerTimes.computeIfAbsent(channel, key -> new LatencyHistogram());
+
+        return () ->
+        {
+            long start = System.nanoTime();
+
+            try
+            {
+                handler.run();
+            } catch (Exception ignored)
+            {
+                ignored.printStackTrace();
+            }
+
+            histogram.record(System.nanoTime() - start);
+        };
+    }
+
+    /**
+     * Forget a channel or pattern no longer subscribed, its queued messages still run
+     */
+    public void forget(String channel)
+    {
+        channelQueues.remove(channel);
+        handlerTimes.remove(channel);
+    }
+
+    public Map<String, LatencyHistogram> getHandlerTimes()
+    {
+        return handlerTimes;
+    }
+
+    /**
+     * Messages dropped by {@link #offer(String, Runnable)}
+     */
+    public long getDroppedCount()
+    {
+        return dropped.get();
+    }
+
+    int getChannelCount()
+    {
+        return channelQueues.size();
+    }
+
+    private class ChannelQueue implements Runnable
+    {
+        private final ArrayBlockingQueue<Runnable> tasks = new ArrayBlockingQueue<>(capacity);
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        private void schedule()
+        {
+            if (!draining.compareAndSet(false, true))
+                return;
+
+            try
+            {
+                executor.execute(this);
+            } catch (RejectedExecutionException e)
+            {
+                // Shutting down, the queued messages are dropped
+                draining.set(false);
+            }
+        }
+
+        @Override
+        public void run()
+        {
+            Runnable task;
+
+            while ((task = tasks.poll()) != null)
+                task.run();
+
+            draining.set(false);
+
+            // A message may have been queued between the last poll and the reset
+            if (!tasks.isEmpty())
+                schedule();
+        }
+    }
+}
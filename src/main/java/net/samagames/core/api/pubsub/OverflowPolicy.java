@@ -0,0 +1,31 @@
+package net.samagames.core.api.pubsub;
+
+/*
+ * This file is part of SamaGamesCore.
+ *
+ * SamaGamesCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SamaGamesCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SamaGamesCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * What the publisher does with a new message when its queue is full
+ */
+public enum OverflowPolicy
+{
+    /** Wait for room, up to the configured block timeout (never on the main thread), then drop the new message */
+    BLOCK,
+    /** Drop the oldest queued snapshot (message sent with a coalescing key), or block like {@link #BLOCK} */
+    DROP_OLDEST,
+    /** Replace the queued message with the same coalescing key, or block like {@link #BLOCK} */
+    COALESCE
+}
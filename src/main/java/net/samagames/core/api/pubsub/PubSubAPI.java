@@ -1,9 +1,19 @@
 package net.samagames.core.api.pubsub;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import net.samagames.api.pubsub.*;
 import net.samagames.core.ApiImplementation;
+import net.samagames.core.utils.LatencyHistogram;
+import org.bukkit.configuration.file.YamlConfiguration;
 import redis.clients.jedis.Jedis;
 
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
 /*
  * This file is part of SamaGamesCore.
  *
@@ -25,8 +35,11 @@ public class PubSubAPI implements IPubSubAPI
 
     private Subscriber subscriberPattern;
     private Subscriber subscriberChannel;
+    private BinarySubscriber subscriberBinary;
 
     private Sender sender;
+    private ThreadPoolExecutor dispatchPool;
+    private ChannelDispatcher dispatcher;
     private ApiImplementation api;
 
     boolean working = true;
@@ -34,15 +47,35 @@ public class PubSubAPI implements IPubSubAPI
     private Thread senderThread;
     private Thread patternThread;
     private Thread channelThread;
+    private Thread binaryThread;
 
     // Avoid to init Threads before the subclass constructor is started (Fix possible atomicity violation)
     public PubSubAPI(ApiImplementation api)
     {
         this.api = api;
-        subscriberPattern = new Subscriber();
-        subscriberChannel = new Subscriber();
 
-        sender = new Sender(api);
+        YamlConfiguration configuration = api.getPlugin().getDataConfiguration();
+
+        // The pool queue holds at most one task per channel, the bound (backpressure) is on each channel queue.
+        // No caller-runs fallback: a handler must never run on the subscriber thread, out of its channel order.
+        int dispatchThreads = configuration.getInt("pubsub-dispatch-threads", 4);
+        int dispatchQueue = configuration.getInt("pubsub-dispatch-queue", 1000);
+        dispatchPool = new ThreadPoolExecutor(dispatchThreads, dispatchThreads, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                new ThreadFactoryBuilder().setNameFormat("PubSubDispatch-%d").setDaemon(true).build());
+        dispatcher = new ChannelDispatcher(dispatchPool, dispatchQueue);
+
+        subscriberPattern = new Subscriber(dispatcher, true);
+        subscriberChannel = new Subscriber(dispatcher, false);
+        subscriberBinary = new BinarySubscriber(dispatcher);
+
+        int capacity = configuration.getInt("pubsub-queue-capacity", 10000);
+        OverflowPolicy policy = OverflowPolicy.valueOf(configuration.getString("pubsub-overflow-policy", "BLOCK").toUpperCase());
+        int batchSize = configuration.getInt("pubsub-batch-size", 256);
+        long blockTimeout = configuration.getLong("pubsub-block-timeout", 50L);
+        long coalesceInterval = configuration.getLong("pubsub-coalesce-interval", 1000L);
+
+        sender = new Sender(api, capacity, policy, batchSize, blockTimeout, coalesceInterval);
         senderThread = new Thread(sender, "SenderThread");
         senderThread.start();
 
@@ -51,57 +84,85 @@ public class PubSubAPI implements IPubSubAPI
 
     private void startThread()
     {
-        patternThread = new Thread(() -> {
-            while (working)
-            {
-                Jedis jedis = api.getBungeeResource();
-                try
-                {
-                    String[] patternsSuscribed = subscriberPattern.getPatternsSuscribed();
-                    if(patternsSuscribed.length > 0)
-                        jedis.psubscribe(subscriberPattern, patternsSuscribed);
-                } catch (Exception e)
-                {
-                    e.printStackTrace();
-                }
-                jedis.close();
-            }
-        });
+        patternThread = new Thread(() -> subscribeLoop(subscriberPattern::awaitSubscriptions, (jedis, patterns) -> jedis.psubscribe(subscriberPattern, patterns), subscriberPattern::connectionClosed), "PatternSubscriberThread");
         patternThread.start();
 
-        channelThread = new Thread(() -> {
-            while (working)
+        channelThread = new Thread(() -> subscribeLoop(subscriberChannel::awaitSubscriptions, (jedis, channels) -> jedis.subscribe(subscriberChannel, channels), subscriberChannel::connectionClosed), "ChannelSubscriberThread");
+        channelThread.start();
+
+        binaryThread = new Thread(() -> subscribeLoop(subscriberBinary::awaitSubscriptions, (jedis, channels) -> jedis.subscribe(subscriberBinary, channels), subscriberBinary::connectionClosed), "BinarySubscriberThread");
+        binaryThread.start();
+    }
+
+    /**
+     * Hold one subscription connection, channels are then added and removed on it.
+     * It is only reopened when redis drops it.
+     */
+    private <T> void subscribeLoop(Supplier<T> awaitSubscriptions, BiConsumer<Jedis, T> subscribe, Runnable connectionClosed)
+    {
+        while (working)
+        {
+            T subscriptions = awaitSubscriptions.get();
+
+            if (subscriptions == null || !working)
+                continue;
+
+            try (Jedis jedis = api.getBungeeResource())
             {
-                Jedis jedis = api.getBungeeResource();
+                subscribe.accept(jedis, subscriptions);
+            } catch (Exception e)
+            {
+                e.printStackTrace();
+
                 try
                 {
-                    String[] channelsSuscribed = subscriberChannel.getChannelsSuscribed();
-                    if (channelsSuscribed.length > 0)
-                        jedis.subscribe(subscriberChannel, channelsSuscribed);
-                } catch (Exception e)
+                    Thread.sleep(1000);
+                } catch (InterruptedException ignored)
                 {
-                    e.printStackTrace();
                 }
-                jedis.close();
+            } finally
+            {
+                connectionClosed.run();
             }
-        });
-        channelThread.start();
+        }
     }
 
     @Override
     public void subscribe(String channel, IPacketsReceiver receiver)
     {
         subscriberChannel.registerReceiver(channel, receiver);
-        if(subscriberChannel.isSubscribed())
-            subscriberChannel.unsubscribe();
     }
 
     @Override
     public void subscribe(String pattern, IPatternReceiver receiver)
     {
         subscriberPattern.registerPattern(pattern, receiver);
-        if(subscriberPattern.isSubscribed())
-            subscriberPattern.punsubscribe();
+    }
+
+    /**
+     * Remove a receiver, the channel is unsubscribed once it has none left
+     */
+    public void unsubscribe(String channel, IPacketsReceiver receiver)
+    {
+        subscriberChannel.unregisterReceiver(channel, receiver);
+    }
+
+    public void unsubscribe(String pattern, IPatternReceiver receiver)
+    {
+        subscriberPattern.unregisterPattern(pattern, receiver);
+    }
+
+    /**
+     * Subscribe to a channel carrying raw bytes (see {@link BinaryPendingMessage})
+     */
+    public void subscribe(String channel, IBinaryReceiver receiver)
+    {
+        subscriberBinary.registerReceiver(channel, receiver);
+    }
+
+    public void unsubscribe(String channel, IBinaryReceiver receiver)
+    {
+        subscriberBinary.unregisterReceiver(channel, receiver);
     }
 
     @Override
@@ -116,17 +177,84 @@ public class PubSubAPI implements IPubSubAPI
         sender.publish(message);
     }
 
+    /**
+     * Send a message that replaces any unsent one with the same key,
+     * for idempotent snapshots like server status
+     */
+    public void sendCoalesced(String key, String channel, String message)
+    {
+        sender.publishCoalesced(key, new PendingMessage(channel, message));
+    }
+
+    public void sendCoalesced(String key, PendingMessage message)
+    {
+        sender.publishCoalesced(key, message);
+    }
+
     @Override
     public ISender getSender()
     {
         return sender;
     }
 
+    public int getQueueDepth()
+    {
+        return sender.getQueueDepth();
+    }
+
+    public long getPublishedCount()
+    {
+        return sender.getPublishedCount();
+    }
+
+    public long getDroppedCount()
+    {
+        return sender.getDroppedCount();
+    }
+
+    /**
+     * Received messages the debug listener skipped because their channel was behind
+     */
+    public long getDebugDroppedCount()
+    {
+        return dispatcher.getDroppedCount();
+    }
+
+    public long getFailedBatches()
+    {
+        return sender.getFailedBatches();
+    }
+
+    public long getCoalescedCount()
+    {
+        return sender.getCoalescedCount();
+    }
+
+    public LatencyHistogram getPublishLatency()
+    {
+        return sender.getPublishLatency();
+    }
+
+    /**
+     * Receivers run time, per channel and per pattern
+     */
+    public Map<String, LatencyHistogram> getHandlerTimes()
+    {
+        return dispatcher.getHandlerTimes();
+    }
+
     public void disable()
     {
         working = false;
-        subscriberChannel.unsubscribe();
-        subscriberPattern.punsubscribe();
+        if (subscriberChannel.isSubscribed())
+            subscriberChannel.unsubscribe();
+        if (subscriberPattern.isSubscribed())
+            subscriberPattern.punsubscribe();
+        if (subscriberBinary.isSubscribed())
+            subscriberBinary.unsubscribe();
+        subscriberChannel.wakeUp();
+        subscriberPattern.wakeUp();
+        subscriberBinary.wakeUp();
         try
         {
             Thread.sleep(500);
@@ -134,8 +262,17 @@ public class PubSubAPI implements IPubSubAPI
         {
         }
 
-        senderThread.stop();
+        sender.shutdown(senderThread);
         patternThread.stop();
         channelThread.stop();
+        binaryThread.stop();
+
+        dispatchPool.shutdown();
+        try
+        {
+            dispatchPool.awaitTermination(2, TimeUnit.SECONDS);
+        } catch (InterruptedException ignored)
+        {
+        }
     }
 }
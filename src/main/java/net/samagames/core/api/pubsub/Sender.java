@@ -4,9 +4,20 @@ import net.samagames.api.pubsub.ISender;
 import net.samagames.api.pubsub.PendingMessage;
 import net.samagames.core.APIPlugin;
 import net.samagames.core.ApiImplementation;
+import net.samagames.core.utils.LatencyHistogram;
+import org.bukkit.Bukkit;
 import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.util.SafeEncoder;
 
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
 
 /*
  * This file is part of SamaGamesCore.
@@ -26,70 +37,320 @@ import java.util.concurrent.LinkedBlockingQueue;
  */
 class Sender implements Runnable, ISender
 {
+    private static final long MIN_BACKOFF = 100L;
+    private static final long MAX_BACKOFF = 5000L;
+    private static final long DROP_WARNING_INTERVAL = 10000L;
 
-    private final LinkedBlockingQueue<PendingMessage> pendingMessages = new LinkedBlockingQueue<>();
     private final ApiImplementation connector;
-    private Jedis jedis;
+    private final ArrayBlockingQueue<QueuedMessage> pendingMessages;
+    private final OverflowPolicy policy;
+    private final int batchSize;
+    private final long blockTimeout;
+    private final long coalesceInterval;
+    private final ConcurrentHashMap<String, CoalescedSlot> coalescedSlots = new ConcurrentHashMap<>();
 
-    public Sender(ApiImplementation connector)
+    private final LatencyHistogram publishLatency = new LatencyHistogram();
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong lastDropWarning = new AtomicLong();
+
+    private volatile boolean running = true;
+
+    public Sender(ApiImplementation connector, int capacity, OverflowPolicy policy, int batchSize, long blockTimeout, long coalesceInterval)
     {
         this.connector = connector;
+        this.pendingMessages = new ArrayBlockingQueue<>(capacity);
+        this.policy = policy;
+        this.batchSize = batchSize;
+        this.blockTimeout = blockTimeout;
+        this.coalesceInterval = coalesceInterval;
+    }
+
+    /**
+     * Latest value wins: a message replaces the unsent one with the same key,
+     * and a key is emitted at most once per coalesce interval
+     */
+    public void publishCoalesced(String key, PendingMessage message)
+    {
+        CoalescedSlot slot = coalescedSlots.computeIfAbsent(key, k -> new CoalescedSlot());
+        long delay;
+
+        synchronized (slot)
+        {
+            if (slot.latest != null)
+                coalesced.incrementAndGet();
+
+            slot.latest = message;
+
+            if (slot.scheduled)
+                return;
+
+            slot.scheduled = true;
+            delay = Math.max(0L, slot.lastEmit + coalesceInterval - System.currentTimeMillis());
+        }
+
+        if (delay > 0L)
+        {
+            try
+            {
+                connector.getPlugin().getExecutor().schedule(() -> emit(key, slot), delay, TimeUnit.MILLISECONDS);
+                return;
+            } catch (RejectedExecutionException e)
+            {
+                // Shutting down, the last value (e.g. final server status) must still go out
+            }
+        }
+
+        emit(key, slot);
+    }
+
+    private void emit(String key, CoalescedSlot slot)
+    {
+        PendingMessage message;
+
+        synchronized (slot)
+        {
+            message = slot.latest;
+            slot.latest = null;
+            slot.scheduled = false;
+            slot.lastEmit = System.currentTimeMillis();
+        }
+
+        if (message != null)
+            publish(message, key);
     }
 
     public void publish(PendingMessage message)
     {
-        pendingMessages.add(message);
+        publish(message, null);
     }
 
-    @Override
-    public void run()
+    private void publish(PendingMessage message, String key)
     {
-        fixDatabase();
-        while (true)
+        if (!running)
+        {
+            dropped(message, "the publisher is shut down");
+            return;
+        }
+
+        QueuedMessage queued = new QueuedMessage(message, key);
+
+        if (pendingMessages.offer(queued))
+            return;
+
+        // Only a snapshot sent with a key can be superseded or evicted, anything else is a command
+        if (policy == OverflowPolicy.COALESCE && key != null && evict(key) && pendingMessages.offer(queued))
+            return;
+        if (policy == OverflowPolicy.DROP_OLDEST && evict(null) && pendingMessages.offer(queued))
+            return;
+
+        // The main thread is never parked, the message is dropped at once
+        if (!Bukkit.isPrimaryThread())
         {
-            PendingMessage message;
             try
             {
-                message = pendingMessages.take();
+                if (pendingMessages.offer(queued, blockTimeout, TimeUnit.MILLISECONDS))
+                    return;
             } catch (InterruptedException e)
             {
-                e.printStackTrace();
-                jedis.close();
-                return;
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        dropped(message, "the queue is full");
+    }
+
+    /**
+     * Remove the oldest queued snapshot with this key, or with any key when null
+     */
+    private boolean evict(String key)
+    {
+        for (QueuedMessage pending : pendingMessages)
+        {
+            if (pending.key != null && (key == null || key.equals(pending.key)) && pendingMessages.remove(pending))
+            {
+                if (key != null)
+                    coalesced.incrementAndGet();
+                else
+                    dropped.incrementAndGet();
+
+                return true;
             }
+        }
+
+        return false;
+    }
 
-            boolean published = false;
-            while (!published)
+    private void dropped(PendingMessage message, String reason)
+    {
+        dropped.incrementAndGet();
+
+        long now = System.currentTimeMillis();
+        long last = lastDropWarning.get();
+
+        if (now - last >= DROP_WARNING_INTERVAL && lastDropWarning.compareAndSet(last, now))
+            APIPlugin.getInstance().getLogger().warning("[Publisher] Dropped a message on " + message.getChannel() + ", " + reason + " (" + dropped.get() + " dropped so far).");
+    }
+
+    @Override
+    public void run()
+    {
+        List<QueuedMessage> batch = new ArrayList<>(batchSize);
+        long backoff = MIN_BACKOFF;
+
+        while (running || !pendingMessages.isEmpty())
+        {
+            if (batch.isEmpty())
             {
                 try
                 {
-                    jedis.publish(message.getChannel(), message.getMessage());
-                    message.runAfter();
-                    published = true;
-                } catch (Exception e)
+                    batch.add(pendingMessages.take());
+                } catch (InterruptedException e)
                 {
-                    fixDatabase();
+                    // Shutting down, flush what is left then leave
+                    if (!running)
+                        continue;
+                    return;
                 }
+
+                pendingMessages.drainTo(batch, batchSize - 1);
             }
+
+            if (flush(batch))
+            {
+                batch.clear();
+                backoff = MIN_BACKOFF;
+                continue;
+            }
+
+            if (!running)
+                return;
+
+            APIPlugin.getInstance().getLogger().severe("[Publisher] Cannot publish to redis server. Retrying in " + backoff + "ms.");
+
+            try
+            {
+                Thread.sleep(backoff);
+            } catch (InterruptedException e)
+            {
+                // Woken up by shutdown, last try on the next loop
+            }
+
+            backoff = Math.min(backoff * 2, MAX_BACKOFF);
         }
     }
 
-    private void fixDatabase()
+    private boolean flush(List<QueuedMessage> batch)
     {
-        try
+        try (Jedis jedis = connector.getBungeeResource())
         {
-            jedis = connector.getBungeeResource();
+            Pipeline pipeline = jedis.pipelined();
+
+            for (QueuedMessage queued : batch)
+            {
+                if (queued.message instanceof BinaryPendingMessage)
+                    pipeline.publish(SafeEncoder.encode(queued.message.getChannel()), ((BinaryPendingMessage) queued.message).getPayload());
+                else
+                    pipeline.publish(queued.message.getChannel(), queued.message.getMessage());
+            }
+
+            pipeline.sync();
         } catch (Exception e)
         {
-            APIPlugin.getInstance().getLogger().severe("[Publisher] Cannot connect to redis server : " + e.getMessage() + ". Retrying in 5 seconds.");
+            failures.incrementAndGet();
+            APIPlugin.getInstance().getLogger().log(Level.FINE, "[Publisher] Batch failed", e);
+            return false;
+        }
+
+        long now = System.nanoTime();
+        published.addAndGet(batch.size());
+
+        for (QueuedMessage queued : batch)
+        {
+            publishLatency.record(now - queued.queuedAt);
+
             try
             {
-                Thread.sleep(5000);
-                fixDatabase();
-            } catch (InterruptedException e1)
+                queued.message.runAfter();
+            } catch (Exception e)
             {
-                e1.printStackTrace();
+                e.printStackTrace();
             }
         }
+
+        return true;
+    }
+
+    /**
+     * Stop accepting work (later messages are dropped) and flush the queued messages once
+     */
+    public void shutdown(Thread thread)
+    {
+        running = false;
+        thread.interrupt();
+
+        try
+        {
+            thread.join(2000L);
+        } catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int getQueueDepth()
+    {
+        return pendingMessages.size();
+    }
+
+    public long getPublishedCount()
+    {
+        return published.get();
+    }
+
+    public long getDroppedCount()
+    {
+        return dropped.get();
+    }
+
+    public long getFailedBatches()
+    {
+        return failures.get();
+    }
+
+    public long getCoalescedCount()
+    {
+        return coalesced.get();
+    }
+
+    /**
+     * Time between a message being queued and redis acknowledging it
+     */
+    public LatencyHistogram getPublishLatency()
+    {
+        return publishLatency;
+    }
+
+    private static class CoalescedSlot
+    {
+        private PendingMessage latest;
+        private boolean scheduled;
+        private long lastEmit;
+    }
+
+    private static class QueuedMessage
+    {
+        private final PendingMessage message;
+        private final String key;
+        private final long queuedAt;
+
+        private QueuedMessage(PendingMessage message, String key)
+        {
+            this.message = message;
+            this.key = key;
+            this.queuedAt = System.nanoTime();
+        }
     }
 }
@@ -5,8 +5,6 @@ import net.samagames.api.pubsub.IPatternReceiver;
 import net.samagames.core.APIPlugin;
 import redis.clients.jedis.JedisPubSub;
 
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Set;
 import java.util.logging.Level;
 
@@ -28,74 +26,149 @@ import java.util.logging.Level;
  */
 class Subscriber extends JedisPubSub
 {
+    private final SubscriptionRegistry<IPacketsReceiver> packetsReceivers;
+    private final SubscriptionRegistry<IPatternReceiver> patternsReceivers;
 
-    private final HashMap<String, HashSet<IPacketsReceiver>> packetsReceivers = new HashMap<>();
-    private final HashMap<String, HashSet<IPatternReceiver>> patternsReceivers = new HashMap<>();
+    private final ChannelDispatcher dispatcher;
+    private final boolean patterns;
+
+    public Subscriber(ChannelDispatcher dispatcher, boolean patterns)
+    {
+        this.dispatcher = dispatcher;
+        this.patterns = patterns;
+
+        this.packetsReceivers = new SubscriptionRegistry<>(dispatcher, new SubscriptionRegistry.Connection()
+        {
+            @Override
+            public boolean isSubscribed()
+            {
+                return Subscriber.this.isSubscribed();
+            }
+
+            @Override
+            public void subscribe(String key)
+            {
+                Subscriber.this.subscribe(key);
+            }
+
+            @Override
+            public void unsubscribe(String key)
+            {
+                Subscriber.this.unsubscribe(key);
+            }
+        });
+
+        this.patternsReceivers = new SubscriptionRegistry<>(dispatcher, new SubscriptionRegistry.Connection()
+        {
+            @Override
+            public boolean isSubscribed()
+            {
+                return Subscriber.this.isSubscribed();
+            }
+
+            @Override
+            public void subscribe(String key)
+            {
+                Subscriber.this.psubscribe(key);
+            }
+
+            @Override
+            public void unsubscribe(String key)
+            {
+                Subscriber.this.punsubscribe(key);
+            }
+        });
+    }
 
     public void registerReceiver(String channel, IPacketsReceiver receiver)
     {
-        HashSet<IPacketsReceiver> receivers = packetsReceivers.get(channel);
-        if (receivers == null)
-            receivers = new HashSet<>();
-        receivers.add(receiver);
-        packetsReceivers.put(channel, receivers);
+        packetsReceivers.register(channel, receiver);
     }
 
     public void registerPattern(String pattern, IPatternReceiver receiver)
     {
-        HashSet<IPatternReceiver> receivers = patternsReceivers.get(pattern);
-        if (receivers == null)
-            receivers = new HashSet<>();
-        receivers.add(receiver);
-        patternsReceivers.put(pattern, receivers);
+        patternsReceivers.register(pattern, receiver);
+    }
+
+    public void unregisterReceiver(String channel, IPacketsReceiver receiver)
+    {
+        packetsReceivers.unregister(channel, receiver);
+    }
+
+    public void unregisterPattern(String pattern, IPatternReceiver receiver)
+    {
+        patternsReceivers.unregister(pattern, receiver);
+    }
+
+    /**
+     * @see SubscriptionRegistry#awaitSubscriptions()
+     */
+    public String[] awaitSubscriptions()
+    {
+        return patterns ? patternsReceivers.awaitSubscriptions() : packetsReceivers.awaitSubscriptions();
+    }
+
+    public void connectionClosed()
+    {
+        packetsReceivers.connectionClosed();
+        patternsReceivers.connectionClosed();
+    }
+
+    public void wakeUp()
+    {
+        packetsReceivers.wakeUp();
+        patternsReceivers.wakeUp();
+    }
+
+    @Override
+    public void onSubscribe(String channel, int subscribedChannels)
+    {
+        packetsReceivers.synchronize();
+    }
+
+    @Override
+    public void onPSubscribe(String pattern, int subscribedChannels)
+    {
+        patternsReceivers.synchronize();
     }
 
     @Override
     public void onMessage(String channel, String message)
     {
-        try
-        {
-            HashSet<IPacketsReceiver> receivers = packetsReceivers.get(channel);
-            if (receivers != null)
-                receivers.forEach((IPacketsReceiver receiver) -> receiver.receive(channel, message));
-            else
-                APIPlugin.log(Level.WARNING, "{PubSub} Received message on a channel, but no packetsReceivers were found. (channel: " + channel + ", message:" + message + ")");
-
-            APIPlugin.getInstance().getDebugListener().receive("onlychannel", channel, message);
-        } catch (Exception ignored)
-        {
-            ignored.printStackTrace();
-        }
+        Set<IPacketsReceiver> receivers = packetsReceivers.get(channel);
 
+        if (receivers != null)
+            dispatcher.dispatch(channel, receivers, receiver -> receiver.receive(channel, message));
+        else
+            APIPlugin.log(Level.WARNING, "{PubSub} Received message on a channel, but no packetsReceivers were found. (channel: " + channel + ", message:" + message + ")");
+
+        IPatternReceiver debugListener = APIPlugin.getInstance().getDebugListener();
+        dispatcher.offer(channel, () -> debugListener.receive("onlychannel", channel, message));
     }
 
     @Override
     public void onPMessage(String pattern, String channel, String message)
     {
-        try
-        {
-            HashSet<IPatternReceiver> receivers = patternsReceivers.get(pattern);
-            if (receivers != null)
-                receivers.forEach((IPatternReceiver receiver) -> receiver.receive(pattern, channel, message));
-            else
-                APIPlugin.log(Level.WARNING, "{PubSub} Received pmessage on a channel, but no packetsReceivers were found.");
-
-            APIPlugin.getInstance().getDebugListener().receive(pattern, channel, message);
-        } catch (Exception ignored)
-        {
-            ignored.printStackTrace();
-        }
+        Set<IPatternReceiver> receivers = patternsReceivers.get(pattern);
+
+        if (receivers != null)
+            dispatcher.dispatch(pattern, receivers, receiver -> receiver.receive(pattern, channel, message));
+        else
+            APIPlugin.log(Level.WARNING, "{PubSub} Received pmessage on a channel, but no packetsReceivers were found.");
+
+        IPatternReceiver debugListener = APIPlugin.getInstance().getDebugListener();
+        dispatcher.offer(pattern, () -> debugListener.receive(pattern, channel, message));
     }
 
     public String[] getChannelsSuscribed()
     {
-        Set<String> strings = packetsReceivers.keySet();
+        Set<String> strings = packetsReceivers.keys();
         return strings.toArray(new String[0]);
     }
 
     public String[] getPatternsSuscribed()
     {
-        Set<String> strings = patternsReceivers.keySet();
+        Set<String> strings = patternsReceivers.keys();
         return strings.toArray(new String[0]);
     }
 }
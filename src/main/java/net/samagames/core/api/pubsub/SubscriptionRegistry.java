@@ -0,0 +1,177 @@
+package net.samagames.core.api.pubsub;
+
+import net.samagames.core.APIPlugin;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+
+/*
+ * This file is part of SamaGamesCore.
+ *
+ * SamaGamesCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SamaGamesCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SamaGamesCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * Receivers of one subscription connection (channels or patterns) and the
+ * channels currently subscribed on it. Registrations are sent to the live
+ * connection as a SUBSCRIBE / UNSUBSCRIBE of the difference, the connection
+ * is never torn down for them.
+ */
+class SubscriptionRegistry<T>
+{
+    // Immutable snapshot, swapped on registration so the subscribe thread never locks
+    private volatile Map<String, Set<T>> receivers = Collections.emptyMap();
+    // Channels requested or confirmed on the current connection
+    private final Set<String> active = ConcurrentHashMap.newKeySet();
+
+    private final ChannelDispatcher dispatcher;
+    private final Connection connection;
+
+    SubscriptionRegistry(ChannelDispatcher dispatcher, Connection connection)
+    {
+        this.dispatcher = dispatcher;
+        this.connection = connection;
+    }
+
+    public synchronized void register(String key, T receiver)
+    {
+        Map<String, Set<T>> copy = new HashMap<>(receivers);
+        Set<T> keyReceivers = new HashSet<>(copy.getOrDefault(key, Collections.emptySet()));
+        keyReceivers.add(receiver);
+        copy.put(key, Collections.unmodifiableSet(keyReceivers));
+
+        receivers = Collections.unmodifiableMap(copy);
+        synchronize();
+    }
+
+    public synchronized void unregister(String key, T receiver)
+    {
+        Set<T> current = receivers.get(key);
+
+        if (current == null)
+            return;
+
+        Map<String, Set<T>> copy = new HashMap<>(receivers);
+        Set<T> keyReceivers = new HashSet<>(current);
+        keyReceivers.remove(receiver);
+
+        if (keyReceivers.isEmpty())
+        {
+            copy.remove(key);
+            dispatcher.forget(key);
+        }
+        else
+            copy.put(key, Collections.unmodifiableSet(keyReceivers));
+
+        receivers = Collections.unmodifiableMap(copy);
+        synchronize();
+    }
+
+    /**
+     * @return receivers of a channel or pattern, null if none
+     */
+    public Set<T> get(String key)
+    {
+        return receivers.get(key);
+    }
+
+    public Set<String> keys()
+    {
+        return receivers.keySet();
+    }
+
+    /**
+     * Block until there is something to subscribe to, the returned channels
+     * are considered requested on the connection about to be opened
+     *
+     * @return channels to subscribe, or null if interrupted
+     */
+    public synchronized String[] awaitSubscriptions()
+    {
+        try
+        {
+            while (receivers.isEmpty())
+                wait();
+        } catch (InterruptedException e)
+        {
+            return null;
+        }
+
+        active.clear();
+        active.addAll(receivers.keySet());
+
+        return active.toArray(new String[0]);
+    }
+
+    /**
+     * The subscribe loop returned, nothing is subscribed anymore
+     */
+    public void connectionClosed()
+    {
+        active.clear();
+    }
+
+    public synchronized void wakeUp()
+    {
+        notifyAll();
+    }
+
+    /**
+     * Send SUBSCRIBE / UNSUBSCRIBE for the difference between the registered
+     * and the active channels, also called on each subscription confirmation
+     * to catch up registrations made while the connection was being opened
+     */
+    public synchronized void synchronize()
+    {
+        notifyAll();
+
+        // Not connected yet, the next awaitSubscriptions / first confirmation takes care of it
+        if (!connection.isSubscribed())
+            return;
+
+        Set<String> registered = receivers.keySet();
+
+        try
+        {
+            for (String key : registered)
+                if (active.add(key))
+                    connection.subscribe(key);
+
+            for (String key : new HashSet<>(active))
+                if (!registered.contains(key) && active.remove(key))
+                    connection.unsubscribe(key);
+        } catch (Exception e)
+        {
+            // Connection lost meanwhile, the subscribe loop reconnects with the full list
+            APIPlugin.log(Level.WARNING, "{PubSub} Cannot update subscriptions: " + e.getMessage());
+        }
+    }
+
+    /**
+     * The subscription connection the registry drives
+     */
+    interface Connection
+    {
+        boolean isSubscribed();
+
+        void subscribe(String key);
+
+        void unsubscribe(String key);
+    }
+}
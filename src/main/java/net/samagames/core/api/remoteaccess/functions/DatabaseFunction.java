@@ -0,0 +1,82 @@
+package net.samagames.core.api.remoteaccess.functions;
+
+import net.samagames.core.api.remoteaccess.annotations.RemoteMethod;
+import net.samagames.core.api.remoteaccess.annotations.RemoteObject;
+import net.samagames.core.database.DatabaseConnector;
+
+import javax.management.modelmbean.ModelMBeanOperationInfo;
+
+/*
+ * This file is part of SamaGamesCore.
+ *
+ * SamaGamesCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SamaGamesCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SamaGamesCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+@RemoteObject(description = "Redis pool Management")
+public class DatabaseFunction
+{
+    private final DatabaseConnector connector;
+
+    public DatabaseFunction(DatabaseConnector connector)
+    {
+        this.connector = connector;
+    }
+
+    @RemoteMethod(description = "Get the number of borrowed redis connections", impact = ModelMBeanOperationInfo.INFO)
+    public int activeConnections()
+    {
+        return this.connector.getActiveConnections();
+    }
+
+    @RemoteMethod(description = "Get the number of idle redis connections", impact = ModelMBeanOperationInfo.INFO)
+    public int idleConnections()
+    {
+        return this.connector.getIdleConnections();
+    }
+
+    @RemoteMethod(description = "Get the number of threads waiting for a redis connection", impact = ModelMBeanOperationInfo.INFO)
+    public int waiters()
+    {
+        return this.connector.getWaiters();
+    }
+
+    @RemoteMethod(description = "Get the number of redis connections borrowed since the last reset", impact = ModelMBeanOperationInfo.INFO)
+    public long borrowCount()
+    {
+        return this.connector.getBorrowLatency().getCount();
+    }
+
+    @RemoteMethod(description = "Get the median redis borrow time in milliseconds", impact = ModelMBeanOperationInfo.INFO)
+    public double borrowTimeMedian()
+    {
+        return this.connector.getBorrowLatency().getPercentile(50) / 1000.0D;
+    }
+
+    @RemoteMethod(description = "Get the 99th percentile redis borrow time in milliseconds", impact = ModelMBeanOperationInfo.INFO)
+    public double borrowTime99th()
+    {
+        return this.connector.getBorrowLatency().getPercentile(99) / 1000.0D;
+    }
+
+    @RemoteMethod(description = "Get the maximum redis borrow time in milliseconds", impact = ModelMBeanOperationInfo.INFO)
+    public double borrowTimeMax()
+    {
+        return this.connector.getBorrowLatency().getMax() / 1000.0D;
+    }
+
+    @RemoteMethod(description = "Reset the redis borrow time histogram", impact = ModelMBeanOperationInfo.ACTION)
+    public void resetBorrowTimes()
+    {
+        this.connector.getBorrowLatency().reset();
+    }
+}
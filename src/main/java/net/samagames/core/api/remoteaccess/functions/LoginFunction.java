@@ -0,0 +1,80 @@
+package net.samagames.core.api.remoteaccess.functions;
+
+import net.samagames.core.api.remoteaccess.annotations.RemoteMethod;
+import net.samagames.core.api.remoteaccess.annotations.RemoteParameter;
+import net.samagames.core.api.remoteaccess.annotations.RemoteObject;
+import net.samagames.core.listeners.general.LoginStatistics;
+import net.samagames.core.utils.LatencyHistogram;
+
+import javax.management.modelmbean.ModelMBeanOperationInfo;
+
+/*
+ * This file is part of SamaGamesCore.
+ *
+ * SamaGamesCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SamaGamesCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SamaGamesCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+@RemoteObject(description = "Login Management")
+public class LoginFunction
+{
+    private final LoginStatistics statistics;
+
+    public LoginFunction(LoginStatistics statistics)
+    {
+        this.statistics = statistics;
+    }
+
+    @RemoteMethod(description = "Get the wall and CPU time of every login stage and event", impact = ModelMBeanOperationInfo.INFO)
+    public String loginTimes()
+    {
+        return this.statistics.summary();
+    }
+
+    @RemoteMethod(description = "Get the 99th percentile wall time of a login stage in milliseconds", impact = ModelMBeanOperationInfo.INFO)
+    public double stageTime99th(@RemoteParameter(name = "stage", description = "Stage name (playerdata, permissions, stats...)") String stage)
+    {
+        LatencyHistogram histogram = this.statistics.getWallTimes().get(stage);
+        return histogram == null ? 0 : histogram.getPercentile(99) / 1000.0D;
+    }
+
+    @RemoteMethod(description = "Get the median pre-login time in milliseconds", impact = ModelMBeanOperationInfo.INFO)
+    public double preLoginTimeMedian()
+    {
+        return eventPercentile(50);
+    }
+
+    @RemoteMethod(description = "Get the 99th percentile pre-login time in milliseconds", impact = ModelMBeanOperationInfo.INFO)
+    public double preLoginTime99th()
+    {
+        return eventPercentile(99);
+    }
+
+    @RemoteMethod(description = "Get the maximum pre-login time in milliseconds", impact = ModelMBeanOperationInfo.INFO)
+    public double preLoginTimeMax()
+    {
+        LatencyHistogram histogram = this.statistics.getEventTimes().get("prelogin");
+        return histogram == null ? 0 : histogram.getMax() / 1000.0D;
+    }
+
+    @RemoteMethod(description = "Reset the login time histograms", impact = ModelMBeanOperationInfo.ACTION)
+    public void resetLoginTimes()
+    {
+        this.statistics.reset();
+    }
+
+    private double eventPercentile(double percentile)
+    {
+        LatencyHistogram histogram = this.statistics.getEventTimes().get("prelogin");
+        return histogram == null ? 0 : histogram.getPercentile(percentile) / 1000.0D;
+    }
+}
@@ -0,0 +1,114 @@
+package net.samagames.core.api.remoteaccess.functions;
+
+import net.samagames.core.api.pubsub.PubSubAPI;
+import net.samagames.core.api.remoteaccess.annotations.RemoteMethod;
+import net.samagames.core.api.remoteaccess.annotations.RemoteObject;
+import net.samagames.core.utils.LatencyHistogram;
+
+import javax.management.modelmbean.ModelMBeanOperationInfo;
+import java.util.Map;
+import java.util.TreeMap;
+
+/*
+ * This file is part of SamaGamesCore.
+ *
+ * SamaGamesCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SamaGamesCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SamaGamesCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+@RemoteObject(description = "PubSub Management")
+public class PubSubFunction
+{
+    private final PubSubAPI pubSub;
+
+    public PubSubFunction(PubSubAPI pubSub)
+    {
+        this.pubSub = pubSub;
+    }
+
+    @RemoteMethod(description = "Get the number of messages waiting to be published", impact = ModelMBeanOperationInfo.INFO)
+    public int queueDepth()
+    {
+        return this.pubSub.getQueueDepth();
+    }
+
+    @RemoteMethod(description = "Get the number of published messages", impact = ModelMBeanOperationInfo.INFO)
+    public long publishedCount()
+    {
+        return this.pubSub.getPublishedCount();
+    }
+
+    @RemoteMethod(description = "Get the number of messages dropped because the queue was full", impact = ModelMBeanOperationInfo.INFO)
+    public long droppedCount()
+    {
+        return this.pubSub.getDroppedCount();
+    }
+
+    @RemoteMethod(description = "Get the number of received messages the debug listener skipped", impact = ModelMBeanOperationInfo.INFO)
+    public long debugDroppedCount()
+    {
+        return this.pubSub.getDebugDroppedCount();
+    }
+
+    @RemoteMethod(description = "Get the number of messages replaced by a newer one with the same key", impact = ModelMBeanOperationInfo.INFO)
+    public long coalescedCount()
+    {
+        return this.pubSub.getCoalescedCount();
+    }
+
+    @RemoteMethod(description = "Get the number of batches that failed to reach redis", impact = ModelMBeanOperationInfo.INFO)
+    public long failedBatches()
+    {
+        return this.pubSub.getFailedBatches();
+    }
+
+    @RemoteMethod(description = "Get the median publish time in milliseconds", impact = ModelMBeanOperationInfo.INFO)
+    public double publishTimeMedian()
+    {
+        return this.pubSub.getPublishLatency().getPercentile(50) / 1000.0D;
+    }
+
+    @RemoteMethod(description = "Get the 99th percentile publish time in milliseconds", impact = ModelMBeanOperationInfo.INFO)
+    public double publishTime99th()
+    {
+        return this.pubSub.getPublishLatency().getPercentile(99) / 1000.0D;
+    }
+
+    @RemoteMethod(description = "Get the maximum publish time in milliseconds", impact = ModelMBeanOperationInfo.INFO)
+    public double publishTimeMax()
+    {
+        return this.pubSub.getPublishLatency().getMax() / 1000.0D;
+    }
+
+    @RemoteMethod(description = "Reset the publish time histogram", impact = ModelMBeanOperationInfo.ACTION)
+    public void resetPublishTimes()
+    {
+        this.pubSub.getPublishLatency().reset();
+    }
+
+    @RemoteMethod(description = "Get the receivers run time per channel", impact = ModelMBeanOperationInfo.INFO)
+    public String handlerTimes()
+    {
+        StringBuilder builder = new StringBuilder();
+
+        for (Map.Entry<String, LatencyHistogram> entry : new TreeMap<>(this.pubSub.getHandlerTimes()).entrySet())
+            builder.append(entry.getKey()).append(": ").append(entry.getValue().summary()).append('\n');
+
+        return builder.toString();
+    }
+
+    @RemoteMethod(description = "Reset the receivers run time histograms", impact = ModelMBeanOperationInfo.ACTION)
+    public void resetHandlerTimes()
+    {
+        this.pubSub.getHandlerTimes().values().forEach(LatencyHistogram::reset);
+    }
+}
@@ -7,6 +7,9 @@ import net.samagames.api.SamaGamesAPI;
 import net.samagames.api.resourcepacks.IResourceCallback;
 import net.samagames.api.resourcepacks.IResourcePacksManager;
 import net.samagames.core.APIPlugin;
+import net.samagames.core.ApiImplementation;
+import net.samagames.core.database.RedisBatch;
+import net.samagames.core.database.async.AsyncRedisClient;
 import net.samagames.tools.TinyProtocol;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
@@ -16,12 +19,15 @@ import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerResourcePackStatusEvent;
+import org.bukkit.plugin.Plugin;
 import redis.clients.jedis.Jedis;
 
 import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
 
 /*
  * This file is part of SamaGamesCore.
@@ -61,7 +67,21 @@ public class ResourcePacksManagerImpl implements IResourcePacksManager, Listener
         this.resetUrl = jedis.get("resourcepacks:reseturl");
         APIPlugin.getInstance().getLogger().info("Resource packs reset URL defined to " + resetUrl);
         jedis.close();
-        protocol = new TinyProtocol(api.getPlugin()) {
+
+        try
+        {
+            protocol = createProtocol(api.getPlugin());
+        }
+        catch (Exception | LinkageError e)
+        {
+            // Not on a Minecraft server (tests), packs are sent but their status is not followed
+            APIPlugin.getInstance().getLogger().log(Level.WARNING, "Cannot listen to resource pack statuses", e);
+        }
+    }
+
+    private TinyProtocol createProtocol(Plugin plugin)
+    {
+        return new TinyProtocol(plugin) {
             @Override
             public Object onPacketInAsync(Player sender, Channel channel, Object packet) {
                 if (sender == null)
@@ -111,11 +131,7 @@ public class ResourcePacksManagerImpl implements IResourcePacksManager, Listener
         {
             currentlyDownloading.remove(player.getUniqueId());
             APIPlugin.getInstance().getLogger().info("Player " + player.getName() + " successfully downloaded resource pack");
-            Bukkit.getScheduler().runTaskAsynchronously(APIPlugin.getInstance(), () -> {
-                Jedis jedis = api.getBungeeResource();
-                jedis.sadd("playersWithPack", player.getUniqueId().toString());
-                jedis.close();
-            });
+            ((ApiImplementation) api).getAsyncBungeeResource().sadd("playersWithPack", player.getUniqueId().toString()).whenComplete(AsyncRedisClient::logFailure);
             //Call when it's done
             if (callback != null)
                 callback.callback(player, PlayerResourcePackStatusEvent.Status.valueOf(state.toString()));
@@ -132,9 +148,12 @@ public class ResourcePacksManagerImpl implements IResourcePacksManager, Listener
     @Override
     public void forcePack(String name, IResourceCallback callback)
     {
-        Jedis jedis = api.getBungeeResource();
-        forceUrlPack(jedis.hget("resourcepack:" + name, "url"), jedis.hget("resourcepack:" + name, "hash"), callback);
-        jedis.close();
+        RedisBatch batch = ((ApiImplementation) api).createBatch();
+        CompletableFuture<String> url = batch.queue(pipeline -> pipeline.hget("resourcepack:" + name, "url"));
+        CompletableFuture<String> hash = batch.queue(pipeline -> pipeline.hget("resourcepack:" + name, "hash"));
+        batch.execute();
+
+        forceUrlPack(url.join(), hash.join(), callback);
     }
 
     @Override
@@ -182,16 +201,21 @@ public class ResourcePacksManagerImpl implements IResourcePacksManager, Listener
                     }, 1200L);//20*60
         } else
         {
-            Jedis jedis = api.getBungeeResource();
-            Long l = jedis.srem("playersWithPack", player.getUniqueId().toString());
-            jedis.close();
-
-            if (l > 0)
+            ((ApiImplementation) api).getAsyncBungeeResource().srem("playersWithPack", player.getUniqueId().toString()).thenAccept(l ->
             {
-                //Better to check than force resourcepack
-                player.setResourcePack(resetUrl);
-                APIPlugin.getInstance().getLogger().info("Sending pack to " + player.getName() + " : " + resetUrl);
-            }
+                if (l > 0)
+                {
+                    //Better to check than force resourcepack
+                    Bukkit.getScheduler().runTask(APIPlugin.getInstance(), () ->
+                    {
+                        if (!player.isOnline())
+                            return;
+
+                        player.setResourcePack(resetUrl);
+                        APIPlugin.getInstance().getLogger().info("Sending pack to " + player.getName() + " : " + resetUrl);
+                    });
+                }
+            }).whenComplete(AsyncRedisClient::logFailure);
         }
     }
 
@@ -2,6 +2,7 @@ package net.samagames.core.api.settings;
 
 import net.samagames.api.settings.ISettingsManager;
 import net.samagames.core.ApiImplementation;
+import net.samagames.core.api.network.SessionHandoff;
 import net.samagames.core.api.player.PlayerData;
 import net.samagames.persistanceapi.beans.players.PlayerSettingsBean;
 
@@ -41,8 +42,12 @@ public class SettingsManager implements ISettingsManager
     {
         try{
             PlayerData playerData = api.getPlayerManager().getPlayerData(uuid);
-            //First load from sql the save
-            PlayerSettingsBean playerSettings1 = api.getGameServiceManager().getPlayerSettings(playerData.getPlayerBean());
+            //First load from sql the save, unless the previous server handed them over
+            SessionHandoff.Session session = api.getSessionHandoff().getSession(uuid);
+            PlayerSettingsBean playerSettings1 = (session != null) ? session.getSettings() : null;
+
+            if (playerSettings1 == null)
+                playerSettings1 = api.getGameServiceManager().getPlayerSettings(playerData.getPlayerBean());
             ImpPlayerSettings playerSettings = new ImpPlayerSettings(api.getGameServiceManager(), playerData, playerSettings1);
 
             //Don't refresh here, data are recent so it only will spam proxy
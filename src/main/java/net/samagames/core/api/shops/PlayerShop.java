@@ -83,6 +83,23 @@ public class PlayerShop implements IPlayerShop {
         }
     }
 
+    /**
+     * Use transactions handed over by the previous server, they count as just refreshed
+     */
+    public void load(List<TransactionBean> transactions)
+    {
+        List<Transaction> items = transactions.stream().map(Transaction::new).collect(Collectors.toList());
+
+        this.items.clear();
+        this.items.addAll(items);
+        lastUpdate = System.currentTimeMillis();
+    }
+
+    public List<TransactionBean> getTransactionBeans()
+    {
+        return new ArrayList<>(items);
+    }
+
     @Override
     public void addItem(int itemID, int priceCoins, int priceStars, boolean selected)
     {
@@ -3,6 +3,7 @@ package net.samagames.core.api.shops;
 import net.samagames.api.games.GamesNames;
 import net.samagames.api.shops.IShopsManager;
 import net.samagames.core.ApiImplementation;
+import net.samagames.core.api.network.SessionHandoff;
 import net.samagames.persistanceapi.beans.shop.ItemDescriptionBean;
 
 import java.util.List;
@@ -69,7 +70,12 @@ public class ShopsManager implements IShopsManager
     {
         try{
             PlayerShop playerShop = new PlayerShop(api, shopToLoad, player);
-            playerShop.refresh();
+            SessionHandoff.Session session = api.getSessionHandoff().getSession(player);
+
+            if (session != null && session.getTransactions() != null)
+                playerShop.load(session.getTransactions());
+            else
+                playerShop.refresh();
             cache.put(player, playerShop);
         }catch (Exception e)
         {
@@ -0,0 +1,56 @@
+package net.samagames.core.commands;
+
+import net.samagames.core.APIPlugin;
+import net.samagames.core.listeners.general.LoginStatistics;
+import org.bukkit.ChatColor;
+import org.bukkit.command.CommandSender;
+
+/*
+ * This file is part of SamaGamesCore.
+ *
+ * SamaGamesCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SamaGamesCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SamaGamesCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+public class CommandLoginstats extends AbstractCommand
+{
+    private final LoginStatistics statistics;
+
+    public CommandLoginstats(APIPlugin plugin)
+    {
+        super(plugin);
+
+        this.statistics = plugin.getAPI().getLoginStatistics();
+    }
+
+    @Override
+    protected boolean onCommand(CommandSender sender, String label, String[] arguments)
+    {
+        if (!hasPermission(sender, "api.servers.debug"))
+            return true;
+
+        if (arguments.length > 0 && arguments[0].equalsIgnoreCase("reset"))
+        {
+            this.statistics.reset();
+            sender.sendMessage(ChatColor.GREEN + "Les statistiques de connexion ont été remises à zéro.");
+            return true;
+        }
+
+        sender.sendMessage(ChatColor.GOLD + "Temps de connexion (p50 / p99 / max) :");
+
+        for (String line : this.statistics.summary().split("\n"))
+            if (!line.isEmpty())
+                sender.sendMessage(ChatColor.GRAY + line);
+
+        return true;
+    }
+}
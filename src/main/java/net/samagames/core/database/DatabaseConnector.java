@@ -1,11 +1,19 @@
 package net.samagames.core.database;
 
 import net.samagames.core.APIPlugin;
+import net.samagames.core.database.async.AsyncRedisClient;
+import net.samagames.core.database.async.NettyRedisClient;
+import net.samagames.core.database.async.PooledRedisClient;
+import net.samagames.core.utils.LatencyHistogram;
 import org.bukkit.Bukkit;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.jedis.Protocol;
+import redis.clients.jedis.exceptions.JedisConnectionException;
 
+import java.util.NoSuchElementException;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 
@@ -27,9 +35,12 @@ import java.util.logging.Level;
  */
 public class DatabaseConnector
 {
+    private static final long DRAIN_TIMEOUT = 30 * 1000L;
 
     private final APIPlugin plugin;
-    private JedisPool cachePool;
+    private final LatencyHistogram borrowLatency = new LatencyHistogram();
+    private volatile JedisPool cachePool;
+    private AsyncRedisClient asyncClient;
     private RedisServer bungee;
     private WhiteListRefreshTask keeper;
 
@@ -48,13 +59,47 @@ public class DatabaseConnector
 
     public Jedis getBungeeResource()
     {
-        return cachePool.getResource();
+        long start = System.nanoTime();
+        Jedis jedis = cachePool.getResource();
+        borrowLatency.record(System.nanoTime() - start);
+
+        return jedis;
+    }
+
+    /**
+     * Non-blocking client, use it for fire-and-forget writes on the main thread
+     */
+    public AsyncRedisClient getAsyncResource()
+    {
+        return asyncClient;
     }
 
     public void killConnection()
     {
+        if (asyncClient != null)
+            asyncClient.close();
+
         cachePool.close();
-        cachePool.destroy();
+    }
+
+    public int getActiveConnections()
+    {
+        return cachePool.getNumActive();
+    }
+
+    public int getIdleConnections()
+    {
+        return cachePool.getNumIdle();
+    }
+
+    public int getWaiters()
+    {
+        return cachePool.getNumWaiters();
+    }
+
+    public LatencyHistogram getBorrowLatency()
+    {
+        return borrowLatency;
     }
 
     private void initiateConnection()
@@ -62,18 +107,7 @@ public class DatabaseConnector
         // Préparation de la connexion
         connect();
 
-        this.plugin.getExecutor().scheduleAtFixedRate(() ->
-        {
-            try
-            {
-                cachePool.getResource().close();
-            } catch (Exception e)
-            {
-                e.printStackTrace();
-                plugin.getLogger().log(Level.SEVERE, "Error redis connection, Try to reconnect!", e);
-                connect();
-            }
-        }, 0, 10, TimeUnit.SECONDS);
+        this.plugin.getExecutor().scheduleAtFixedRate(this::checkConnection, 10, 10, TimeUnit.SECONDS);
         // Init du thread
 
         if (keeper == null)
@@ -85,14 +119,14 @@ public class DatabaseConnector
 
     private void connect()
     {
-        JedisPoolConfig config = new JedisPoolConfig();
-        config.setMaxTotal(-1);
-        config.setJmxEnabled(false);
-
         try
         {
-            this.cachePool = new JedisPool(config, this.bungee.getIp(), this.bungee.getPort(), 0, this.bungee.getPassword());
-            this.cachePool.getResource().close();
+            this.cachePool = createPool();
+
+            if (this.bungee.isNettyAsync())
+                this.asyncClient = new NettyRedisClient(this.bungee, this.plugin.getLogger());
+            else
+                this.asyncClient = new PooledRedisClient(this, this.plugin.getExecutor());
 
             this.plugin.log(Level.INFO, "Connected to database.");
         }
@@ -103,4 +137,97 @@ public class DatabaseConnector
         }
     }
 
+    private void checkConnection()
+    {
+        try (Jedis jedis = getBungeeResource())
+        {
+            jedis.ping();
+        }
+        catch (JedisConnectionException e)
+        {
+            // An exhausted pool is load, not a dead connection: a second pool would only exceed the bound
+            if (e.getCause() instanceof NoSuchElementException)
+            {
+                plugin.getLogger().log(Level.WARNING, "Redis pool exhausted during the health check.", e);
+                return;
+            }
+
+            plugin.getLogger().log(Level.SEVERE, "Error redis connection, Try to reconnect!", e);
+
+            JedisPool replacement;
+
+            try
+            {
+                replacement = createPool();
+            }
+            catch (Exception e1)
+            {
+                // Keep the current pool, validation will recreate its connections when redis is back
+                plugin.getLogger().log(Level.SEVERE, "Redis is still unreachable, keeping current pool.", e1);
+                return;
+            }
+
+            JedisPool old = this.cachePool;
+            this.cachePool = replacement;
+            drain(old, System.currentTimeMillis() + DRAIN_TIMEOUT);
+
+            this.plugin.log(Level.INFO, "Swapped redis pool, draining the old one.");
+        }
+        catch (Exception e)
+        {
+            plugin.getLogger().log(Level.WARNING, "Redis health check failed.", e);
+        }
+    }
+
+    /**
+     * Close a pool once every borrowed connection went back to it (or after the drain timeout)
+     */
+    private void drain(JedisPool pool, long deadline)
+    {
+        if (pool.getNumActive() > 0 && System.currentTimeMillis() < deadline)
+        {
+            try
+            {
+                this.plugin.getExecutor().schedule(() -> drain(pool, deadline), 1, TimeUnit.SECONDS);
+                return;
+            }
+            catch (RejectedExecutionException ignored)
+            {
+                // Shutting down, close now
+            }
+        }
+
+        pool.close();
+    }
+
+    private JedisPool createPool()
+    {
+        JedisPoolConfig config = new JedisPoolConfig();
+        config.setMaxTotal(this.bungee.getMaxPoolSize());
+        config.setMaxIdle(this.bungee.getMaxPoolSize());
+        config.setMinIdle(this.bungee.getMinPoolSize());
+        config.setBlockWhenExhausted(true);
+        config.setMaxWaitMillis(this.bungee.getMaxWait());
+        // Idle connections are checked by the evictor, a borrow costs no extra PING
+        config.setTestWhileIdle(true);
+        config.setMinEvictableIdleTimeMillis(60 * 1000L);
+        config.setTimeBetweenEvictionRunsMillis(30 * 1000L);
+        config.setNumTestsPerEvictionRun(-1);
+        config.setJmxEnabled(false);
+
+        JedisPool pool = new JedisPool(config, this.bungee.getIp(), this.bungee.getPort(), this.bungee.getTimeout(), this.bungee.getTimeout(), this.bungee.getPassword(), Protocol.DEFAULT_DATABASE, null);
+
+        try (Jedis jedis = pool.getResource())
+        {
+            jedis.ping();
+        }
+        catch (Exception e)
+        {
+            pool.close();
+            throw e;
+        }
+
+        return pool;
+    }
+
 }
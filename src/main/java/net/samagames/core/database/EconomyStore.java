@@ -0,0 +1,141 @@
+package net.samagames.core.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/*
+ * This file is part of SamaGamesCore.
+ *
+ * SamaGamesCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SamaGamesCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SamaGamesCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * Balances of the players table, changed by the database itself
+ * (coins = coins + ?) so that servers never overwrite each other.
+ *
+ * Writes are already batched by the economy ledger, one connection is enough.
+ * Several players can be changed in one transaction, for game end rewards.
+ */
+public class EconomyStore extends SqlStore
+{
+    private static final String INCREMENT = "UPDATE players SET coins = coins + ?, stars = stars + ?, powders = powders + ? WHERE uuid = UNHEX(?)";
+    private static final String BALANCES = "SELECT coins, stars, powders FROM players WHERE uuid = UNHEX(?)";
+
+    public EconomyStore(String url, String username, String password)
+    {
+        super(url, username, password);
+    }
+
+    /**
+     * Add the changes to the stored balances and read them back, in one transaction
+     *
+     * @param deltas coins, stars and powders to add (negative to withdraw)
+     * @return coins, stars and powders once written
+     */
+    public long[] increment(UUID player, long[] deltas) throws SQLException
+    {
+        return this.increment(Collections.singletonMap(player, deltas)).get(player);
+    }
+
+    /**
+     * Add the changes of several players in one transaction, either every
+     * balance is changed or none is
+     *
+     * @param deltas coins, stars and powders to add per player
+     * @return coins, stars and powders of each player once written
+     */
+    public synchronized Map<UUID, long[]> increment(Map<UUID, long[]> deltas) throws SQLException
+    {
+        Connection connection = this.connection();
+
+        try
+        {
+            connection.setAutoCommit(false);
+
+            try (PreparedStatement statement = connection.prepareStatement(INCREMENT))
+            {
+                for (Map.Entry<UUID, long[]> entry : deltas.entrySet())
+                {
+                    statement.setLong(1, entry.getValue()[0]);
+                    statement.setLong(2, entry.getValue()[1]);
+                    statement.setLong(3, entry.getValue()[2]);
+                    statement.setString(4, hex(entry.getKey()));
+                    statement.addBatch();
+                }
+
+                int[] updated = statement.executeBatch();
+                int i = 0;
+
+                for (UUID player : deltas.keySet())
+                    if (updated[i++] == 0)
+                        throw new SQLException("Unknown player " + player);
+            }
+
+            Map<UUID, long[]> balances = new HashMap<>();
+
+            for (UUID player : deltas.keySet())
+                balances.put(player, this.read(connection, player));
+
+            connection.commit();
+
+            return balances;
+        }
+        catch (SQLException e)
+        {
+            this.abort();
+            throw e;
+        }
+    }
+
+    /**
+     * @return coins, stars and powders as stored
+     */
+    public synchronized long[] getBalances(UUID player) throws SQLException
+    {
+        Connection connection = this.connection();
+
+        try
+        {
+            connection.setAutoCommit(true);
+            return this.read(connection, player);
+        }
+        catch (SQLException e)
+        {
+            this.abort();
+            throw e;
+        }
+    }
+
+    private long[] read(Connection connection, UUID player) throws SQLException
+    {
+        try (PreparedStatement statement = connection.prepareStatement(BALANCES))
+        {
+            statement.setString(1, hex(player));
+
+            try (ResultSet result = statement.executeQuery())
+            {
+                if (!result.next())
+                    throw new SQLException("Unknown player " + player);
+
+                return new long[] {result.getLong(1), result.getLong(2), result.getLong(3)};
+            }
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package net.samagames.core.database;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/*
+ * This file is part of SamaGamesCore.
+ *
+ * SamaGamesCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SamaGamesCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SamaGamesCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * Queue several redis commands and send them in a single round-trip.
+ *
+ * <pre>
+ * RedisBatch batch = api.createBatch();
+ * CompletableFuture&lt;String&gt; leader = batch.queue(pipeline -&gt; pipeline.get("party:" + id + ":lead"));
+ * CompletableFuture&lt;Map&lt;String, String&gt;&gt; members = batch.queue(pipeline -&gt; pipeline.hgetAll("party:" + id + ":members"));
+ * batch.execute();
+ * </pre>
+ *
+ * Futures are completed by {@link #execute()} so they can be read right after it.
+ */
+public class RedisBatch
+{
+    private final DatabaseConnector connector;
+    private final boolean transactional;
+    private final List<QueuedCommand<?>> commands;
+
+    public RedisBatch(DatabaseConnector connector, boolean transactional)
+    {
+        this.connector = connector;
+        this.transactional = transactional;
+        this.commands = new ArrayList<>();
+    }
+
+    public <T> CompletableFuture<T> queue(Function<Pipeline, Response<T>> command)
+    {
+        QueuedCommand<T> queued = new QueuedCommand<>(command);
+        this.commands.add(queued);
+
+        return queued.future;
+    }
+
+    public int size()
+    {
+        return this.commands.size();
+    }
+
+    /**
+     * Borrow one connection and send every queued command in a pipeline
+     * (wrapped in MULTI/EXEC for transactional batches).
+     *
+     * @return true if the batch reached redis, per-command errors are reported in their future
+     */
+    public boolean execute()
+    {
+        if (this.commands.isEmpty())
+            return true;
+
+        try (Jedis jedis = this.connector.getBungeeResource())
+        {
+            Pipeline pipeline = jedis.pipelined();
+
+            if (this.transactional)
+                pipeline.multi();
+
+            for (QueuedCommand<?> command : this.commands)
+                command.send(pipeline);
+
+            if (this.transactional)
+                pipeline.exec();
+
+            pipeline.sync();
+        }
+        catch (Exception e)
+        {
+            this.commands.forEach(command -> command.future.completeExceptionally(e));
+            this.commands.clear();
+            return false;
+        }
+
+        this.commands.forEach(QueuedCommand::complete);
+        this.commands.clear();
+
+        return true;
+    }
+
+    private static class QueuedCommand<T>
+    {
+        private final Function<Pipeline, Response<T>> command;
+        private final CompletableFuture<T> future;
+        private Response<T> response;
+
+        private QueuedCommand(Function<Pipeline, Response<T>> command)
+        {
+            this.command = command;
+            this.future = new CompletableFuture<>();
+        }
+
+        private void send(Pipeline pipeline)
+        {
+            this.response = this.command.apply(pipeline);
+        }
+
+        private void complete()
+        {
+            try
+            {
+                this.future.complete(this.response.get());
+            }
+            catch (Exception e)
+            {
+                this.future.completeExceptionally(e);
+            }
+        }
+    }
+}
@@ -22,11 +22,27 @@ public class RedisServer
     private final int port;
     private final String password;
 
+    private final int timeout;
+    private final int minPoolSize;
+    private final int maxPoolSize;
+    private final long maxWait;
+    private final boolean nettyAsync;
+
     public RedisServer(String ip, int port, String password)
+    {
+        this(ip, port, password, 2000, 2, 64, 2000L, false);
+    }
+
+    public RedisServer(String ip, int port, String password, int timeout, int minPoolSize, int maxPoolSize, long maxWait, boolean nettyAsync)
     {
         this.ip = ip;
         this.port = port;
         this.password = password;
+        this.timeout = timeout;
+        this.minPoolSize = minPoolSize;
+        this.maxPoolSize = maxPoolSize;
+        this.maxWait = maxWait;
+        this.nettyAsync = nettyAsync;
     }
 
     public String getIp()
@@ -43,4 +59,38 @@ public class RedisServer
     {
         return this.password;
     }
+
+    /**
+     * Connect and per-command socket timeout in milliseconds
+     */
+    public int getTimeout()
+    {
+        return this.timeout;
+    }
+
+    public int getMinPoolSize()
+    {
+        return this.minPoolSize;
+    }
+
+    public int getMaxPoolSize()
+    {
+        return this.maxPoolSize;
+    }
+
+    /**
+     * Maximum time in milliseconds to wait for a free connection
+     */
+    public long getMaxWait()
+    {
+        return this.maxWait;
+    }
+
+    /**
+     * Use the multiplexed Netty connection for async commands instead of the pool
+     */
+    public boolean isNettyAsync()
+    {
+        return this.nettyAsync;
+    }
 }
@@ -0,0 +1,96 @@
+package net.samagames.core.database;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.UUID;
+
+/*
+ * This file is part of SamaGamesCore.
+ *
+ * SamaGamesCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SamaGamesCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SamaGamesCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * Direct access to the database for the writes the GameServiceManager
+ * cannot do, it only writes whole rows. One lazily opened connection,
+ * callers synchronize on the store.
+ */
+public abstract class SqlStore
+{
+    private final String url;
+    private final String username;
+    private final String password;
+
+    private Connection connection;
+
+    /**
+     * @param url sql-url of data.yml, a bare host is taken as a MySQL server
+     */
+    protected SqlStore(String url, String username, String password)
+    {
+        this.url = url.startsWith("jdbc:") ? url : "jdbc:mysql://" + url;
+        this.username = username;
+        this.password = password;
+    }
+
+    public synchronized void close()
+    {
+        if (this.connection == null)
+            return;
+
+        try
+        {
+            this.connection.close();
+        }
+        catch (SQLException ignored)
+        {
+        }
+
+        this.connection = null;
+    }
+
+    protected Connection connection() throws SQLException
+    {
+        if (this.connection == null || !this.connection.isValid(1))
+        {
+            this.close();
+            this.connection = DriverManager.getConnection(this.url, this.username, this.password);
+        }
+
+        return this.connection;
+    }
+
+    /**
+     * Undo the transaction and drop the connection, the next call opens a new one
+     */
+    protected void abort()
+    {
+        try
+        {
+            if (this.connection != null && !this.connection.getAutoCommit())
+                this.connection.rollback();
+        }
+        catch (SQLException ignored)
+        {
+        }
+
+        this.close();
+    }
+
+    protected static String hex(UUID player)
+    {
+        return player.toString().replace("-", "");
+    }
+}
@@ -0,0 +1,121 @@
+package net.samagames.core.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/*
+ * This file is part of SamaGamesCore.
+ *
+ * SamaGamesCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SamaGamesCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SamaGamesCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * Statistics increments added by the database itself (column = column + ?),
+ * used by the generated statistics classes so that two servers
+ * incrementing the same player never overwrite each other.
+ */
+public class StatisticsStore extends SqlStore
+{
+    // Names come from the generated classes, they are still checked since they are not parameters
+    private static final Pattern NAME = Pattern.compile("[a-z][a-z0-9_]*");
+
+    public StatisticsStore(String url, String username, String password)
+    {
+        super(url, username, password);
+    }
+
+    /**
+     * Add the changes to the statistics row of a player and read the columns back, in one transaction
+     *
+     * @param deltas value to add per column
+     * @return value of the changed columns once written
+     */
+    public synchronized Map<String, Number> increment(String table, UUID player, Map<String, Number> deltas) throws SQLException
+    {
+        if (deltas.isEmpty())
+            return new HashMap<>();
+
+        StringBuilder update = new StringBuilder("UPDATE ").append(name(table)).append(" SET ");
+        StringBuilder select = new StringBuilder("SELECT ");
+        String[] columns = deltas.keySet().toArray(new String[0]);
+
+        for (int i = 0; i < columns.length; i++)
+        {
+            String column = name(columns[i]);
+
+            update.append(i == 0 ? "" : ", ").append(column).append(" = ").append(column).append(" + ?");
+            select.append(i == 0 ? "" : ", ").append(column);
+        }
+
+        update.append(" WHERE uuid = UNHEX(?)");
+        select.append(" FROM ").append(table).append(" WHERE uuid = UNHEX(?)");
+
+        Connection connection = this.connection();
+
+        try
+        {
+            connection.setAutoCommit(false);
+
+            try (PreparedStatement statement = connection.prepareStatement(update.toString()))
+            {
+                for (int i = 0; i < columns.length; i++)
+                    statement.setObject(i + 1, deltas.get(columns[i]));
+
+                statement.setString(columns.length + 1, hex(player));
+
+                if (statement.executeUpdate() != 1)
+                    throw new SQLException("No " + table + " row for " + player);
+            }
+
+            Map<String, Number> values = new HashMap<>();
+
+            try (PreparedStatement statement = connection.prepareStatement(select.toString()))
+            {
+                statement.setString(1, hex(player));
+
+                try (ResultSet result = statement.executeQuery())
+                {
+                    if (!result.next())
+                        throw new SQLException("No " + table + " row for " + player);
+
+                    for (int i = 0; i < columns.length; i++)
+                        values.put(columns[i], (Number) result.getObject(i + 1));
+                }
+            }
+
+            connection.commit();
+
+            return values;
+        }
+        catch (SQLException e)
+        {
+            this.abort();
+            throw e;
+        }
+    }
+
+    private static String name(String name)
+    {
+        if (!NAME.matcher(name).matches())
+            throw new IllegalArgumentException("Invalid table or column name " + name);
+
+        return name;
+    }
+}
@@ -0,0 +1,78 @@
+package net.samagames.core.database.async;
+
+import net.samagames.core.APIPlugin;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/*
+ * This file is part of SamaGamesCore.
+ *
+ * SamaGamesCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SamaGamesCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SamaGamesCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * Non-blocking access to the bungee redis, safe to call from the main thread.
+ *
+ * Futures are completed on an I/O thread: hop back with the Bukkit
+ * scheduler before touching the world.
+ */
+public interface AsyncRedisClient
+{
+    CompletableFuture<String> get(String key);
+
+    CompletableFuture<String> set(String key, String value);
+
+    CompletableFuture<String> setex(String key, int seconds, String value);
+
+    CompletableFuture<Long> del(String key);
+
+    CompletableFuture<Boolean> exists(String key);
+
+    CompletableFuture<Long> expire(String key, int seconds);
+
+    CompletableFuture<String> hget(String key, String field);
+
+    CompletableFuture<Long> hset(String key, String field, String value);
+
+    CompletableFuture<Long> hdel(String key, String field);
+
+    CompletableFuture<Map<String, String>> hgetAll(String key);
+
+    CompletableFuture<Long> sadd(String key, String... members);
+
+    CompletableFuture<Long> srem(String key, String... members);
+
+    CompletableFuture<Set<String>> smembers(String key);
+
+    CompletableFuture<Long> publish(String channel, String message);
+
+    void close();
+
+    /**
+     * Completion hook for fire-and-forget writes, so that a failed write is
+     * reported instead of vanishing with its future
+     */
+    static void logFailure(Object reply, Throwable throwable)
+    {
+        if (throwable == null)
+            return;
+
+        Logger logger = APIPlugin.getInstance() != null ? APIPlugin.getInstance().getLogger() : Logger.getLogger(AsyncRedisClient.class.getName());
+        logger.log(Level.WARNING, "Asynchronous redis write failed", throwable);
+    }
+}
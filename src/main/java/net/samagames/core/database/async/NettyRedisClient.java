@@ -0,0 +1,491 @@
+package net.samagames.core.database.async;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.handler.codec.DecoderException;
+import io.netty.handler.codec.MessageToByteEncoder;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import net.samagames.core.database.RedisServer;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisDataException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/*
+ * This file is part of SamaGamesCore.
+ *
+ * SamaGamesCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SamaGamesCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SamaGamesCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * Single multiplexed redis connection on a Netty event loop.
+ *
+ * Commands are pipelined: replies come back in order so every reply
+ * completes the oldest pending future of its connection. Each connection
+ * owns its pending queue and it is only touched from the event loop.
+ */
+public class NettyRedisClient implements AsyncRedisClient
+{
+    private static final Object NULL_REPLY = new Object();
+    private static final long MAX_RECONNECT_DELAY = 30 * 1000L;
+
+    private final RedisServer server;
+    private final Logger logger;
+    private final EventLoopGroup group;
+    private final Bootstrap bootstrap;
+
+    private volatile Channel channel;
+    private volatile boolean closed;
+    private long reconnectDelay;
+
+    public NettyRedisClient(RedisServer server, Logger logger)
+    {
+        this.server = server;
+        this.logger = logger;
+        this.group = new NioEventLoopGroup(1, new DefaultThreadFactory("redis-async", true));
+        this.reconnectDelay = 1000L;
+
+        this.bootstrap = new Bootstrap()
+                .group(this.group)
+                .channel(NioSocketChannel.class)
+                .option(ChannelOption.TCP_NODELAY, true)
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, server.getTimeout())
+                .handler(new ChannelInitializer<Channel>()
+                {
+                    @Override
+                    protected void initChannel(Channel channel)
+                    {
+                        channel.pipeline().addLast(new RedisEncoder(), new RedisDecoder(), new ReplyHandler());
+                    }
+                });
+
+        connect();
+    }
+
+    private void connect()
+    {
+        if (this.closed)
+            return;
+
+        this.bootstrap.connect(this.server.getIp(), this.server.getPort()).addListener((ChannelFuture future) ->
+        {
+            if (!future.isSuccess())
+            {
+                this.logger.log(Level.SEVERE, "[AsyncRedis] Cannot connect to redis server : " + future.cause().getMessage() + ". Retrying in " + this.reconnectDelay + "ms.");
+                scheduleReconnect();
+                return;
+            }
+
+            Channel connected = future.channel();
+            String password = this.server.getPassword();
+
+            if (password == null || password.isEmpty())
+            {
+                ready(connected);
+                return;
+            }
+
+            // The channel is only published once AUTH went through
+            write(connected, new String[] {"AUTH", password}).whenComplete((reply, throwable) ->
+            {
+                if (throwable == null)
+                {
+                    ready(connected);
+                    return;
+                }
+
+                this.logger.log(Level.SEVERE, "[AsyncRedis] Authentication refused by redis server : " + throwable.getMessage());
+                connected.close();
+            });
+        });
+    }
+
+    private void ready(Channel connected)
+    {
+        this.reconnectDelay = 1000L;
+        this.channel = connected;
+    }
+
+    private void scheduleReconnect()
+    {
+        if (this.closed)
+            return;
+
+        long delay = this.reconnectDelay;
+        this.reconnectDelay = Math.min(this.reconnectDelay * 2, MAX_RECONNECT_DELAY);
+        this.group.schedule(this::connect, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Send a raw command, the reply is a String, a Long, a List or null
+     */
+    public CompletableFuture<Object> command(String... args)
+    {
+        Channel current = this.channel;
+
+        if (current == null || !current.isActive())
+        {
+            CompletableFuture<Object> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new JedisConnectionException("Async redis connection is not available"));
+            return failed;
+        }
+
+        CompletableFuture<Object> future = new CompletableFuture<>();
+
+        current.eventLoop().execute(() ->
+        {
+            if (!current.isActive())
+                future.completeExceptionally(new JedisConnectionException("Async redis connection lost"));
+            else
+                write(current, args).whenComplete((reply, throwable) ->
+                {
+                    if (throwable != null)
+                        future.completeExceptionally(throwable);
+                    else
+                        future.complete(reply);
+                });
+        });
+
+        ScheduledFuture<?> timeout = current.eventLoop().schedule(() -> future.completeExceptionally(new TimeoutException("Redis command " + args[0] + " timed out")), this.server.getTimeout(), TimeUnit.MILLISECONDS);
+        future.whenComplete((reply, throwable) -> timeout.cancel(false));
+
+        return future;
+    }
+
+    /**
+     * Queue a command on the given connection, must run on its event loop
+     */
+    private CompletableFuture<Object> write(Channel channel, String[] args)
+    {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        channel.pipeline().get(ReplyHandler.class).pending.add(future);
+
+        channel.writeAndFlush(args).addListener((ChannelFuture written) ->
+        {
+            if (written.isSuccess())
+                return;
+
+            // The reply will never come, drop the connection so the queue cannot shift
+            future.completeExceptionally(new JedisConnectionException("Cannot write to redis server", written.cause()));
+            written.channel().close();
+        });
+
+        return future;
+    }
+
+    @Override
+    public CompletableFuture<String> get(String key)
+    {
+        return command("GET", key).thenApply(reply -> (String) reply);
+    }
+
+    @Override
+    public CompletableFuture<String> set(String key, String value)
+    {
+        return command("SET", key, value).thenApply(reply -> (String) reply);
+    }
+
+    @Override
+    public CompletableFuture<String> setex(String key, int seconds, String value)
+    {
+        return command("SETEX", key, String.valueOf(seconds), value).thenApply(reply -> (String) reply);
+    }
+
+    @Override
+    public CompletableFuture<Long> del(String key)
+    {
+        return command("DEL", key).thenApply(reply -> (Long) reply);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> exists(String key)
+    {
+        return command("EXISTS", key).thenApply(reply -> (Long) reply > 0);
+    }
+
+    @Override
+    public CompletableFuture<Long> expire(String key, int seconds)
+    {
+        return command("EXPIRE", key, String.valueOf(seconds)).thenApply(reply -> (Long) reply);
+    }
+
+    @Override
+    public CompletableFuture<String> hget(String key, String field)
+    {
+        return command("HGET", key, field).thenApply(reply -> (String) reply);
+    }
+
+    @Override
+    public CompletableFuture<Long> hset(String key, String field, String value)
+    {
+        return command("HSET", key, field, value).thenApply(reply -> (Long) reply);
+    }
+
+    @Override
+    public CompletableFuture<Long> hdel(String key, String field)
+    {
+        return command("HDEL", key, field).thenApply(reply -> (Long) reply);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public CompletableFuture<Map<String, String>> hgetAll(String key)
+    {
+        return command("HGETALL", key).thenApply(reply ->
+        {
+            List<Object> list = (List<Object>) reply;
+            Map<String, String> map = new HashMap<>(list.size());
+
+            for (int i = 0; i + 1 < list.size(); i += 2)
+                map.put((String) list.get(i), (String) list.get(i + 1));
+
+            return map;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Long> sadd(String key, String... members)
+    {
+        return command(prepend("SADD", key, members)).thenApply(reply -> (Long) reply);
+    }
+
+    @Override
+    public CompletableFuture<Long> srem(String key, String... members)
+    {
+        return command(prepend("SREM", key, members)).thenApply(reply -> (Long) reply);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public CompletableFuture<Set<String>> smembers(String key)
+    {
+        return command("SMEMBERS", key).thenApply(reply ->
+        {
+            Set<String> set = new HashSet<>();
+            ((List<Object>) reply).forEach(member -> set.add((String) member));
+            return set;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Long> publish(String channel, String message)
+    {
+        return command("PUBLISH", channel, message).thenApply(reply -> (Long) reply);
+    }
+
+    @Override
+    public void close()
+    {
+        this.closed = true;
+
+        Channel current = this.channel;
+        if (current != null)
+            current.close();
+
+        this.group.shutdownGracefully(0, 2, TimeUnit.SECONDS);
+    }
+
+    private static String[] prepend(String command, String key, String[] members)
+    {
+        String[] args = new String[members.length + 2];
+        args[0] = command;
+        args[1] = key;
+        System.arraycopy(members, 0, args, 2, members.length);
+
+        return args;
+    }
+
+    private class ReplyHandler extends SimpleChannelInboundHandler<Object>
+    {
+        private final ArrayDeque<CompletableFuture<Object>> pending = new ArrayDeque<>();
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, Object reply)
+        {
+            CompletableFuture<Object> future = this.pending.poll();
+
+            if (future == null)
+                return;
+
+            if (reply instanceof JedisDataException)
+                future.completeExceptionally((JedisDataException) reply);
+            else
+                future.complete(reply == NULL_REPLY ? null : reply);
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx)
+        {
+            JedisConnectionException exception = new JedisConnectionException("Async redis connection lost");
+            CompletableFuture<Object> future;
+
+            while ((future = this.pending.poll()) != null)
+                future.completeExceptionally(exception);
+
+            if (channel == ctx.channel())
+                channel = null;
+
+            if (!closed)
+            {
+                logger.log(Level.WARNING, "[AsyncRedis] Connection lost, reconnecting.");
+                scheduleReconnect();
+            }
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause)
+        {
+            logger.log(Level.SEVERE, "[AsyncRedis] Error on redis connection", cause);
+            ctx.close();
+        }
+    }
+
+    private static class RedisEncoder extends MessageToByteEncoder<String[]>
+    {
+        @Override
+        protected void encode(ChannelHandlerContext ctx, String[] args, ByteBuf out)
+        {
+            writeHeader(out, '*', args.length);
+
+            for (String arg : args)
+            {
+                byte[] bytes = arg.getBytes(StandardCharsets.UTF_8);
+                writeHeader(out, '$', bytes.length);
+                out.writeBytes(bytes);
+                out.writeByte('\r');
+                out.writeByte('\n');
+            }
+        }
+
+        private static void writeHeader(ByteBuf out, char type, int length)
+        {
+            out.writeByte(type);
+            out.writeBytes(String.valueOf(length).getBytes(StandardCharsets.US_ASCII));
+            out.writeByte('\r');
+            out.writeByte('\n');
+        }
+    }
+
+    private static class RedisDecoder extends ByteToMessageDecoder
+    {
+        private static final Object INCOMPLETE = new Object();
+
+        @Override
+        protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out)
+        {
+            while (in.isReadable())
+            {
+                in.markReaderIndex();
+                Object reply = parse(in);
+
+                if (reply == INCOMPLETE)
+                {
+                    in.resetReaderIndex();
+                    return;
+                }
+
+                out.add(reply == null ? NULL_REPLY : reply);
+            }
+        }
+
+        private static Object parse(ByteBuf in)
+        {
+            if (!in.isReadable())
+                return INCOMPLETE;
+
+            byte type = in.readByte();
+            String line = readLine(in);
+
+            if (line == null)
+                return INCOMPLETE;
+
+            switch (type)
+            {
+                case '+':
+                    return line;
+                case '-':
+                    return new JedisDataException(line);
+                case ':':
+                    return Long.parseLong(line);
+                case '$':
+                {
+                    int length = Integer.parseInt(line);
+                    if (length < 0)
+                        return null;
+                    if (in.readableBytes() < length + 2)
+                        return INCOMPLETE;
+
+                    String value = in.toString(in.readerIndex(), length, StandardCharsets.UTF_8);
+                    in.skipBytes(length + 2);
+                    return value;
+                }
+                case '*':
+                {
+                    int count = Integer.parseInt(line);
+                    if (count < 0)
+                        return null;
+
+                    List<Object> list = new ArrayList<>(count);
+                    for (int i = 0; i < count; i++)
+                    {
+                        Object element = parse(in);
+                        if (element == INCOMPLETE)
+                            return INCOMPLETE;
+                        list.add(element);
+                    }
+                    return list;
+                }
+                default:
+                    throw new DecoderException("Unknown redis reply type: " + (char) type);
+            }
+        }
+
+        private static String readLine(ByteBuf in)
+        {
+            int end = in.indexOf(in.readerIndex(), in.writerIndex(), (byte) '\n');
+
+            if (end < 0)
+                return null;
+
+            String line = in.toString(in.readerIndex(), end - in.readerIndex() - 1, StandardCharsets.US_ASCII);
+            in.readerIndex(end + 1);
+
+            return line;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package net.samagames.core.database.async;
+
+import net.samagames.core.database.DatabaseConnector;
+import redis.clients.jedis.Jedis;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/*
+ * This file is part of SamaGamesCore.
+ *
+ * SamaGamesCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SamaGamesCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SamaGamesCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * Default backend: blocking Jedis calls moved on the plugin executor
+ */
+public class PooledRedisClient implements AsyncRedisClient
+{
+    private final DatabaseConnector connector;
+    private final Executor executor;
+
+    public PooledRedisClient(DatabaseConnector connector, Executor executor)
+    {
+        this.connector = connector;
+        this.executor = executor;
+    }
+
+    private <T> CompletableFuture<T> submit(Function<Jedis, T> command)
+    {
+        return CompletableFuture.supplyAsync(() ->
+        {
+            try (Jedis jedis = this.connector.getBungeeResource())
+            {
+                return command.apply(jedis);
+            }
+        }, this.executor);
+    }
+
+    @Override
+    public CompletableFuture<String> get(String key)
+    {
+        return submit(jedis -> jedis.get(key));
+    }
+
+    @Override
+    public CompletableFuture<String> set(String key, String value)
+    {
+        return submit(jedis -> jedis.set(key, value));
+    }
+
+    @Override
+    public CompletableFuture<String> setex(String key, int seconds, String value)
+    {
+        return submit(jedis -> jedis.setex(key, seconds, value));
+    }
+
+    @Override
+    public CompletableFuture<Long> del(String key)
+    {
+        return submit(jedis -> jedis.del(key));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> exists(String key)
+    {
+        return submit(jedis -> jedis.exists(key));
+    }
+
+    @Override
+    public CompletableFuture<Long> expire(String key, int seconds)
+    {
+        return submit(jedis -> jedis.expire(key, seconds));
+    }
+
+    @Override
+    public CompletableFuture<String> hget(String key, String field)
+    {
+        return submit(jedis -> jedis.hget(key, field));
+    }
+
+    @Override
+    public CompletableFuture<Long> hset(String key, String field, String value)
+    {
+        return submit(jedis -> jedis.hset(key, field, value));
+    }
+
+    @Override
+    public CompletableFuture<Long> hdel(String key, String field)
+    {
+        return submit(jedis -> jedis.hdel(key, field));
+    }
+
+    @Override
+    public CompletableFuture<Map<String, String>> hgetAll(String key)
+    {
+        return submit(jedis -> jedis.hgetAll(key));
+    }
+
+    @Override
+    public CompletableFuture<Long> sadd(String key, String... members)
+    {
+        return submit(jedis -> jedis.sadd(key, members));
+    }
+
+    @Override
+    public CompletableFuture<Long> srem(String key, String... members)
+    {
+        return submit(jedis -> jedis.srem(key, members));
+    }
+
+    @Override
+    public CompletableFuture<Set<String>> smembers(String key)
+    {
+        return submit(jedis -> jedis.smembers(key));
+    }
+
+    @Override
+    public CompletableFuture<Long> publish(String channel, String message)
+    {
+        return submit(jedis -> jedis.publish(channel, message));
+    }
+
+    @Override
+    public void close()
+    {
+        // Connections belong to the pool
+    }
+}
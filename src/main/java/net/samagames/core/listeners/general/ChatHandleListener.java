@@ -96,7 +96,7 @@ public class ChatHandleListener extends APIListener implements IPacketsReceiver
         removeMute(p.getUniqueId());
     }
 
-    private String replaceColors(String message)
+    public static String replaceColors(String message)
     {
         String s = message;
         for (org.bukkit.ChatColor color : org.bukkit.ChatColor.values())
@@ -106,6 +106,50 @@ public class ChatHandleListener extends APIListener implements IPacketsReceiver
         return s;
     }
 
+    /**
+     * Replace blacklisted words, by their configured replacement or by random symbols
+     */
+    public static String censor(String message, Map<String, String> blacklist)
+    {
+        String checkBlacklisted = message.toLowerCase();
+        char[] endings = {'.', ',', ';', ':', '?', '!'};
+
+        for (String blacklistedWord : blacklist.keySet())
+        {
+            boolean containsWithSpecial = false;
+
+            for (char ending : endings)
+            {
+                if (checkBlacklisted.contains(blacklistedWord + ending))
+                {
+                    containsWithSpecial = true;
+                    break;
+                }
+            }
+
+            if (checkBlacklisted.equals(blacklistedWord) || checkBlacklisted.startsWith(blacklistedWord + " ") || checkBlacklisted.endsWith(" " + blacklistedWord) || checkBlacklisted.contains(" " + blacklistedWord + " ") || containsWithSpecial)
+            {
+                if (blacklist.get(blacklistedWord) == null)
+                {
+                    char[] replaceChars = {'#', '!', '@', '?', '$'};
+                    Random random = new Random();
+                    StringBuilder builder = new StringBuilder();
+
+                    for (int i = 0; i < blacklistedWord.length(); i++)
+                        builder.append(replaceChars[random.nextInt(replaceChars.length)]);
+
+                    message = message.replaceAll("(?i)" + blacklistedWord, builder.toString());
+                }
+                else
+                {
+                    message = message.replaceAll("(?i)" + blacklistedWord, blacklist.get(blacklistedWord));
+                }
+            }
+        }
+
+        return message;
+    }
+
     @EventHandler(priority = EventPriority.HIGHEST)
     public void onChatFormat(AsyncPlayerChatEvent event)
     {
@@ -231,41 +275,7 @@ public class ChatHandleListener extends APIListener implements IPacketsReceiver
             event.setCancelled(true);
         }
 
-        String checkBlacklisted = message.toLowerCase();
-        char[] endings = {'.', ',', ';', ':', '?', '!'};
-
-        for (String blacklistedWord : blacklist.keySet())
-        {
-            boolean containsWithSpecial = false;
-
-            for (char ending : endings)
-            {
-                if (checkBlacklisted.contains(blacklistedWord + ending))
-                {
-                    containsWithSpecial = true;
-                    break;
-                }
-            }
-
-            if (checkBlacklisted.equals(blacklistedWord) || checkBlacklisted.startsWith(blacklistedWord + " ") || checkBlacklisted.endsWith(" " + blacklistedWord) || checkBlacklisted.contains(" " + blacklistedWord + " ") || containsWithSpecial)
-            {
-                if (blacklist.get(blacklistedWord) == null)
-                {
-                    char[] replaceChars = {'#', '!', '@', '?', '$'};
-                    Random random = new Random();
-                    StringBuilder builder = new StringBuilder();
-
-                    for (int i = 0; i < blacklistedWord.length(); i++)
-                        builder.append(replaceChars[random.nextInt(replaceChars.length)]);
-
-                    message = message.replaceAll("(?i)" + blacklistedWord, builder.toString());
-                }
-                else
-                {
-                    message = message.replaceAll("(?i)" + blacklistedWord, blacklist.get(blacklistedWord));
-                }
-            }
-        }
+        message = censor(message, blacklist);
 
         event.setMessage(message);
     }
@@ -11,7 +11,7 @@ import org.bukkit.event.Listener;
 import org.bukkit.event.player.*;
 
 import java.util.UUID;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.TimeoutException;
 
 /*
  * This file is part of SamaGamesCore.
@@ -32,65 +32,48 @@ import java.util.concurrent.atomic.AtomicInteger;
 public class GlobalJoinListener implements Listener {
 
     private ApiImplementation api;
+    private final LoginPipeline loginPipeline;
+    private final LoginStatistics loginStatistics;
+    private final long slowLoginThreshold;
 
     public GlobalJoinListener(ApiImplementation api)
     {
 
         this.api = api;
+        this.loginStatistics = api.getLoginStatistics();
+        this.loginPipeline = new LoginPipeline(api, api.getPlugin().getExecutor(), api.getPlugin().getDataConfiguration().getLong("login-timeout", 10000L), loginStatistics);
+        this.slowLoginThreshold = api.getPlugin().getDataConfiguration().getLong("login-slow-threshold", 2000L);
+    }
+
+    public LoginPipeline getLoginPipeline()
+    {
+        return loginPipeline;
     }
 
     @EventHandler(priority = EventPriority.LOWEST)
     public void onPlayerPreJoin(AsyncPlayerPreLoginEvent event)
     {
+        long startTime = System.nanoTime();
+        LoginTrace trace = new LoginTrace(event.getUniqueId(), event.getName());
+
         try{
-            long startTime = System.currentTimeMillis();
-            UUID player = event.getUniqueId();
-
-            //First load main data
-            api.getPlayerManager().loadPlayer(player);
-            AtomicInteger number = new AtomicInteger(0);
-
-            api.getPlugin().getExecutor().execute(() -> {
-                //Load permissions
-                api.getPermissionsManager().loadPlayer(player);
-                number.incrementAndGet();
-            });
-
-            api.getPlugin().getExecutor().execute(() -> {
-                api.getSettingsManager().loadPlayer(player);
-                number.incrementAndGet();
-            });
-
-            api.getPlugin().getExecutor().execute(() -> {
-                api.getStatsManager().loadPlayer(player);
-                number.incrementAndGet();
-            });
-
-            api.getPlugin().getExecutor().execute(() -> {
-                api.getShopsManager().loadPlayer(player);
-                number.incrementAndGet();
-            });
-
-            api.getPlugin().getExecutor().execute(() -> {
-                api.getFriendsManager().loadPlayer(player);
-                number.incrementAndGet();
-            });
-
-            api.getPlugin().getExecutor().execute(() -> {
-                api.getPartiesManager().loadPlayer(player);
-                number.incrementAndGet();
-            });
-
-            api.getPlugin().getExecutor().execute(() -> {
-                api.getAchievementManager().loadPlayer(player);
-                number.incrementAndGet();
-            });
-
-            while (number.get() < 7);
+            //Load all player data, waits for every loader
+            loginPipeline.load(trace);
 
             //Load in game api
             api.getJoinManager().onLogin(event);
-            api.getPlugin().getLogger().info("AsyncPrelogin Time: " + (System.currentTimeMillis() - startTime));
+
+            loginStatistics.recordEvent("prelogin", System.nanoTime() - startTime);
+
+            if (trace.getElapsedMillis() >= slowLoginThreshold)
+                api.getPlugin().getLogger().warning("Slow login: " + trace.dump());
+            else
+                api.getPlugin().getLogger().info("AsyncPrelogin Time: " + trace.getElapsedMillis() + " " + trace);
+        }catch (TimeoutException e)
+        {
+            api.getPlugin().getLogger().warning("Login timed out after " + loginPipeline.getTimeout() + "ms: " + trace.dump());
+            event.setKickMessage("Erreur lors du chargement de votre profil.");
+            event.setLoginResult(AsyncPlayerPreLoginEvent.Result.KICK_OTHER);
         }catch (Exception e)
         {
             e.printStackTrace();
@@ -102,7 +85,7 @@ public class GlobalJoinListener implements Listener {
     @EventHandler(priority = EventPriority.LOWEST)
     public void onPlayerLogin(PlayerLoginEvent event)
     {
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
 
         //PlayerData playerData = api.getPlayerManager().getPlayerData(event.getPlayer().getUniqueId());
         /*if (playerData.hasNickname())
@@ -123,13 +106,13 @@ public class GlobalJoinListener implements Listener {
         if (permissionEntity.hasPermission("network.admin"))
             event.getPlayer().setOp(true);
 
-        api.getPlugin().getLogger().info("Login Time: " + (System.currentTimeMillis() - startTime));
+        loginStatistics.recordEvent("login", System.nanoTime() - startTime);
     }
 
     @EventHandler(priority = EventPriority.LOWEST)
     public void onPlayerJoin(PlayerJoinEvent event)
     {
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
 
         //Remove natural join message
         event.setJoinMessage("");
@@ -137,7 +120,7 @@ public class GlobalJoinListener implements Listener {
         //Game join handle
         api.getJoinManager().onJoin(event.getPlayer());
 
-        api.getPlugin().getLogger().info("Join Time: " + (System.currentTimeMillis() - startTime));
+        loginStatistics.recordEvent("join", System.nanoTime() - startTime);
     }
 
     @EventHandler(priority = EventPriority.LOWEST)
@@ -194,11 +177,6 @@ public class GlobalJoinListener implements Listener {
 
     public void onWillLeave(UUID player, String targetServer)
     {
-        //TODO save all data in redis
-        /*try{
-            api.getPlayerManager().getPlayerData(player).updateData();
-        }catch (Exception ignored){
-        }*/
         try{
             api.getSettingsManager().getSettings(player).update();
         }catch (Exception ignored){
@@ -207,5 +185,16 @@ public class GlobalJoinListener implements Listener {
             api.getStatsManager().getPlayerStats(player).updateStats();
         }catch (Exception ignored){
         }
+        try{
+            api.getPlayerManager().commitRewards(player);
+            api.getPlayerManager().getEconomyLedger().flush(player);
+        }catch (Exception ignored){
+        }
+        //Written last, it must hold the balances above
+        try{
+            api.getSessionHandoff().handOff(player);
+        }catch (Exception e){
+            e.printStackTrace();
+        }
     }
 }
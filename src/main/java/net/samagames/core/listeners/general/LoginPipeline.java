@@ -0,0 +1,350 @@
+package net.samagames.core.listeners.general;
+
+import net.samagames.core.ApiImplementation;
+import org.bukkit.Bukkit;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+
+/*
+ * This file is part of SamaGamesCore.
+ *
+ * SamaGamesCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SamaGamesCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SamaGamesCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * Loads everything a player needs before joining. Each stage starts as
+ * soon as the stages it depends on are done, independent stages run in
+ * parallel on the executor.
+ *
+ * Stages flagged {@link #PREFETCH} can also run as soon as a player is
+ * expected, the login then only waits for them to end, or reloads what
+ * the previous server may have changed since.
+ */
+public class LoginPipeline
+{
+    /**
+     * The login fails if the stage throws or did not load anything, other stages are only logged when they throw
+     */
+    private static final int REQUIRED = 1;
+    /**
+     * The stage can run before the login, if the server the player comes from
+     * writes its data it must be given a reload
+     */
+    private static final int PREFETCH = 2;
+
+    private static final long PREFETCH_EXPIRY = 30 * 1000L;
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final ApiImplementation api;
+    private final ScheduledExecutorService executor;
+    private final long timeout;
+    private final LoginStatistics statistics;
+    private final List<Stage> stages = new ArrayList<>();
+    private final Map<UUID, CompletableFuture<Void>> prefetched = new HashMap<>();
+
+    public LoginPipeline(ApiImplementation api, ScheduledExecutorService executor, long timeout, LoginStatistics statistics)
+    {
+        this.api = api;
+        this.executor = executor;
+        this.timeout = timeout;
+        this.statistics = statistics;
+
+        // Stages must be declared after the ones they depend on
+        // Settings and stats are saved by the previous server when the player leaves it, they can't be prefetched
+        // What the previous server handed over replaces most database reads, it is only found once the player left it:
+        // read at login, it replaces what was prefetched before
+        this.stage("handoff", api.getSessionHandoff()::receive, api.getSessionHandoff()::isReceived, 0);
+        // Balances may have changed on the previous server since the prefetch, they are read again at login
+        this.stage("playerdata", api.getPlayerManager()::loadPlayer, api.getPlayerManager()::isLoaded, api.getPlayerManager()::reloadPlayer, REQUIRED | PREFETCH, "handoff");
+        this.stage("permissions", api.getPermissionsManager()::loadPlayer, player -> api.getPermissionsManager().getPlayer(player) != null, this.fromSession(api.getPermissionsManager()::loadPlayer), REQUIRED | PREFETCH, "playerdata");
+        this.stage("settings", api.getSettingsManager()::loadPlayer, null, 0, "playerdata");
+        this.stage("stats", api.getStatsManager()::loadPlayer, null, 0, "playerdata");
+        this.stage("shops", api.getShopsManager()::loadPlayer, player -> api.getShopsManager().getPlayer(player) != null, this.fromSession(api.getShopsManager()::loadPlayer), PREFETCH, "playerdata");
+        this.stage("friends", api.getFriendsManager()::loadPlayer, null, 0, "playerdata");
+        this.stage("parties", api.getPartiesManager()::loadPlayer, null, 0, "playerdata");
+        this.stage("achievements", api.getAchievementManager()::loadPlayer, null, 0, "playerdata");
+    }
+
+    private void stage(String name, Consumer<UUID> loader, Predicate<UUID> loaded, int flags, String... dependencies)
+    {
+        this.stage(name, loader, loaded, null, flags, dependencies);
+    }
+
+    /**
+     * A prefetched stage only waits for its prefetched dependencies when it is prefetched, and for all of them at login
+     *
+     * @param loaded tells if the stage data is in cache, needed by {@link #REQUIRED} and {@link #PREFETCH} stages
+     * @param reload run at login instead of the loader when the data was prefetched, null to keep it as is
+     */
+    private void stage(String name, Consumer<UUID> loader, Predicate<UUID> loaded, Consumer<UUID> reload, int flags, String... dependencies)
+    {
+        if (flags != 0 && loaded == null)
+            throw new IllegalArgumentException("Stage " + name + " needs a loaded check");
+
+        for (String dependency : dependencies)
+        {
+            Stage parent = this.stages.stream().filter(stage -> stage.name.equals(dependency)).findFirst().orElse(null);
+
+            if (parent == null)
+                throw new IllegalArgumentException("Stage " + name + " depends on unknown stage " + dependency);
+        }
+
+        this.stages.add(new Stage(name, loader, loaded, reload, flags, Arrays.asList(dependencies)));
+    }
+
+    /**
+     * Reload that runs the loader again only if the previous server handed a session over
+     */
+    private Consumer<UUID> fromSession(Consumer<UUID> loader)
+    {
+        return player ->
+        {
+            if (this.api.getSessionHandoff().isReceived(player))
+                loader.accept(player);
+        };
+    }
+
+    /**
+     * Start loading the prefetchable data of players about to join.
+     * Players of a party are all started at once.
+     */
+    public void prefetch(Collection<UUID> players)
+    {
+        for (UUID player : players)
+        {
+            CompletableFuture<Void> all;
+
+            synchronized (this.prefetched)
+            {
+                if (this.prefetched.containsKey(player) || Bukkit.getPlayer(player) != null)
+                    continue;
+
+                Map<String, CompletableFuture<Void>> futures = new HashMap<>();
+
+                for (Stage stage : this.stages)
+                {
+                    if (!stage.is(PREFETCH))
+                        continue;
+
+                    CompletableFuture<?>[] dependencies = stage.dependencies.stream().map(futures::get).filter(Objects::nonNull).toArray(CompletableFuture[]::new);
+                    futures.put(stage.name, CompletableFuture.allOf(dependencies).thenRunAsync(() -> stage.loader.accept(player), this.executor));
+                }
+
+                all = CompletableFuture.allOf(futures.values().toArray(new CompletableFuture[futures.size()]));
+                this.prefetched.put(player, all);
+            }
+
+            try
+            {
+                this.executor.schedule(() -> this.expire(player, all), PREFETCH_EXPIRY, TimeUnit.MILLISECONDS);
+            }
+            catch (RejectedExecutionException ignored)
+            {
+                // Shutting down
+            }
+        }
+    }
+
+    /**
+     * The player never came, drop the prefetched data
+     */
+    private void expire(UUID player, CompletableFuture<Void> prefetch)
+    {
+        CompletableFuture<Void> cleanup;
+
+        synchronized (this.prefetched)
+        {
+            if (!this.prefetched.remove(player, prefetch))
+                return;
+
+            // Takes the prefetch place: a login claiming it waits for the removal, then loads everything again
+            cleanup = prefetch.handle((ignored, throwable) -> null).thenRunAsync(() ->
+            {
+                if (Bukkit.getPlayer(player) == null)
+                    this.unload(player);
+            }, this.executor);
+
+            this.prefetched.put(player, cleanup);
+        }
+
+        cleanup.whenComplete((ignored, throwable) ->
+        {
+            synchronized (this.prefetched)
+            {
+                this.prefetched.remove(player, cleanup);
+            }
+        });
+    }
+
+    private CompletableFuture<Void> claim(UUID player)
+    {
+        synchronized (this.prefetched)
+        {
+            return this.prefetched.remove(player);
+        }
+    }
+
+    /**
+     * Run every stage for the player and wait for them, stage timings go in the trace
+     *
+     * @throws TimeoutException if everything was not loaded within the login timeout
+     * @throws ExecutionException if a required stage failed
+     */
+    public void load(LoginTrace trace) throws InterruptedException, ExecutionException, TimeoutException
+    {
+        UUID player = trace.getPlayer();
+        CompletableFuture<Void> prefetch = this.claim(player);
+        Map<String, CompletableFuture<Void>> futures = new HashMap<>();
+
+        for (Stage stage : this.stages)
+        {
+            CompletableFuture<?>[] dependencies = stage.dependencies.stream().map(futures::get).toArray(CompletableFuture[]::new);
+            CompletableFuture<Void> ready = CompletableFuture.allOf(dependencies);
+
+            // A failed prefetch is not fatal, the stage is just run again
+            if (prefetch != null)
+                ready = CompletableFuture.allOf(ready, prefetch.handle((ignored, throwable) -> null));
+
+            futures.put(stage.name, ready.thenRunAsync(() -> this.run(stage, trace, prefetch != null), this.executor));
+        }
+
+        CompletableFuture<Void> all = CompletableFuture.allOf(futures.values().toArray(new CompletableFuture[futures.size()]));
+
+        try
+        {
+            all.get(this.timeout, TimeUnit.MILLISECONDS);
+            this.api.getSessionHandoff().forget(player);
+        }
+        catch (InterruptedException | ExecutionException | TimeoutException e)
+        {
+            // The player will not join, drop whatever was (or will still be) loaded
+            all.handle((ignored, throwable) -> null).thenRunAsync(() -> this.unload(player), this.executor);
+            throw e;
+        }
+    }
+
+    private void run(Stage stage, LoginTrace trace, boolean prefetched)
+    {
+        Consumer<UUID> loader = stage.loader;
+
+        if (prefetched && stage.is(PREFETCH) && stage.loaded.test(trace.getPlayer()))
+        {
+            if (stage.reload == null)
+            {
+                trace.prefetched(stage.name);
+                return;
+            }
+
+            loader = stage.reload;
+        }
+
+        boolean cpuTime = THREADS.isCurrentThreadCpuTimeSupported();
+        long cpuStart = cpuTime ? THREADS.getCurrentThreadCpuTime() : 0;
+        long start = System.nanoTime();
+
+        trace.begin(stage.name);
+
+        try
+        {
+            loader.accept(trace.getPlayer());
+        }
+        catch (RuntimeException e)
+        {
+            if (stage.is(REQUIRED))
+                throw e;
+
+            // The player can play without it, the data is loaded again on the next login
+            this.api.getPlugin().getLogger().log(Level.WARNING, "Login stage " + stage.name + " failed for " + trace.getPlayer() + ", continuing without it", e);
+        }
+        finally
+        {
+            long wall = System.nanoTime() - start;
+            long cpu = cpuTime ? THREADS.getCurrentThreadCpuTime() - cpuStart : -1;
+
+            trace.end(stage.name, wall, cpu);
+            this.statistics.recordStage(stage.name, wall, cpu);
+        }
+
+        if (stage.is(REQUIRED) && !stage.loaded.test(trace.getPlayer()))
+            throw new IllegalStateException("Login stage " + stage.name + " failed for " + trace.getPlayer());
+    }
+
+    private void unload(UUID player)
+    {
+        try
+        {
+            this.api.getPartiesManager().unloadPlayer(player);
+            this.api.getFriendsManager().unloadPlayer(player);
+            this.api.getSettingsManager().unloadPlayer(player);
+            this.api.getStatsManager().unloadPlayer(player);
+            this.api.getShopsManager().unloadPlayer(player);
+            this.api.getAchievementManager().unloadPlayer(player);
+            this.api.getPermissionsManager().unloadPlayer(player);
+            this.api.getPlayerManager().unloadPlayer(player);
+            this.api.getSessionHandoff().forget(player);
+        }
+        catch (Exception e)
+        {
+            e.printStackTrace();
+        }
+    }
+
+    public long getTimeout()
+    {
+        return this.timeout;
+    }
+
+    private static class Stage
+    {
+        private final String name;
+        private final Consumer<UUID> loader;
+        private final Predicate<UUID> loaded;
+        private final Consumer<UUID> reload;
+        private final int flags;
+        private final List<String> dependencies;
+
+        private Stage(String name, Consumer<UUID> loader, Predicate<UUID> loaded, Consumer<UUID> reload, int flags, List<String> dependencies)
+        {
+            this.name = name;
+            this.loader = loader;
+            this.loaded = loaded;
+            this.reload = reload;
+            this.flags = flags;
+            this.dependencies = dependencies;
+        }
+
+        private boolean is(int flag)
+        {
+            return (this.flags & flag) != 0;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package net.samagames.core.listeners.general;
+
+import net.samagames.core.utils.LatencyHistogram;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * This file is part of SamaGamesCore.
+ *
+ * SamaGamesCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SamaGamesCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SamaGamesCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * Login time histograms: wall and CPU time per loader, and the time of
+ * each login event. Wall minus CPU is the time spent waiting on SQL and
+ * redis.
+ */
+public class LoginStatistics
+{
+    private final Map<String, LatencyHistogram> wallTimes = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> cpuTimes = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> eventTimes = new ConcurrentHashMap<>();
+
+    public void recordStage(String stage, long wallNanos, long cpuNanos)
+    {
+        this.wallTimes.computeIfAbsent(stage, key -> new LatencyHistogram()).record(wallNanos);
+
+        if (cpuNanos >= 0)
+            this.cpuTimes.computeIfAbsent(stage, key -> new LatencyHistogram()).record(cpuNanos);
+    }
+
+    /**
+     * @param event prelogin, login or join
+     */
+    public void recordEvent(String event, long nanos)
+    {
+        this.eventTimes.computeIfAbsent(event, key -> new LatencyHistogram()).record(nanos);
+    }
+
+    public Map<String, LatencyHistogram> getWallTimes()
+    {
+        return this.wallTimes;
+    }
+
+    public Map<String, LatencyHistogram> getCpuTimes()
+    {
+        return this.cpuTimes;
+    }
+
+    public Map<String, LatencyHistogram> getEventTimes()
+    {
+        return this.eventTimes;
+    }
+
+    public void reset()
+    {
+        this.wallTimes.values().forEach(LatencyHistogram::reset);
+        this.cpuTimes.values().forEach(LatencyHistogram::reset);
+        this.eventTimes.values().forEach(LatencyHistogram::reset);
+    }
+
+    public String summary()
+    {
+        StringBuilder builder = new StringBuilder();
+
+        for (Map.Entry<String, LatencyHistogram> entry : new TreeMap<>(this.eventTimes).entrySet())
+            builder.append(entry.getKey()).append(": ").append(entry.getValue().summary()).append('\n');
+
+        for (Map.Entry<String, LatencyHistogram> entry : new TreeMap<>(this.wallTimes).entrySet())
+        {
+            LatencyHistogram cpu = this.cpuTimes.get(entry.getKey());
+
+            builder.append(entry.getKey()).append(": ").append(entry.getValue().summary());
+
+            if (cpu != null)
+                builder.append(String.format(" cpu p50=%.2fms p99=%.2fms", cpu.getPercentile(50) / 1000.0D, cpu.getPercentile(99) / 1000.0D));
+
+            builder.append('\n');
+        }
+
+        return builder.toString();
+    }
+}
@@ -0,0 +1,126 @@
+package net.samagames.core.listeners.general;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * This file is part of SamaGamesCore.
+ *
+ * SamaGamesCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SamaGamesCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SamaGamesCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * Timings of one login, dumped when the login is slow or times out
+ */
+public class LoginTrace
+{
+    private final UUID player;
+    private final String name;
+    private final long start = System.nanoTime();
+
+    private final Map<String, long[]> stages = Collections.synchronizedMap(new LinkedHashMap<>());
+    private final Map<String, Thread> running = new ConcurrentHashMap<>();
+
+    public LoginTrace(UUID player, String name)
+    {
+        this.player = player;
+        this.name = name;
+    }
+
+    void begin(String stage)
+    {
+        this.running.put(stage, Thread.currentThread());
+    }
+
+    void end(String stage, long wallNanos, long cpuNanos)
+    {
+        this.running.remove(stage);
+        this.stages.put(stage, new long[] {wallNanos, cpuNanos});
+    }
+
+    /**
+     * Stage skipped, its data was loaded before the login
+     */
+    void prefetched(String stage)
+    {
+        this.stages.put(stage, null);
+    }
+
+    public UUID getPlayer()
+    {
+        return this.player;
+    }
+
+    public long getElapsedMillis()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - this.start);
+    }
+
+    /**
+     * One line per stage, with the stack of the stages still running
+     */
+    public String dump()
+    {
+        StringBuilder builder = new StringBuilder();
+        builder.append("Login of ").append(this.name).append(" (").append(this.player).append(") took ").append(getElapsedMillis()).append("ms");
+
+        synchronized (this.stages)
+        {
+            for (Map.Entry<String, long[]> entry : this.stages.entrySet())
+            {
+                if (entry.getValue() == null)
+                {
+                    builder.append("\n  ").append(entry.getKey()).append(": prefetched");
+                    continue;
+                }
+
+                long wall = entry.getValue()[0];
+                long cpu = entry.getValue()[1];
+
+                builder.append("\n  ").append(entry.getKey())
+                        .append(": wall=").append(TimeUnit.NANOSECONDS.toMillis(wall)).append("ms")
+                        .append(" cpu=").append(cpu < 0 ? "?" : TimeUnit.NANOSECONDS.toMillis(cpu) + "ms")
+                        .append(" waiting=").append(cpu < 0 ? "?" : TimeUnit.NANOSECONDS.toMillis(wall - cpu) + "ms");
+            }
+        }
+
+        for (Map.Entry<String, Thread> entry : this.running.entrySet())
+        {
+            builder.append("\n  ").append(entry.getKey()).append(": still running on ").append(entry.getValue().getName());
+
+            for (StackTraceElement element : entry.getValue().getStackTrace())
+                builder.append("\n    at ").append(element);
+        }
+
+        return builder.toString();
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder builder = new StringBuilder();
+
+        synchronized (this.stages)
+        {
+            for (Map.Entry<String, long[]> entry : this.stages.entrySet())
+                builder.append(builder.length() == 0 ? "" : ", ").append(entry.getKey()).append('=').append(entry.getValue() == null ? "prefetched" : TimeUnit.NANOSECONDS.toMillis(entry.getValue()[0]) + "ms");
+        }
+
+        return "{" + builder + "}";
+    }
+}
@@ -5,7 +5,6 @@ import com.google.gson.GsonBuilder;
 import com.google.gson.JsonSyntaxException;
 import net.samagames.api.pubsub.IPacketsReceiver;
 import net.samagames.core.APIPlugin;
-import net.samagames.core.ApiImplementation;
 import net.samagames.core.api.permissions.PermissionEntity;
 import org.bukkit.Bukkit;
 
@@ -30,12 +29,10 @@ import java.util.UUID;
 public class GlobalUpdateListener implements IPacketsReceiver {
 
     private final APIPlugin plugin;
-    private ApiImplementation api;
     private final Gson gson;
 
     public GlobalUpdateListener(APIPlugin plugin) {
         this.plugin = plugin;
-        this.api = plugin.getAPI();
         this.gson = new GsonBuilder().create();
     }
 
@@ -51,14 +48,23 @@ public class GlobalUpdateListener implements IPacketsReceiver {
             {
                 if (plugin.getServer().getOnlinePlayers().size() == 0)
                     plugin.getServer().shutdown();
+            } else if (packet.equalsIgnoreCase("reloadPromotions"))
+            {
+                plugin.getExecutor().execute(() -> plugin.getAPI().getPlayerManager().getEconomyManager().reload());
             }
         }else if (channel.equals("groupchange"))
         {
             try
             {
                 GroupChangePacket packetObj = gson.fromJson(packet, GroupChangePacket.class);
-                PermissionEntity user = api.getPermissionsManager().getPlayer(packetObj.playerUUID);
-                user.refresh();
+                // The group is in the player row, the copy shared in redis is outdated
+                plugin.getAPI().getPlayerManager().invalidateShared(packetObj.playerUUID);
+                // Created while the API is still being built, it is looked up here
+                PermissionEntity user = plugin.getAPI().getPermissionsManager().getPlayer(packetObj.playerUUID);
+
+                // Group multipliers are read from the entity, keep it up to date
+                if (user != null)
+                    user.refresh();
             } catch (JsonSyntaxException ignored)
             {
                 //To be sure
@@ -0,0 +1,134 @@
+package net.samagames.core.utils;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * This file is part of SamaGamesCore.
+ *
+ * SamaGamesCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SamaGamesCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SamaGamesCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * Concurrent set whose elements go away after a delay.
+ *
+ * Add, contains and remove are O(1), contains does not lock. Expiration is
+ * done by a hashed timing wheel advanced by a single task, so it is precise
+ * to one tick. An element is in exactly one bucket, the one of its deadline.
+ */
+public class ExpiringSet<T>
+{
+    private final long tickMillis;
+    private final Map<T, Long> deadlines = new ConcurrentHashMap<>();
+    // Guarded by this, with currentTick
+    private final Set<T>[] wheel;
+    private long currentTick;
+
+    @SuppressWarnings("unchecked")
+    public ExpiringSet(ScheduledExecutorService executor, long tickMillis, int wheelSize)
+    {
+        this.tickMillis = tickMillis;
+        this.wheel = new Set[wheelSize];
+
+        for (int i = 0; i < wheelSize; i++)
+            this.wheel[i] = new HashSet<>();
+
+        executor.scheduleAtFixedRate(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Add the element, or push back its expiration if it is already there
+     */
+    public synchronized void add(T element, long ttlMillis)
+    {
+        // One extra tick, the current one is already partly elapsed
+        long deadline = this.currentTick + 1 + Math.max(1, (ttlMillis + this.tickMillis - 1) / this.tickMillis);
+        Long previous = this.deadlines.put(element, deadline);
+
+        if (previous != null)
+            this.bucket(previous).remove(element);
+
+        this.bucket(deadline).add(element);
+    }
+
+    public boolean contains(Object element)
+    {
+        return this.deadlines.containsKey(element);
+    }
+
+    public synchronized boolean remove(Object element)
+    {
+        Long deadline = this.deadlines.remove(element);
+
+        if (deadline == null)
+            return false;
+
+        this.bucket(deadline).remove(element);
+        return true;
+    }
+
+    public int size()
+    {
+        return this.deadlines.size();
+    }
+
+    public boolean isEmpty()
+    {
+        return this.deadlines.isEmpty();
+    }
+
+    /**
+     * Live view of the elements, without their expiration
+     */
+    public Set<T> elements()
+    {
+        return this.deadlines.keySet();
+    }
+
+    /**
+     * Elements in the bucket of a tick, for tests
+     */
+    synchronized int bucketSize(long tick)
+    {
+        return this.bucket(tick).size();
+    }
+
+    private Set<T> bucket(long tick)
+    {
+        return this.wheel[(int) (tick % this.wheel.length)];
+    }
+
+    private synchronized void tick()
+    {
+        long tick = ++this.currentTick;
+        Iterator<T> iterator = this.bucket(tick).iterator();
+
+        while (iterator.hasNext())
+        {
+            T element = iterator.next();
+
+            // Deadlines one or more wheel turns away stay in the bucket
+            if (this.deadlines.get(element) <= tick)
+            {
+                this.deadlines.remove(element);
+                iterator.remove();
+            }
+        }
+    }
+}
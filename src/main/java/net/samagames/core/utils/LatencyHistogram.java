@@ -0,0 +1,132 @@
+package net.samagames.core.utils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * This file is part of SamaGamesCore.
+ *
+ * SamaGamesCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SamaGamesCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SamaGamesCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * Lock-free log-linear latency histogram (HDR-like, ~6% precision).
+ *
+ * Values are recorded in nanoseconds and stored in microseconds buckets:
+ * every power of two is split in 16 linear sub-buckets.
+ */
+public class LatencyHistogram
+{
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_SHIFT = 36;
+    private static final long MAX_VALUE = (1L << (MAX_SHIFT + SUB_BUCKET_BITS + 1)) - 1;
+
+    private final AtomicLongArray buckets = new AtomicLongArray((MAX_SHIFT + 2) * SUB_BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long nanos)
+    {
+        long micros = Math.min(Math.max(TimeUnit.NANOSECONDS.toMicros(nanos), 0), MAX_VALUE);
+
+        this.buckets.incrementAndGet(indexOf(micros));
+        this.count.incrementAndGet();
+        this.total.addAndGet(micros);
+
+        long currentMax;
+        while (micros > (currentMax = this.max.get()))
+            if (this.max.compareAndSet(currentMax, micros))
+                break;
+    }
+
+    public long getCount()
+    {
+        return this.count.get();
+    }
+
+    /**
+     * @param percentile Percentile between 0 and 100
+     * @return Value at this percentile in microseconds
+     */
+    public long getPercentile(double percentile)
+    {
+        long recorded = this.count.get();
+
+        if (recorded == 0)
+            return 0;
+
+        long target = Math.max(1, (long) Math.ceil(recorded * Math.min(percentile, 100.0D) / 100.0D));
+        long seen = 0;
+
+        for (int i = 0; i < this.buckets.length(); i++)
+        {
+            seen += this.buckets.get(i);
+
+            if (seen >= target)
+                return Math.min(valueOf(i + 1) - 1, this.max.get());
+        }
+
+        return this.max.get();
+    }
+
+    public long getMax()
+    {
+        return this.max.get();
+    }
+
+    public double getMean()
+    {
+        long recorded = this.count.get();
+        return recorded == 0 ? 0 : (double) this.total.get() / recorded;
+    }
+
+    public void reset()
+    {
+        for (int i = 0; i < this.buckets.length(); i++)
+            this.buckets.set(i, 0);
+
+        this.count.set(0);
+        this.total.set(0);
+        this.max.set(0);
+    }
+
+    /**
+     * Human readable summary, in milliseconds
+     */
+    public String summary()
+    {
+        return String.format("count=%d p50=%.2fms p99=%.2fms max=%.2fms", getCount(), getPercentile(50) / 1000.0D, getPercentile(99) / 1000.0D, getMax() / 1000.0D);
+    }
+
+    private static int indexOf(long micros)
+    {
+        if (micros < SUB_BUCKETS)
+            return (int) micros;
+
+        int shift = (63 - Long.numberOfLeadingZeros(micros)) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((micros >> shift) - SUB_BUCKETS);
+    }
+
+    private static long valueOf(int index)
+    {
+        if (index < SUB_BUCKETS)
+            return index;
+
+        int shift = index / SUB_BUCKETS - 1;
+        return ((long) (index % SUB_BUCKETS + SUB_BUCKETS)) << shift;
+    }
+}
@@ -0,0 +1,379 @@
+package net.samagames.core;
+
+import com.google.gson.Gson;
+import net.samagames.core.api.player.PlayerDataManager;
+import net.samagames.core.database.EconomyStore;
+import net.samagames.core.database.EmbeddedRedisServer;
+import net.samagames.core.database.RedisServer;
+import net.samagames.persistanceapi.GameServiceManager;
+import net.samagames.persistanceapi.beans.players.GroupsBean;
+import net.samagames.persistanceapi.beans.players.PlayerBean;
+import org.bukkit.Bukkit;
+import org.bukkit.Server;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.plugin.PluginDescriptionFile;
+import org.bukkit.plugin.java.JavaPluginLoader;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/*
+ * This file is part of SamaGamesCore.
+ *
+ * SamaGamesCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SamaGamesCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SamaGamesCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * One core "server" without Bukkit: the real {@link APIPlugin} and
+ * {@link ApiImplementation}, connected to an {@link EmbeddedRedisServer} and
+ * to an in-memory {@link GameServiceManager}. Only the Bukkit server
+ * itself is a stub.
+ *
+ * Several harnesses can share the same redis and database to play a
+ * player moving between servers.
+ */
+public class CoreTestHarness implements AutoCloseable
+{
+    private static final Logger LOGGER = Logger.getLogger("CoreTestHarness");
+    private static final Gson GSON = new Gson();
+
+    private final EmbeddedRedisServer redis;
+    private final Database database;
+    private final AtomicLong databaseReads = new AtomicLong();
+    private final AtomicLong databaseWrites = new AtomicLong();
+    private final AtomicInteger economyFailures = new AtomicInteger();
+    private final AtomicLong economyTransactions = new AtomicLong();
+    private final YamlConfiguration configuration;
+    private final HeadlessPlugin plugin;
+
+    public CoreTestHarness() throws Exception
+    {
+        this(new YamlConfiguration());
+    }
+
+    /**
+     * @param configuration data.yml settings, the redis connection is filled in
+     */
+    public CoreTestHarness(YamlConfiguration configuration) throws Exception
+    {
+        this(new EmbeddedRedisServer(), new Database(), configuration);
+    }
+
+    /**
+     * A second server on the same redis and database
+     */
+    public CoreTestHarness(CoreTestHarness other) throws Exception
+    {
+        this(other, new YamlConfiguration());
+    }
+
+    public CoreTestHarness(CoreTestHarness other, YamlConfiguration configuration) throws Exception
+    {
+        this(other.redis, other.database, configuration);
+    }
+
+    private CoreTestHarness(EmbeddedRedisServer redis, Database database, YamlConfiguration configuration) throws Exception
+    {
+        this.redis = redis;
+        this.database = database;
+        this.configuration = configuration;
+
+        installServer();
+
+        RedisServer server = redis.toRedisServer();
+        configuration.set("redis-bungee-ip", server.getIp());
+        configuration.set("redis-bungee-port", server.getPort());
+        configuration.set("redis-bungee-password", server.getPassword());
+
+        if (!configuration.contains("redis-bungee-netty-async"))
+            configuration.set("redis-bungee-netty-async", true);
+
+        File dataFolder = new File(Files.createTempDirectory("samagamescore").toFile(), "plugins/SamaGamesCore");
+
+        if (!dataFolder.mkdirs())
+            throw new IllegalStateException("Cannot create " + dataFolder);
+
+        this.plugin = new HeadlessPlugin(this.createGameServiceManager(), new MemoryEconomyStore(), dataFolder);
+        this.plugin.loadHeadless("Test_" + UUID.randomUUID().toString().substring(0, 8), configuration);
+    }
+
+    /**
+     * Bukkit only takes one server per JVM, every harness shares it
+     */
+    private static synchronized void installServer()
+    {
+        if (Bukkit.getServer() != null)
+            return;
+
+        Server server = mock(Server.class, RETURNS_DEEP_STUBS);
+        when(server.getLogger()).thenReturn(LOGGER);
+        when(server.getName()).thenReturn("CoreTestHarness");
+        when(server.getVersion()).thenReturn("test");
+        when(server.getBukkitVersion()).thenReturn("test");
+        when(server.getPlayer(any(UUID.class))).thenReturn(null);
+        when(server.getPlayer(anyString())).thenReturn(null);
+        when(server.getPlayerExact(anyString())).thenReturn(null);
+        doReturn(Collections.emptyList()).when(server).getOnlinePlayers();
+
+        Bukkit.setServer(server);
+    }
+
+    /**
+     * Players are kept in memory, the other tables are empty
+     */
+    private GameServiceManager createGameServiceManager() throws Exception
+    {
+        GameServiceManager manager = mock(GameServiceManager.class);
+
+        doAnswer(invocation ->
+        {
+            this.databaseReads.incrementAndGet();
+            PlayerBean stored = this.getStoredPlayer(invocation.getArgument(0));
+            return stored != null ? stored : invocation.getArgument(1);
+        }).when(manager).getPlayer(any(UUID.class), any());
+        doAnswer(invocation ->
+        {
+            this.databaseWrites.incrementAndGet();
+            PlayerBean bean = invocation.getArgument(0);
+            this.storePlayer(this.database.ids.get(bean.getName()), bean);
+            return null;
+        }).when(manager).updatePlayer(any(PlayerBean.class));
+        doAnswer(invocation -> new GroupsBean()).when(manager).getPlayerGroup(any(PlayerBean.class));
+
+        return manager;
+    }
+
+    /**
+     * data.yml as given to the core
+     */
+    public YamlConfiguration getConfiguration()
+    {
+        return this.configuration;
+    }
+
+    public APIPlugin getPlugin()
+    {
+        return this.plugin;
+    }
+
+    public ApiImplementation getApi()
+    {
+        return this.plugin.getAPI();
+    }
+
+    public EmbeddedRedisServer getRedis()
+    {
+        return this.redis;
+    }
+
+    public PlayerDataManager getPlayerDataManager()
+    {
+        return this.getApi().getPlayerManager();
+    }
+
+    /**
+     * Store a player in the in-memory database
+     *
+     * @return its uuid
+     */
+    public UUID createPlayer(String name)
+    {
+        UUID uuid = UUID.randomUUID();
+        PlayerBean bean = new PlayerBean(uuid, name, null, 500, 0, 0, null, null, null, null, 0);
+
+        this.database.ids.put(name, uuid);
+        this.storePlayer(uuid, bean);
+
+        return uuid;
+    }
+
+    /**
+     * Write a player row as another service would
+     */
+    public void storePlayer(UUID uuid, PlayerBean bean)
+    {
+        synchronized (this.database)
+        {
+            this.database.players.put(uuid, copy(bean));
+        }
+    }
+
+    /**
+     * @return a copy of the row, null if there is none
+     */
+    public PlayerBean getStoredPlayer(UUID uuid)
+    {
+        synchronized (this.database)
+        {
+            PlayerBean stored = this.database.players.get(uuid);
+            return stored != null ? copy(stored) : null;
+        }
+    }
+
+    /**
+     * Make the next economy writes of this server fail, as if the database was down
+     */
+    public void failEconomyWrites(int count)
+    {
+        this.economyFailures.set(count);
+    }
+
+    private static PlayerBean copy(PlayerBean bean)
+    {
+        return GSON.fromJson(GSON.toJson(bean), PlayerBean.class);
+    }
+
+    /**
+     * @return economy transactions written by this server
+     */
+    public long getEconomyTransactions()
+    {
+        return this.economyTransactions.get();
+    }
+
+    public long getDatabaseReads()
+    {
+        return this.databaseReads.get();
+    }
+
+    public long getDatabaseWrites()
+    {
+        return this.databaseWrites.get();
+    }
+
+    /**
+     * Only the first harness of a shared redis has to be closed last
+     */
+    @Override
+    public void close()
+    {
+        this.plugin.getExecutor().shutdownNow();
+        this.getApi().getPubSub().disable();
+        this.plugin.getDatabaseConnector().killConnection();
+    }
+
+    /**
+     * Close this server and the redis it was created with
+     */
+    public void closeAll()
+    {
+        close();
+        this.redis.close();
+    }
+
+    private static class HeadlessPlugin extends APIPlugin
+    {
+        private final GameServiceManager gameServiceManager;
+        private final EconomyStore economyStore;
+
+        private HeadlessPlugin(GameServiceManager gameServiceManager, EconomyStore economyStore, File dataFolder)
+        {
+            super(new JavaPluginLoader(Bukkit.getServer()), new PluginDescriptionFile("SamaGamesCore", "test", APIPlugin.class.getName()), dataFolder, new File(dataFolder, "SamaGamesCore.jar"));
+            this.gameServiceManager = gameServiceManager;
+            this.economyStore = economyStore;
+        }
+
+        @Override
+        protected GameServiceManager createGameServiceManager(String url, String username, String password, int minPoolSize, int maxPoolSize)
+        {
+            return this.gameServiceManager;
+        }
+
+        @Override
+        protected EconomyStore createEconomyStore(String url, String username, String password)
+        {
+            return this.economyStore;
+        }
+    }
+
+    /**
+     * Balances of the in-memory database, summed under its lock like the SQL increment
+     */
+    private class MemoryEconomyStore extends EconomyStore
+    {
+        private MemoryEconomyStore()
+        {
+            super("jdbc:memory", "", "");
+        }
+
+        @Override
+        public Map<UUID, long[]> increment(Map<UUID, long[]> deltas) throws SQLException
+        {
+            if (economyFailures.getAndUpdate(count -> Math.max(0, count - 1)) > 0)
+                throw new SQLException("Database is down");
+
+            synchronized (database)
+            {
+                for (UUID player : deltas.keySet())
+                    if (!database.players.containsKey(player))
+                        throw new SQLException("Unknown player " + player);
+
+                Map<UUID, long[]> balances = new HashMap<>();
+
+                for (Map.Entry<UUID, long[]> entry : deltas.entrySet())
+                {
+                    PlayerBean stored = database.players.get(entry.getKey());
+
+                    stored.setCoins((int) (stored.getCoins() + entry.getValue()[0]));
+                    stored.setStars((int) (stored.getStars() + entry.getValue()[1]));
+                    stored.setPowders((int) (stored.getPowders() + entry.getValue()[2]));
+
+                    balances.put(entry.getKey(), new long[] {stored.getCoins(), stored.getStars(), stored.getPowders()});
+                }
+
+                economyTransactions.incrementAndGet();
+                return balances;
+            }
+        }
+
+        @Override
+        public long[] getBalances(UUID player) throws SQLException
+        {
+            PlayerBean stored = getStoredPlayer(player);
+
+            if (stored == null)
+                throw new SQLException("Unknown player " + player);
+
+            return new long[] {stored.getCoins(), stored.getStars(), stored.getPowders()};
+        }
+
+        @Override
+        public void close()
+        {
+        }
+    }
+
+    private static class Database
+    {
+        private final Map<UUID, PlayerBean> players = new ConcurrentHashMap<>();
+        private final Map<String, UUID> ids = new ConcurrentHashMap<>();
+    }
+}
@@ -0,0 +1,147 @@
+package net.samagames.core.api.hydroangeas;
+
+import net.samagames.core.api.hydroangeas.packets.queues.QueueInfosUpdatePacket;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/*
+ * This file is part of SamaGamesCore.
+ *
+ * SamaGamesCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SamaGamesCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SamaGamesCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+public class PendingRequestsTest
+{
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    private final UUID player = UUID.randomUUID();
+
+    @After
+    public void tearDown()
+    {
+        this.executor.shutdownNow();
+    }
+
+    @Test
+    public void replyCompletesTheRequest() throws Exception
+    {
+        PendingRequests requests = new PendingRequests(this.executor, 5000L, 3);
+        CompletableFuture<QueueInfosUpdatePacket> future = new CompletableFuture<>();
+
+        int id = requests.open(this.player, future, true);
+        assertNotEquals(0, id);
+
+        QueueInfosUpdatePacket reply = reply(this.player, id);
+        assertTrue(requests.complete(reply));
+
+        assertSame(reply, future.get(1, TimeUnit.SECONDS));
+        assertEquals(0, requests.getPendingCount());
+
+        // A second reply with the same id is not matched again
+        assertFalse(requests.complete(reply(this.player, id)));
+    }
+
+    @Test
+    public void unansweredRequestTimesOut() throws Exception
+    {
+        PendingRequests requests = new PendingRequests(this.executor, 50L, 1);
+        CompletableFuture<QueueInfosUpdatePacket> future = new CompletableFuture<>();
+
+        int id = requests.open(this.player, future, true);
+
+        try
+        {
+            future.get(2, TimeUnit.SECONDS);
+            fail("The request did not time out");
+        } catch (ExecutionException e)
+        {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+
+        assertEquals(1, requests.getTimedOutCount());
+        assertEquals(0, requests.getPendingCount());
+        // Too late, and the slot is free again
+        assertFalse(requests.complete(reply(this.player, id)));
+        assertNotEquals(0, requests.open(this.player, new CompletableFuture<>(), true));
+    }
+
+    @Test
+    public void inFlightLimitIsPerPlayer()
+    {
+        PendingRequests requests = new PendingRequests(this.executor, 5000L, 2);
+
+        int first = requests.open(this.player, new CompletableFuture<>(), true);
+        assertNotEquals(0, first);
+        assertNotEquals(0, requests.open(this.player, new CompletableFuture<>(), true));
+        assertEquals(0, requests.open(this.player, new CompletableFuture<>(), true));
+        assertEquals(1, requests.getRejectedCount());
+
+        // Unlimited requests and other players are not held back
+        assertNotEquals(0, requests.open(this.player, new CompletableFuture<>(), false));
+        assertNotEquals(0, requests.open(UUID.randomUUID(), new CompletableFuture<>(), true));
+
+        // An answer frees the slot
+        assertTrue(requests.complete(reply(this.player, first)));
+        assertNotEquals(0, requests.open(this.player, new CompletableFuture<>(), true));
+    }
+
+    @Test
+    public void replyForAnotherPlayerIsIgnored()
+    {
+        PendingRequests requests = new PendingRequests(this.executor, 5000L, 3);
+        CompletableFuture<QueueInfosUpdatePacket> future = new CompletableFuture<>();
+
+        int id = requests.open(this.player, future, true);
+
+        assertFalse(requests.complete(reply(UUID.randomUUID(), id)));
+        assertFalse(requests.complete(reply(this.player, 0)));
+        assertFalse(future.isDone());
+        assertEquals(1, requests.getPendingCount());
+    }
+
+    @Test
+    public void requestOpenedWhileShuttingDownFailsAtOnce()
+    {
+        this.executor.shutdown();
+
+        PendingRequests requests = new PendingRequests(this.executor, 5000L, 3);
+        CompletableFuture<QueueInfosUpdatePacket> future = new CompletableFuture<>();
+
+        requests.open(this.player, future, true);
+
+        assertTrue(future.isCompletedExceptionally());
+        assertEquals(0, requests.getPendingCount());
+    }
+
+    private static QueueInfosUpdatePacket reply(UUID player, int requestId)
+    {
+        QueueInfosUpdatePacket packet = new QueueInfosUpdatePacket(new QPlayer(player, 0), QueueInfosUpdatePacket.Type.ADD, true, null);
+        packet.setRequestId(requestId);
+
+        return packet;
+    }
+}
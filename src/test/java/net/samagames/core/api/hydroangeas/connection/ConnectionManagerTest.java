@@ -0,0 +1,170 @@
+package net.samagames.core.api.hydroangeas.connection;
+
+import com.google.gson.Gson;
+import net.samagames.core.api.hydroangeas.HydroangeasManager;
+import net.samagames.core.api.hydroangeas.QPlayer;
+import net.samagames.core.api.hydroangeas.packets.queues.QueueAddGroupPacket;
+import net.samagames.core.api.hydroangeas.packets.queues.QueueAddPlayerPacket;
+import net.samagames.core.api.hydroangeas.packets.queues.QueueInfosUpdatePacket;
+import net.samagames.core.api.hydroangeas.packets.queues.QueuePacket;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/*
+ * This file is part of SamaGamesCore.
+ *
+ * SamaGamesCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SamaGamesCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SamaGamesCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+public class ConnectionManagerTest
+{
+    private HydroangeasManager manager;
+    private ConnectionManager connectionManager;
+
+    @Before
+    public void setUp()
+    {
+        this.manager = mock(HydroangeasManager.class);
+        this.connectionManager = new ConnectionManager(null, this.manager, true);
+    }
+
+    @Test
+    public void addPlayerPacketRoundTrips()
+    {
+        QPlayer player = new QPlayer(UUID.randomUUID(), 3);
+        QueueAddPlayerPacket packet = new QueueAddPlayerPacket(QueuePacket.TypeQueue.NAMED, "quake", "map", player);
+        packet.setRequestId(42);
+
+        QueueAddPlayerPacket decoded = (QueueAddPlayerPacket) roundTrip(packet);
+
+        assertEquals(QueuePacket.TypeQueue.NAMED, decoded.getTypeQueue());
+        assertEquals("quake", decoded.getGame());
+        assertEquals("map", decoded.getMap());
+        assertEquals("quake_map", decoded.getTemplateID());
+        assertEquals(42, decoded.getRequestId());
+        assertEquals(player.getUUID(), decoded.getPlayer().getUUID());
+        assertEquals(3, decoded.getPlayer().getPriority());
+    }
+
+    @Test
+    public void addGroupPacketRoundTrips()
+    {
+        QPlayer leader = new QPlayer(UUID.randomUUID(), 5);
+        QPlayer member = new QPlayer(UUID.randomUUID(), 1);
+        QueueAddGroupPacket packet = new QueueAddGroupPacket(QueuePacket.TypeQueue.NAMEDID, "uhc_run", leader, Arrays.asList(leader, member));
+
+        QueueAddGroupPacket decoded = (QueueAddGroupPacket) roundTrip(packet);
+
+        assertEquals("uhc_run", decoded.getTemplateID());
+        assertNull(decoded.getGame());
+        assertEquals(leader.getUUID(), decoded.getLeader().getUUID());
+        assertEquals(2, decoded.getPlayers().size());
+        assertEquals(member.getUUID(), decoded.getPlayers().get(1).getUUID());
+        assertEquals(1, decoded.getPlayers().get(1).getPriority());
+    }
+
+    @Test
+    public void infosUpdatePacketRoundTrips()
+    {
+        QueueInfosUpdatePacket packet = new QueueInfosUpdatePacket(new QPlayer(UUID.randomUUID(), 0), QueueInfosUpdatePacket.Type.ADD, false, "Queue full");
+        packet.setMessage(Arrays.asList("line 1", "line 2"));
+        packet.setRequestId(7);
+
+        QueueInfosUpdatePacket decoded = (QueueInfosUpdatePacket) roundTrip(packet);
+
+        assertEquals(QueueInfosUpdatePacket.Type.ADD, decoded.getType());
+        assertEquals(false, decoded.isSuccess());
+        assertEquals("Queue full", decoded.getErrorMessage());
+        assertEquals(Arrays.asList("line 1", "line 2"), decoded.getMessage());
+        assertEquals(7, decoded.getRequestId());
+    }
+
+    @Test
+    public void otherVersionIsRejected()
+    {
+        byte[] data = this.connectionManager.encode(new QueueAddPlayerPacket(QueuePacket.TypeQueue.FAST, "quake", null));
+        data[0] = ConnectionManager.BINARY_VERSION - 1;
+
+        try
+        {
+            this.connectionManager.decode(data);
+            throw new AssertionError("A version " + data[0] + " packet was decoded");
+        } catch (IllegalStateException e)
+        {
+            assertTrue(e.getMessage().contains("version"));
+        }
+
+        // Received on the channel it is logged and dropped
+        this.connectionManager.getPacket(data);
+        verify(this.manager, never()).handlePacket(any());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void unknownPacketIdIsRejected()
+    {
+        PacketBuffer buffer = new PacketBuffer();
+        buffer.writeByte(ConnectionManager.BINARY_VERSION);
+        buffer.writeVarInt(99);
+
+        this.connectionManager.decode(buffer.toByteArray());
+    }
+
+    @Test
+    public void binaryChannelStillAcceptsJson()
+    {
+        QPlayer player = new QPlayer(UUID.randomUUID(), 2);
+        String json = "104:" + new Gson().toJson(new QueueInfosUpdatePacket(player, QueueInfosUpdatePacket.Type.INFO, "quake", "map"));
+
+        this.connectionManager.getPacket(json.getBytes(StandardCharsets.UTF_8));
+
+        ArgumentCaptor<Packet> captor = ArgumentCaptor.forClass(Packet.class);
+        verify(this.manager).handlePacket(captor.capture());
+
+        QueueInfosUpdatePacket received = (QueueInfosUpdatePacket) captor.getValue();
+        assertEquals(QueueInfosUpdatePacket.Type.INFO, received.getType());
+        assertEquals(player.getUUID(), received.getPlayer().getUUID());
+    }
+
+    @Test
+    public void binaryPacketIsHandled()
+    {
+        this.connectionManager.getPacket(this.connectionManager.encode(new QueueAddPlayerPacket(QueuePacket.TypeQueue.FAST, "quake", null)));
+
+        verify(this.manager).handlePacket(any(QueueAddPlayerPacket.class));
+    }
+
+    private Packet roundTrip(Packet packet)
+    {
+        byte[] data = this.connectionManager.encode(packet);
+
+        assertEquals(ConnectionManager.BINARY_VERSION, data[0]);
+
+        Packet decoded = this.connectionManager.decode(data);
+        assertEquals(packet.getClass(), decoded.getClass());
+
+        return decoded;
+    }
+}
@@ -0,0 +1,117 @@
+package net.samagames.core.api.hydroangeas.connection;
+
+import net.samagames.core.api.hydroangeas.packets.queues.QueuePacket;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+/*
+ * This file is part of SamaGamesCore.
+ *
+ * SamaGamesCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SamaGamesCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SamaGamesCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+public class PacketBufferTest
+{
+    @Test
+    public void fieldsRoundTrip()
+    {
+        UUID uuid = UUID.randomUUID();
+        List<String> list = Arrays.asList("first", null, "");
+
+        PacketBuffer out = new PacketBuffer();
+        out.writeByte(0xFE);
+        out.writeBoolean(true);
+        out.writeBoolean(false);
+        out.writeVarInt(0);
+        out.writeVarInt(300);
+        out.writeVarInt(Integer.MAX_VALUE);
+        out.writeVarInt(-1);
+        out.writeLong(Long.MIN_VALUE);
+        out.writeString("Héllo ☃");
+        out.writeString("");
+        out.writeString(null);
+        out.writeUUID(uuid);
+        out.writeUUID(null);
+        out.writeEnum(QueuePacket.TypeQueue.FAST);
+        out.writeEnum(null);
+        out.writeList(list, PacketBuffer::writeString);
+        out.writeList(null, PacketBuffer::writeString);
+
+        PacketBuffer in = new PacketBuffer(out.toByteArray());
+        assertEquals((byte) 0xFE, in.readByte());
+        assertEquals(true, in.readBoolean());
+        assertEquals(false, in.readBoolean());
+        assertEquals(0, in.readVarInt());
+        assertEquals(300, in.readVarInt());
+        assertEquals(Integer.MAX_VALUE, in.readVarInt());
+        assertEquals(-1, in.readVarInt());
+        assertEquals(Long.MIN_VALUE, in.readLong());
+        assertEquals("Héllo ☃", in.readString());
+        assertEquals("", in.readString());
+        assertNull(in.readString());
+        assertEquals(uuid, in.readUUID());
+        assertNull(in.readUUID());
+        assertEquals(QueuePacket.TypeQueue.FAST, in.readEnum(QueuePacket.TypeQueue.class));
+        assertNull(in.readEnum(QueuePacket.TypeQueue.class));
+        assertEquals(list, in.readList(PacketBuffer::readString));
+        assertNull(in.readList(PacketBuffer::readString));
+        assertFalse(in.isReadable());
+    }
+
+    @Test
+    public void bufferGrowsPastItsInitialSize()
+    {
+        PacketBuffer out = new PacketBuffer();
+
+        for (int i = 0; i < 1000; i++)
+            out.writeLong(i);
+
+        PacketBuffer in = new PacketBuffer(out.toByteArray());
+
+        for (int i = 0; i < 1000; i++)
+            assertEquals(i, in.readLong());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void truncatedStringIsRejected()
+    {
+        PacketBuffer out = new PacketBuffer();
+        out.writeString("truncated");
+
+        byte[] data = out.toByteArray();
+        new PacketBuffer(Arrays.copyOf(data, data.length - 1)).readString();
+    }
+
+    @Test
+    public void unknownEnumOrdinalIsRejected()
+    {
+        PacketBuffer out = new PacketBuffer();
+        out.writeVarInt(QueuePacket.TypeQueue.values().length + 1);
+
+        try
+        {
+            new PacketBuffer(out.toByteArray()).readEnum(QueuePacket.TypeQueue.class);
+            fail("An ordinal from a newer peer was accepted");
+        } catch (IllegalStateException ignored)
+        {
+        }
+    }
+}
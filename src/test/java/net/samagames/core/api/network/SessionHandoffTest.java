@@ -0,0 +1,117 @@
+package net.samagames.core.api.network;
+
+import net.samagames.core.CoreTestHarness;
+import net.samagames.core.api.player.PlayerData;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import redis.clients.jedis.Jedis;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/*
+ * This file is part of SamaGamesCore.
+ *
+ * SamaGamesCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SamaGamesCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SamaGamesCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+public class SessionHandoffTest
+{
+    private CoreTestHarness hub;
+    private CoreTestHarness game;
+    private UUID player;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        this.hub = new CoreTestHarness();
+        this.game = new CoreTestHarness(this.hub);
+
+        this.player = this.hub.createPlayer("Notch");
+        this.hub.getPlayerDataManager().loadPlayer(this.player);
+    }
+
+    @After
+    public void tearDown()
+    {
+        this.game.close();
+        this.hub.closeAll();
+    }
+
+    @Test
+    public void nextServerLoadsTheHandedOffState()
+    {
+        // Only in the memory of the hub, neither in the database nor in the redis copy
+        PlayerData data = this.hub.getPlayerDataManager().getPlayerData(this.player);
+        data.getPlayerBean().setCoins(42);
+
+        this.hub.getApi().getSessionHandoff().handOff(this.player);
+
+        SessionHandoff handoff = this.game.getApi().getSessionHandoff();
+        handoff.receive(this.player);
+        assertTrue(handoff.isReceived(this.player));
+
+        this.game.getPlayerDataManager().loadPlayer(this.player);
+
+        assertEquals(42, this.game.getPlayerDataManager().getPlayerData(this.player).getPlayerBean().getCoins());
+        assertEquals(0, this.game.getDatabaseReads());
+    }
+
+    @Test
+    public void blobIsReadOnce()
+    {
+        this.hub.getApi().getSessionHandoff().handOff(this.player);
+        this.game.getApi().getSessionHandoff().receive(this.player);
+
+        SessionHandoff other = this.hub.getApi().getSessionHandoff();
+        other.receive(this.player);
+
+        assertTrue(this.game.getApi().getSessionHandoff().isReceived(this.player));
+        assertFalse(other.isReceived(this.player));
+    }
+
+    @Test
+    public void blobIsDeflated()
+    {
+        this.hub.getApi().getSessionHandoff().handOff(this.player);
+
+        byte[] blob;
+
+        try (Jedis jedis = this.hub.getApi().getBungeeResource())
+        {
+            blob = jedis.get(("session:" + this.player).getBytes(StandardCharsets.UTF_8));
+        }
+
+        SessionHandoff.Session session = SessionHandoff.decode(blob);
+
+        // Version byte, then the deflated JSON and not the JSON itself
+        assertEquals(2, blob[0]);
+        assertFalse(blob[1] == '{');
+        assertEquals("Notch", session.getPlayer().getName());
+    }
+
+    @Test
+    public void blobOfAnotherVersionIsIgnored()
+    {
+        byte[] blob = SessionHandoff.encode(new SessionHandoff.Session());
+        blob[0] = 1;
+
+        assertNull(SessionHandoff.decode(blob));
+    }
+}
@@ -0,0 +1,66 @@
+package net.samagames.core.api.player;
+
+import org.junit.Test;
+
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/*
+ * This file is part of SamaGamesCore.
+ *
+ * SamaGamesCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SamaGamesCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SamaGamesCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+public class CallerClassesTest
+{
+    @Test
+    public void stackWalkerIsUsedFromJava9()
+    {
+        boolean java8 = System.getProperty("java.specification.version").startsWith("1.");
+
+        assertEquals(!java8, new CallerClasses(type -> false).usesStackWalker());
+        assertFalse(new CallerClasses(type -> false, false).usesStackWalker());
+    }
+
+    @Test
+    public void callerIsFoundWithStackWalker()
+    {
+        assertCallerFound(new CallerClasses(type -> type == Caller.class));
+    }
+
+    @Test
+    public void callerIsFoundWithClassContext()
+    {
+        assertCallerFound(new CallerClasses(type -> type == Caller.class, false));
+    }
+
+    private static void assertCallerFound(CallerClasses callers)
+    {
+        assertFalse(callers.isCalledFrom());
+        assertTrue(new Caller().call(callers::isCalledFrom));
+
+        // Cached answer of the class, still checked against the current frames
+        assertFalse(callers.isCalledFrom());
+    }
+
+    private static class Caller
+    {
+        private boolean call(Supplier<Boolean> check)
+        {
+            return check.get();
+        }
+    }
+}
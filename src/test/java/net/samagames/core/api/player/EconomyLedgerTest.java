@@ -0,0 +1,166 @@
+package net.samagames.core.api.player;
+
+import net.samagames.core.CoreTestHarness;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+/*
+ * This file is part of SamaGamesCore.
+ *
+ * SamaGamesCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SamaGamesCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SamaGamesCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+public class EconomyLedgerTest
+{
+    private CoreTestHarness hub;
+    private CoreTestHarness game;
+    private UUID player;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        // No timed flush during a test, only the explicit ones
+        this.hub = new CoreTestHarness(configuration());
+        this.game = new CoreTestHarness(this.hub, configuration());
+
+        this.player = this.hub.createPlayer("Notch");
+        this.hub.getPlayerDataManager().loadPlayer(this.player);
+    }
+
+    @After
+    public void tearDown()
+    {
+        this.game.close();
+        this.hub.closeAll();
+    }
+
+    @Test
+    public void failedCommitChargesNothing()
+    {
+        PlayerData data = this.hub.getPlayerDataManager().getPlayerData(this.player);
+        this.hub.failEconomyWrites(1);
+
+        try
+        {
+            data.decreaseCoins(100);
+            fail("The failed write was not reported");
+        }
+        catch (IllegalStateException ignored)
+        {
+        }
+
+        this.hub.getPlayerDataManager().getEconomyLedger().flushAll();
+        assertEquals(500, this.hub.getStoredPlayer(this.player).getCoins());
+
+        // Retried by the caller, charged once
+        assertEquals(400, data.decreaseCoins(100));
+        assertEquals(400, this.hub.getStoredPlayer(this.player).getCoins());
+    }
+
+    @Test
+    public void failedFlushIsWrittenOnceByTheNextOne()
+    {
+        PlayerData data = this.hub.getPlayerDataManager().getPlayerData(this.player);
+        EconomyLedger ledger = this.hub.getPlayerDataManager().getEconomyLedger();
+
+        ledger.append(data, EconomyLedger.COINS, 50, null);
+        ledger.append(data, EconomyLedger.COINS, 50, null);
+        this.hub.failEconomyWrites(1);
+
+        try
+        {
+            ledger.flush(this.player);
+            fail("The failed write was not reported");
+        }
+        catch (IllegalStateException ignored)
+        {
+        }
+
+        assertEquals(500, this.hub.getStoredPlayer(this.player).getCoins());
+
+        assertArrayEquals(new long[] {600, 0, 0}, ledger.flush(this.player));
+        assertNull(ledger.flush(this.player));
+        assertEquals(600, this.hub.getStoredPlayer(this.player).getCoins());
+    }
+
+    @Test
+    public void callbackGetsTheBalanceWithoutWaitingForTheTimer() throws Exception
+    {
+        PlayerData data = this.hub.getPlayerDataManager().getPlayerData(this.player);
+        CompletableFuture<Long> written = new CompletableFuture<>();
+
+        data.withdrawCoins(10, (newAmount, difference, error) -> written.complete(newAmount));
+
+        assertEquals(490L, (long) written.get(2, TimeUnit.SECONDS));
+        assertEquals(490, this.hub.getStoredPlayer(this.player).getCoins());
+    }
+
+    @Test
+    public void concurrentWritersOnTwoServersLoseNothing() throws Exception
+    {
+        this.game.getPlayerDataManager().loadPlayer(this.player);
+
+        List<Thread> writers = new ArrayList<>();
+
+        for (CoreTestHarness server : new CoreTestHarness[] {this.hub, this.game})
+        {
+            PlayerData data = server.getPlayerDataManager().getPlayerData(this.player);
+            EconomyLedger ledger = server.getPlayerDataManager().getEconomyLedger();
+
+            for (int i = 0; i < 4; i++)
+            {
+                writers.add(new Thread(() ->
+                {
+                    for (int j = 0; j < 250; j++)
+                    {
+                        ledger.append(data, EconomyLedger.COINS, 1, null);
+
+                        if (j % 50 == 0)
+                            ledger.flush(this.player);
+                    }
+                }));
+            }
+        }
+
+        writers.forEach(Thread::start);
+
+        for (Thread writer : writers)
+            writer.join(10000L);
+
+        this.hub.getPlayerDataManager().getEconomyLedger().flushAll();
+        this.game.getPlayerDataManager().getEconomyLedger().flushAll();
+
+        assertEquals(500 + 2 * 4 * 250, this.hub.getStoredPlayer(this.player).getCoins());
+    }
+
+    private static YamlConfiguration configuration()
+    {
+        YamlConfiguration configuration = new YamlConfiguration();
+        configuration.set("economy-flush-interval", 60000L);
+
+        return configuration;
+    }
+}
@@ -0,0 +1,96 @@
+package net.samagames.core.api.player;
+
+import net.samagames.core.CoreTestHarness;
+import net.samagames.persistanceapi.beans.players.PlayerBean;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/*
+ * This file is part of SamaGamesCore.
+ *
+ * SamaGamesCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SamaGamesCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SamaGamesCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+public class PlayerDataManagerTest
+{
+    private CoreTestHarness hub;
+    private CoreTestHarness game;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        this.hub = new CoreTestHarness();
+        this.game = new CoreTestHarness(this.hub);
+    }
+
+    @After
+    public void tearDown()
+    {
+        this.game.close();
+        this.hub.closeAll();
+    }
+
+    @Test
+    public void loadedPlayerIsFoundByName()
+    {
+        UUID player = this.hub.createPlayer("Notch");
+        PlayerDataManager manager = this.hub.getPlayerDataManager();
+
+        manager.loadPlayer(player);
+
+        PlayerData data = manager.getPlayerData(player);
+        assertNotNull(data);
+        assertEquals("Notch", data.getEffectiveName());
+        assertSame(data, manager.getPlayerDataByName("notch"));
+        assertNull(manager.getPlayerDataByName("jeb_"));
+    }
+
+    @Test
+    public void nextServerReadsTheSharedCopy()
+    {
+        UUID player = this.hub.createPlayer("Notch");
+
+        this.hub.getPlayerDataManager().loadPlayer(player);
+        assertEquals(1, this.hub.getDatabaseReads());
+
+        long roundTrips = this.hub.getRedis().getCommandCount();
+        this.game.getPlayerDataManager().loadPlayer(player);
+
+        assertEquals("Notch", this.game.getPlayerDataManager().getPlayerData(player).getEffectiveName());
+        assertEquals(0, this.game.getDatabaseReads());
+        assertEquals(2, this.hub.getRedis().getCommandCount() - roundTrips);
+    }
+
+    @Test
+    public void sharedCopyDoesNotOverwriteDatabaseChanges()
+    {
+        UUID player = this.hub.createPlayer("Notch");
+        this.hub.getPlayerDataManager().loadPlayer(player);
+
+        // Group changed in the database by another service, the redis copy still has the old one
+        this.hub.storePlayer(player, new PlayerBean(player, "Notch", null, 500, 0, 0, null, null, null, null, 5));
+
+        this.game.getPlayerDataManager().loadPlayer(player);
+        this.game.getPlayerDataManager().getPlayerData(player).updateData();
+
+        assertEquals(5, this.hub.getStoredPlayer(player).getGroupId());
+    }
+}
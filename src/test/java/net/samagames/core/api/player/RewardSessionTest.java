@@ -0,0 +1,143 @@
+package net.samagames.core.api.player;
+
+import net.samagames.core.CoreTestHarness;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/*
+ * This file is part of SamaGamesCore.
+ *
+ * SamaGamesCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SamaGamesCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SamaGamesCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+public class RewardSessionTest
+{
+    private CoreTestHarness harness;
+    private PlayerDataManager manager;
+    private final List<PlayerData> players = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception
+    {
+        // No timed flush during a test, only the session writes
+        YamlConfiguration configuration = new YamlConfiguration();
+        configuration.set("economy-flush-interval", 60000L);
+
+        this.harness = new CoreTestHarness(configuration);
+        this.manager = this.harness.getPlayerDataManager();
+
+        for (String name : new String[] {"Notch", "Jeb", "Dinnerbone"})
+        {
+            UUID uuid = this.harness.createPlayer(name);
+            this.manager.loadPlayer(uuid);
+            this.players.add(this.manager.getPlayerData(uuid));
+        }
+    }
+
+    @After
+    public void tearDown()
+    {
+        this.harness.closeAll();
+    }
+
+    @Test
+    public void creditsOfEveryPlayerAreWrittenInOneTransaction() throws Exception
+    {
+        RewardSession session = this.manager.openRewardSession();
+        List<Long> balances = Collections.synchronizedList(new ArrayList<>());
+
+        for (PlayerData data : this.players)
+        {
+            session.credit(data, EconomyLedger.COINS, 10, "Victoire", false, null);
+            session.credit(data, EconomyLedger.COINS, 5, "Kill", false, null);
+            session.credit(data, EconomyLedger.STARS, 1, "Victoire", false, (newAmount, difference, error) -> balances.add(newAmount));
+        }
+
+        long before = this.harness.getEconomyTransactions();
+        session.commit().get(5, TimeUnit.SECONDS);
+
+        assertEquals(1, this.harness.getEconomyTransactions() - before);
+        assertEquals(Collections.nCopies(3, 1L), balances);
+
+        for (PlayerData data : this.players)
+        {
+            assertEquals(515, this.harness.getStoredPlayer(data.getPlayerID()).getCoins());
+            assertEquals(1, this.harness.getStoredPlayer(data.getPlayerID()).getStars());
+        }
+    }
+
+    @Test
+    public void failedTransactionWritesNoPlayerAndIsRetried() throws Exception
+    {
+        RewardSession session = this.manager.openRewardSession();
+
+        for (PlayerData data : this.players)
+            session.credit(data, EconomyLedger.COINS, 10, "Victoire", false, null);
+
+        this.harness.failEconomyWrites(1);
+        session.commit().get(5, TimeUnit.SECONDS);
+
+        for (PlayerData data : this.players)
+            assertEquals(500, this.harness.getStoredPlayer(data.getPlayerID()).getCoins());
+
+        this.manager.getEconomyLedger().flushAll();
+
+        for (PlayerData data : this.players)
+            assertEquals(510, this.harness.getStoredPlayer(data.getPlayerID()).getCoins());
+    }
+
+    @Test
+    public void leavingPlayerIsWrittenBeforeTheOthers() throws Exception
+    {
+        RewardSession session = this.manager.openRewardSession();
+        PlayerData leaving = this.players.get(0);
+        PlayerData staying = this.players.get(1);
+
+        session.credit(leaving, EconomyLedger.COINS, 10, "Victoire", false, null);
+        session.credit(staying, EconomyLedger.COINS, 10, "Victoire", false, null);
+
+        this.manager.commitRewards(leaving.getPlayerID());
+
+        assertEquals(510, this.harness.getStoredPlayer(leaving.getPlayerID()).getCoins());
+        assertEquals(500, this.harness.getStoredPlayer(staying.getPlayerID()).getCoins());
+
+        session.commit().get(5, TimeUnit.SECONDS);
+
+        assertEquals(510, this.harness.getStoredPlayer(leaving.getPlayerID()).getCoins());
+        assertEquals(510, this.harness.getStoredPlayer(staying.getPlayerID()).getCoins());
+    }
+
+    @Test
+    public void committedSessionRefusesCredits() throws Exception
+    {
+        RewardSession session = this.manager.openRewardSession();
+        session.commit().get(5, TimeUnit.SECONDS);
+
+        assertNull(this.manager.getRewardSession());
+        assertFalse(session.credit(this.players.get(0), EconomyLedger.COINS, 10, "Victoire", false, null));
+        assertTrue(this.manager.openRewardSession() != session);
+    }
+}
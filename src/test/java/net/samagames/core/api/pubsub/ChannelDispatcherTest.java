@@ -0,0 +1,116 @@
+package net.samagames.core.api.pubsub;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/*
+ * This file is part of SamaGamesCore.
+ *
+ * SamaGamesCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SamaGamesCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SamaGamesCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+public class ChannelDispatcherTest
+{
+    private final ExecutorService pool = Executors.newFixedThreadPool(4);
+
+    @After
+    public void tearDown()
+    {
+        this.pool.shutdownNow();
+    }
+
+    @Test
+    public void messagesOfAChannelRunInOrderForEveryReceiver() throws Exception
+    {
+        ChannelDispatcher dispatcher = new ChannelDispatcher(this.pool, 16);
+        List<String> first = Collections.synchronizedList(new ArrayList<>());
+        List<String> second = Collections.synchronizedList(new ArrayList<>());
+        List<String> sent = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(1);
+
+        List<Consumer<String>> receivers = Arrays.asList(first::add, second::add);
+
+        for (int i = 0; i < 1000; i++)
+        {
+            String message = "message " + i;
+            sent.add(message);
+            dispatcher.dispatch("test.channel", receivers, receiver -> receiver.accept(message));
+        }
+
+        dispatcher.dispatch("test.channel", Collections.singleton(done), CountDownLatch::countDown);
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(sent, first);
+        assertEquals(sent, second);
+    }
+
+    @Test
+    public void failingReceiverDoesNotStopTheOthers() throws Exception
+    {
+        ChannelDispatcher dispatcher = new ChannelDispatcher(this.pool, 16);
+        CountDownLatch delivered = new CountDownLatch(1);
+
+        List<Runnable> receivers = Arrays.asList(() ->
+        {
+            throw new IllegalStateException("broken receiver");
+        }, delivered::countDown);
+
+        dispatcher.dispatch("test.channel", receivers, Runnable::run);
+
+        assertTrue(delivered.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void offerDoesNotWaitForAFullChannel()
+    {
+        // Nothing runs, the channel queue stays full
+        List<Runnable> parked = new ArrayList<>();
+        ChannelDispatcher dispatcher = new ChannelDispatcher(parked::add, 1);
+
+        dispatcher.dispatch("test.channel", Collections.singleton("receiver"), receiver -> {});
+        dispatcher.offer("test.channel", () -> {});
+
+        assertEquals(1, dispatcher.getDroppedCount());
+        assertEquals(1, parked.size());
+    }
+
+    @Test
+    public void forgottenChannelIsPruned() throws Exception
+    {
+        ChannelDispatcher dispatcher = new ChannelDispatcher(this.pool, 16);
+        CountDownLatch done = new CountDownLatch(1);
+
+        dispatcher.dispatch("test.channel", Collections.singleton(done), CountDownLatch::countDown);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(1, dispatcher.getChannelCount());
+
+        dispatcher.forget("test.channel");
+
+        assertEquals(0, dispatcher.getChannelCount());
+        assertFalse(dispatcher.getHandlerTimes().containsKey("test.channel"));
+    }
+}
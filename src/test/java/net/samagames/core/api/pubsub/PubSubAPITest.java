@@ -0,0 +1,197 @@
+package net.samagames.core.api.pubsub;
+
+import net.samagames.api.pubsub.IPacketsReceiver;
+import net.samagames.core.CoreTestHarness;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/*
+ * This file is part of SamaGamesCore.
+ *
+ * SamaGamesCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SamaGamesCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SamaGamesCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+public class PubSubAPITest
+{
+    private CoreTestHarness hub;
+    private CoreTestHarness game;
+    private PubSubAPI hubPubSub;
+    private PubSubAPI gamePubSub;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        this.hub = new CoreTestHarness();
+        this.game = new CoreTestHarness(this.hub);
+        this.hubPubSub = this.hub.getApi().getPubSub();
+        this.gamePubSub = this.game.getApi().getPubSub();
+    }
+
+    @After
+    public void tearDown()
+    {
+        this.game.close();
+        this.hub.closeAll();
+    }
+
+    @Test
+    public void messagesReachAnotherServerInOrder() throws Exception
+    {
+        BlockingQueue<String> received = new LinkedBlockingQueue<>();
+        this.gamePubSub.subscribe("test.fanout", (IPacketsReceiver) (channel, packet) -> received.add(packet));
+        awaitSubscribed("test.fanout", received);
+
+        List<String> sent = new ArrayList<>();
+
+        for (int i = 0; i < 1000; i++)
+        {
+            sent.add("message " + i);
+            this.hubPubSub.send("test.fanout", "message " + i);
+        }
+
+        List<String> delivered = new ArrayList<>();
+
+        while (delivered.size() < sent.size())
+        {
+            String packet = received.poll(5, TimeUnit.SECONDS);
+
+            if (packet == null)
+                fail("Only " + delivered.size() + " messages of " + sent.size() + " were delivered");
+            if (!packet.equals("probe"))
+                delivered.add(packet);
+        }
+
+        assertEquals(sent, delivered);
+        assertEquals(0, this.hubPubSub.getDroppedCount());
+    }
+
+    @Test
+    public void subscriptionChangesOnTheLiveConnectionLoseNoMessages() throws Exception
+    {
+        BlockingQueue<String> received = new LinkedBlockingQueue<>();
+        this.gamePubSub.subscribe("test.live", (IPacketsReceiver) (channel, packet) -> received.add(packet));
+        awaitSubscribed("test.live", received);
+
+        Thread churn = new Thread(() ->
+        {
+            for (int i = 0; i < 50; i++)
+            {
+                IPacketsReceiver other = (channel, packet) -> {};
+                this.gamePubSub.subscribe("test.live.other" + i, other);
+                this.gamePubSub.unsubscribe("test.live.other" + i, other);
+            }
+        });
+        churn.start();
+
+        List<String> sent = new ArrayList<>();
+
+        for (int i = 0; i < 2000; i++)
+        {
+            sent.add("message " + i);
+            this.hubPubSub.send("test.live", "message " + i);
+        }
+
+        churn.join(5000L);
+        assertEquals(sent, collect(received, sent.size()));
+    }
+
+    @Test
+    public void binarySubscriptionChangesOnTheLiveConnectionLoseNoMessages() throws Exception
+    {
+        BlockingQueue<String> received = new LinkedBlockingQueue<>();
+        this.gamePubSub.subscribe("test.binary", (IBinaryReceiver) (channel, packet) -> received.add(new String(packet, StandardCharsets.UTF_8)));
+
+        long deadline = System.currentTimeMillis() + 5000L;
+
+        while (received.poll(100, TimeUnit.MILLISECONDS) == null)
+        {
+            if (System.currentTimeMillis() > deadline)
+                fail("Subscription was not established");
+
+            this.hubPubSub.send(new BinaryPendingMessage("test.binary", "probe".getBytes(StandardCharsets.UTF_8)));
+        }
+
+        Thread.sleep(200);
+        received.clear();
+
+        Thread churn = new Thread(() ->
+        {
+            for (int i = 0; i < 50; i++)
+            {
+                IBinaryReceiver other = (channel, packet) -> {};
+                this.gamePubSub.subscribe("test.binary.other" + i, other);
+                this.gamePubSub.unsubscribe("test.binary.other" + i, other);
+            }
+        });
+        churn.start();
+
+        List<String> sent = new ArrayList<>();
+
+        for (int i = 0; i < 2000; i++)
+        {
+            sent.add("message " + i);
+            this.hubPubSub.send(new BinaryPendingMessage("test.binary", ("message " + i).getBytes(StandardCharsets.UTF_8)));
+        }
+
+        churn.join(5000L);
+        assertEquals(sent, collect(received, sent.size()));
+    }
+
+    private List<String> collect(BlockingQueue<String> received, int count) throws InterruptedException
+    {
+        List<String> delivered = new ArrayList<>();
+
+        while (delivered.size() < count)
+        {
+            String packet = received.poll(5, TimeUnit.SECONDS);
+
+            if (packet == null)
+                fail("Only " + delivered.size() + " messages of " + count + " were delivered");
+            if (!packet.equals("probe"))
+                delivered.add(packet);
+        }
+
+        return delivered;
+    }
+
+    private void awaitSubscribed(String channel, BlockingQueue<String> received) throws InterruptedException
+    {
+        long deadline = System.currentTimeMillis() + 5000L;
+
+        while (System.currentTimeMillis() < deadline)
+        {
+            this.hubPubSub.send(channel, "probe");
+
+            if (received.poll(100, TimeUnit.MILLISECONDS) != null)
+            {
+                // Let the remaining probes arrive before counting
+                Thread.sleep(200);
+                received.clear();
+                return;
+            }
+        }
+
+        fail("Subscription was not established");
+    }
+}
@@ -0,0 +1,285 @@
+package net.samagames.core.api.pubsub;
+
+import net.samagames.api.pubsub.PendingMessage;
+import net.samagames.core.ApiImplementation;
+import net.samagames.core.CoreTestHarness;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.spy;
+
+/*
+ * This file is part of SamaGamesCore.
+ *
+ * SamaGamesCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SamaGamesCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SamaGamesCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+public class SenderTest
+{
+    private CoreTestHarness harness;
+    private ApiImplementation connector;
+    private final AtomicInteger borrows = new AtomicInteger();
+    private final AtomicBoolean redisDown = new AtomicBoolean();
+    private final List<String> sent = Collections.synchronizedList(new ArrayList<>());
+
+    private Sender sender;
+    private Thread thread;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        this.harness = new CoreTestHarness();
+
+        // One borrow per flushed batch
+        this.connector = spy(this.harness.getApi());
+        doAnswer(invocation ->
+        {
+            this.borrows.incrementAndGet();
+
+            if (this.redisDown.get())
+                throw new JedisConnectionException("redis is down");
+
+            return invocation.callRealMethod();
+        }).when(this.connector).getBungeeResource();
+    }
+
+    @After
+    public void tearDown()
+    {
+        if (this.thread != null)
+            this.sender.shutdown(this.thread);
+
+        this.harness.closeAll();
+    }
+
+    @Test
+    public void queuedMessagesAreFlushedInBatches() throws Exception
+    {
+        create(100, OverflowPolicy.BLOCK, 10, 0L);
+
+        for (int i = 0; i < 25; i++)
+            this.sender.publish(message("message " + i));
+
+        start();
+        awaitPublished(25);
+
+        assertEquals(3, this.borrows.get());
+        assertEquals(25, this.sent.size());
+        assertEquals("message 0", this.sent.get(0));
+        assertEquals("message 24", this.sent.get(24));
+    }
+
+    @Test
+    public void blockDropsTheNewMessageAfterTheTimeout()
+    {
+        create(1, OverflowPolicy.BLOCK, 10, 50L);
+
+        this.sender.publish(message("first"));
+
+        long start = System.currentTimeMillis();
+        this.sender.publish(message("second"));
+
+        assertTrue(System.currentTimeMillis() - start >= 50L);
+        assertEquals(1, this.sender.getDroppedCount());
+        assertEquals(1, this.sender.getQueueDepth());
+    }
+
+    @Test
+    public void dropOldestOnlyEvictsSnapshots() throws Exception
+    {
+        create(2, OverflowPolicy.DROP_OLDEST, 10, 0L);
+
+        this.sender.publishCoalesced("status", message("status"));
+        this.sender.publish(message("command 1"));
+        this.sender.publish(message("command 2"));
+        // No snapshot left to evict, the new command is the one dropped
+        this.sender.publish(message("command 3"));
+
+        assertEquals(2, this.sender.getDroppedCount());
+
+        start();
+        awaitPublished(2);
+
+        assertEquals(Arrays.asList("command 1", "command 2"), this.sent);
+    }
+
+    @Test
+    public void coalesceReplacesTheQueuedSnapshot() throws Exception
+    {
+        create(2, OverflowPolicy.COALESCE, 10, 0L);
+
+        this.sender.publishCoalesced("status", message("status 1"));
+        this.sender.publish(message("command"));
+        this.sender.publishCoalesced("status", message("status 2"));
+
+        assertEquals(1, this.sender.getCoalescedCount());
+        assertEquals(0, this.sender.getDroppedCount());
+
+        start();
+        awaitPublished(2);
+
+        assertEquals(Arrays.asList("command", "status 2"), this.sent);
+    }
+
+    @Test
+    public void messagesAreRejectedAfterShutdown() throws Exception
+    {
+        create(10, OverflowPolicy.BLOCK, 10, 0L);
+        start();
+
+        this.sender.publish(message("before"));
+        awaitPublished(1);
+
+        this.sender.shutdown(this.thread);
+        this.thread = null;
+
+        this.sender.publish(message("after"));
+
+        assertEquals(1, this.sender.getDroppedCount());
+        assertEquals(0, this.sender.getQueueDepth());
+        assertEquals(Collections.singletonList("before"), this.sent);
+    }
+
+    @Test
+    public void failedBatchesAreRetriedWithBackoff() throws Exception
+    {
+        create(10, OverflowPolicy.BLOCK, 10, 0L);
+        this.redisDown.set(true);
+
+        this.sender.publish(message("retried"));
+        start();
+
+        // Tries at 0, 100 and 300ms
+        Thread.sleep(450L);
+        long failures = this.sender.getFailedBatches();
+
+        assertTrue("Only " + failures + " tries", failures >= 2);
+        assertTrue(failures + " tries, no backoff", failures <= 4);
+
+        this.redisDown.set(false);
+        awaitPublished(1);
+
+        assertEquals(Collections.singletonList("retried"), this.sent);
+    }
+
+    @Test
+    public void coalescedKeyKeepsTheLatestValue() throws Exception
+    {
+        create(10, OverflowPolicy.BLOCK, 10, 0L, 200L);
+        start();
+
+        this.sender.publishCoalesced("status", message("status 1"));
+        this.sender.publishCoalesced("status", message("status 2"));
+        this.sender.publishCoalesced("status", message("status 3"));
+        awaitPublished(2);
+
+        assertEquals(Arrays.asList("status 1", "status 3"), this.sent);
+        assertEquals(1, this.sender.getCoalescedCount());
+    }
+
+    @Test
+    public void coalescedKeyIsEmittedOncePerInterval() throws Exception
+    {
+        create(10, OverflowPolicy.BLOCK, 10, 0L, 200L);
+        start();
+
+        List<Long> emitted = Collections.synchronizedList(new ArrayList<>());
+
+        for (int i = 0; i < 3; i++)
+        {
+            this.sender.publishCoalesced("status", new PendingMessage("test.sender", "status " + i, () -> emitted.add(System.currentTimeMillis())));
+            awaitEmitted(emitted, i + 1);
+        }
+
+        // Small margin for the time between the emit and the redis acknowledgement
+        assertTrue(emitted.get(1) - emitted.get(0) >= 180L);
+        assertTrue(emitted.get(2) - emitted.get(1) >= 180L);
+        assertEquals(0, this.sender.getCoalescedCount());
+    }
+
+    @Test
+    public void keysAreCoalescedIndependently() throws Exception
+    {
+        create(10, OverflowPolicy.BLOCK, 10, 0L, 200L);
+        start();
+
+        this.sender.publishCoalesced("hub", message("hub 1"));
+        this.sender.publishCoalesced("game", message("game 1"));
+        awaitPublished(2);
+
+        assertEquals(Arrays.asList("hub 1", "game 1"), this.sent);
+    }
+
+    private void create(int capacity, OverflowPolicy policy, int batchSize, long blockTimeout)
+    {
+        create(capacity, policy, batchSize, blockTimeout, 0L);
+    }
+
+    private void create(int capacity, OverflowPolicy policy, int batchSize, long blockTimeout, long coalesceInterval)
+    {
+        this.sender = new Sender(this.connector, capacity, policy, batchSize, blockTimeout, coalesceInterval);
+    }
+
+    private void start()
+    {
+        this.thread = new Thread(this.sender, "TestSenderThread");
+        this.thread.start();
+    }
+
+    private PendingMessage message(String content)
+    {
+        return new PendingMessage("test.sender", content, () -> this.sent.add(content));
+    }
+
+    /**
+     * Wait for the callbacks, they run once redis acknowledged the batch
+     */
+    private void awaitPublished(int count) throws InterruptedException
+    {
+        long deadline = System.currentTimeMillis() + 5000L;
+
+        while (this.sent.size() < count)
+        {
+            if (System.currentTimeMillis() > deadline)
+                fail("Only " + this.sent.size() + " messages of " + count + " were published");
+
+            Thread.sleep(10L);
+        }
+    }
+
+    private void awaitEmitted(List<Long> emitted, int count) throws InterruptedException
+    {
+        long deadline = System.currentTimeMillis() + 5000L;
+
+        while (emitted.size() < count)
+        {
+            if (System.currentTimeMillis() > deadline)
+                fail("Only " + emitted.size() + " values of " + count + " were emitted");
+
+            Thread.sleep(5L);
+        }
+    }
+}
@@ -0,0 +1,879 @@
+package net.samagames.core.database;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/*
+ * This file is part of SamaGamesCore.
+ *
+ * SamaGamesCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SamaGamesCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SamaGamesCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * In-process RESP server speaking the subset of redis used by the core
+ * (strings, hashes, sets, expiry, pub/sub and MULTI/EXEC).
+ *
+ * Any Jedis client or {@link net.samagames.core.database.async.AsyncRedisClient}
+ * can be pointed at {@link #getPort()}. An artificial per-command latency can
+ * be set to reproduce a remote redis, and every command is counted so
+ * round-trips can be asserted.
+ */
+public class EmbeddedRedisServer implements AutoCloseable
+{
+    private static final Object NULL = new Object();
+
+    private final ServerSocket serverSocket;
+    private final Map<String, Object> data;
+    private final Map<String, Long> expires;
+    private final Map<String, Set<Client>> channels;
+    private final Map<String, Set<Client>> patterns;
+    private final Set<Client> clients;
+    private final Map<String, AtomicLong> commandCounts;
+    private final AtomicLong commandCount;
+    private final String password;
+
+    private volatile long latency;
+    private volatile boolean running;
+
+    public EmbeddedRedisServer() throws IOException
+    {
+        this(0, null);
+    }
+
+    public EmbeddedRedisServer(int port, String password) throws IOException
+    {
+        this.serverSocket = new ServerSocket(port, 128, InetAddress.getLoopbackAddress());
+        this.data = new HashMap<>();
+        this.expires = new HashMap<>();
+        this.channels = new ConcurrentHashMap<>();
+        this.patterns = new ConcurrentHashMap<>();
+        this.clients = new CopyOnWriteArraySet<>();
+        this.commandCounts = new ConcurrentHashMap<>();
+        this.commandCount = new AtomicLong();
+        this.password = password;
+        this.running = true;
+
+        Thread acceptor = new Thread(this::acceptLoop, "embedded-redis-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public String getHost()
+    {
+        return this.serverSocket.getInetAddress().getHostAddress();
+    }
+
+    public int getPort()
+    {
+        return this.serverSocket.getLocalPort();
+    }
+
+    /**
+     * Configuration usable by {@link DatabaseConnector}
+     */
+    public RedisServer toRedisServer()
+    {
+        return new RedisServer(getHost(), getPort(), this.password);
+    }
+
+    /**
+     * Delay applied before answering each command, in milliseconds
+     */
+    public void setLatency(long latency)
+    {
+        this.latency = latency;
+    }
+
+    public long getCommandCount()
+    {
+        return this.commandCount.get();
+    }
+
+    public long getCommandCount(String command)
+    {
+        AtomicLong count = this.commandCounts.get(command.toUpperCase(Locale.ROOT));
+        return count == null ? 0 : count.get();
+    }
+
+    public void resetCommandCounts()
+    {
+        this.commandCount.set(0);
+        this.commandCounts.clear();
+    }
+
+    public int getConnectedClients()
+    {
+        return this.clients.size();
+    }
+
+    /**
+     * Drop every client connection, as a redis restart would
+     */
+    public void disconnectClients()
+    {
+        this.clients.forEach(Client::close);
+    }
+
+    public void flushAll()
+    {
+        synchronized (this.data)
+        {
+            this.data.clear();
+            this.expires.clear();
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        this.running = false;
+
+        try
+        {
+            this.serverSocket.close();
+        }
+        catch (IOException ignored) {}
+
+        disconnectClients();
+    }
+
+    private void acceptLoop()
+    {
+        while (this.running)
+        {
+            try
+            {
+                Socket socket = this.serverSocket.accept();
+                socket.setTcpNoDelay(true);
+
+                Client client = new Client(socket);
+                this.clients.add(client);
+
+                Thread thread = new Thread(client, "embedded-redis-client-" + socket.getPort());
+                thread.setDaemon(true);
+                thread.start();
+            }
+            catch (IOException e)
+            {
+                if (this.running)
+                    e.printStackTrace();
+            }
+        }
+    }
+
+    private Object execute(Client client, List<String> args)
+    {
+        String command = args.get(0).toUpperCase(Locale.ROOT);
+
+        this.commandCount.incrementAndGet();
+        this.commandCounts.computeIfAbsent(command, key -> new AtomicLong()).incrementAndGet();
+
+        if (this.password != null && !client.authenticated && !command.equals("AUTH"))
+            return new ErrorReply("NOAUTH Authentication required.");
+
+        if (client.transaction != null && !command.equals("EXEC") && !command.equals("DISCARD") && !command.equals("MULTI"))
+        {
+            client.transaction.add(args);
+            return new StatusReply("QUEUED");
+        }
+
+        switch (command)
+        {
+            case "AUTH":
+                if (this.password == null)
+                    return new ErrorReply("ERR Client sent AUTH, but no password is set");
+                if (!this.password.equals(args.get(1)))
+                    return new ErrorReply("ERR invalid password");
+                client.authenticated = true;
+                return new StatusReply("OK");
+            case "MULTI":
+                if (client.transaction != null)
+                    return new ErrorReply("ERR MULTI calls can not be nested");
+                client.transaction = new ArrayList<>();
+                return new StatusReply("OK");
+            case "DISCARD":
+                if (client.transaction == null)
+                    return new ErrorReply("ERR DISCARD without MULTI");
+                client.transaction = null;
+                return new StatusReply("OK");
+            case "EXEC":
+            {
+                if (client.transaction == null)
+                    return new ErrorReply("ERR EXEC without MULTI");
+
+                List<List<String>> queued = client.transaction;
+                client.transaction = null;
+
+                List<Object> replies = new ArrayList<>(queued.size());
+                synchronized (this.data)
+                {
+                    for (List<String> queuedArgs : queued)
+                        replies.add(dispatch(client, queuedArgs.get(0).toUpperCase(Locale.ROOT), queuedArgs));
+                }
+                return replies;
+            }
+            case "SUBSCRIBE":
+            case "PSUBSCRIBE":
+            case "UNSUBSCRIBE":
+            case "PUNSUBSCRIBE":
+                subscription(client, command, args);
+                return null;
+            case "PUBLISH":
+                return publish(args.get(1), args.get(2));
+            default:
+                synchronized (this.data)
+                {
+                    return dispatch(client, command, args);
+                }
+        }
+    }
+
+    private Object dispatch(Client client, String command, List<String> args)
+    {
+        try
+        {
+            switch (command)
+            {
+                case "PING":
+                    return args.size() > 1 ? args.get(1) : new StatusReply("PONG");
+                case "ECHO":
+                    return args.get(1);
+                case "SELECT":
+                case "CLIENT":
+                    return new StatusReply("OK");
+                case "QUIT":
+                    client.closing = true;
+                    return new StatusReply("OK");
+                case "FLUSHALL":
+                case "FLUSHDB":
+                    this.data.clear();
+                    this.expires.clear();
+                    return new StatusReply("OK");
+                case "GET":
+                    return nullable(string(args.get(1)));
+                case "SET":
+                    return set(args);
+                case "SETEX":
+                    this.data.put(args.get(1), args.get(3));
+                    this.expires.put(args.get(1), System.currentTimeMillis() + Long.parseLong(args.get(2)) * 1000L);
+                    return new StatusReply("OK");
+                case "INCR":
+                case "INCRBY":
+                {
+                    long value = Long.parseLong(orDefault(string(args.get(1)), "0")) + (args.size() > 2 ? Long.parseLong(args.get(2)) : 1);
+                    this.data.put(args.get(1), String.valueOf(value));
+                    return value;
+                }
+                case "DEL":
+                {
+                    long removed = 0;
+                    for (String key : args.subList(1, args.size()))
+                        if (remove(key) != null)
+                            removed++;
+                    return removed;
+                }
+                case "EXISTS":
+                {
+                    long found = 0;
+                    for (String key : args.subList(1, args.size()))
+                        if (lookup(key) != null)
+                            found++;
+                    return found;
+                }
+                case "EXPIRE":
+                case "PEXPIRE":
+                {
+                    if (lookup(args.get(1)) == null)
+                        return 0L;
+                    long amount = Long.parseLong(args.get(2));
+                    this.expires.put(args.get(1), System.currentTimeMillis() + (command.equals("EXPIRE") ? amount * 1000L : amount));
+                    return 1L;
+                }
+                case "PERSIST":
+                    return this.expires.remove(args.get(1)) != null ? 1L : 0L;
+                case "TTL":
+                case "PTTL":
+                {
+                    if (lookup(args.get(1)) == null)
+                        return -2L;
+                    Long expire = this.expires.get(args.get(1));
+                    if (expire == null)
+                        return -1L;
+                    long remaining = expire - System.currentTimeMillis();
+                    return command.equals("TTL") ? remaining / 1000L : remaining;
+                }
+                case "KEYS":
+                {
+                    Pattern pattern = glob(args.get(1));
+                    List<Object> keys = new ArrayList<>();
+                    for (String key : new ArrayList<>(this.data.keySet()))
+                        if (lookup(key) != null && pattern.matcher(key).matches())
+                            keys.add(key);
+                    return keys;
+                }
+                case "HGET":
+                    return nullable(hash(args.get(1), false).get(args.get(2)));
+                case "HSET":
+                case "HSETNX":
+                {
+                    Map<String, String> hash = hash(args.get(1), true);
+                    if (command.equals("HSETNX") && hash.containsKey(args.get(2)))
+                        return 0L;
+                    return hash.put(args.get(2), args.get(3)) == null ? 1L : 0L;
+                }
+                case "HMSET":
+                {
+                    Map<String, String> hash = hash(args.get(1), true);
+                    for (int i = 2; i + 1 < args.size(); i += 2)
+                        hash.put(args.get(i), args.get(i + 1));
+                    return new StatusReply("OK");
+                }
+                case "HMGET":
+                {
+                    Map<String, String> hash = hash(args.get(1), false);
+                    List<Object> values = new ArrayList<>();
+                    for (String field : args.subList(2, args.size()))
+                        values.add(nullable(hash.get(field)));
+                    return values;
+                }
+                case "HDEL":
+                {
+                    Map<String, String> hash = hash(args.get(1), false);
+                    long removed = 0;
+                    for (String field : args.subList(2, args.size()))
+                        if (hash.remove(field) != null)
+                            removed++;
+                    cleanup(args.get(1), hash.isEmpty());
+                    return removed;
+                }
+                case "HEXISTS":
+                    return hash(args.get(1), false).containsKey(args.get(2)) ? 1L : 0L;
+                case "HLEN":
+                    return (long) hash(args.get(1), false).size();
+                case "HINCRBY":
+                {
+                    Map<String, String> hash = hash(args.get(1), true);
+                    long value = Long.parseLong(orDefault(hash.get(args.get(2)), "0")) + Long.parseLong(args.get(3));
+                    hash.put(args.get(2), String.valueOf(value));
+                    return value;
+                }
+                case "HGETALL":
+                {
+                    List<Object> flat = new ArrayList<>();
+                    hash(args.get(1), false).forEach((field, value) ->
+                    {
+                        flat.add(field);
+                        flat.add(value);
+                    });
+                    return flat;
+                }
+                case "HKEYS":
+                    return new ArrayList<>(hash(args.get(1), false).keySet());
+                case "SADD":
+                {
+                    Set<String> set = set(args.get(1), true);
+                    long added = 0;
+                    for (String member : args.subList(2, args.size()))
+                        if (set.add(member))
+                            added++;
+                    return added;
+                }
+                case "SREM":
+                {
+                    Set<String> set = set(args.get(1), false);
+                    long removed = 0;
+                    for (String member : args.subList(2, args.size()))
+                        if (set.remove(member))
+                            removed++;
+                    cleanup(args.get(1), set.isEmpty());
+                    return removed;
+                }
+                case "SMEMBERS":
+                    return new ArrayList<>(set(args.get(1), false));
+                case "SISMEMBER":
+                    return set(args.get(1), false).contains(args.get(2)) ? 1L : 0L;
+                case "SCARD":
+                    return (long) set(args.get(1), false).size();
+                default:
+                    return new ErrorReply("ERR unknown command '" + args.get(0) + "'");
+            }
+        }
+        catch (WrongTypeException e)
+        {
+            return new ErrorReply("WRONGTYPE Operation against a key holding the wrong kind of value");
+        }
+        catch (NumberFormatException e)
+        {
+            return new ErrorReply("ERR value is not an integer or out of range");
+        }
+        catch (IndexOutOfBoundsException e)
+        {
+            return new ErrorReply("ERR wrong number of arguments for '" + args.get(0) + "' command");
+        }
+    }
+
+    private Object set(List<String> args)
+    {
+        String key = args.get(1);
+        Long expire = null;
+        boolean onlyIfAbsent = false;
+        boolean onlyIfPresent = false;
+
+        for (int i = 3; i < args.size(); i++)
+        {
+            String option = args.get(i).toUpperCase(Locale.ROOT);
+
+            if (option.equals("EX"))
+                expire = System.currentTimeMillis() + Long.parseLong(args.get(++i)) * 1000L;
+            else if (option.equals("PX"))
+                expire = System.currentTimeMillis() + Long.parseLong(args.get(++i));
+            else if (option.equals("NX"))
+                onlyIfAbsent = true;
+            else if (option.equals("XX"))
+                onlyIfPresent = true;
+        }
+
+        boolean exists = lookup(key) != null;
+
+        if ((onlyIfAbsent && exists) || (onlyIfPresent && !exists))
+            return NULL;
+
+        this.data.put(key, args.get(2));
+
+        if (expire != null)
+            this.expires.put(key, expire);
+        else
+            this.expires.remove(key);
+
+        return new StatusReply("OK");
+    }
+
+    private Object lookup(String key)
+    {
+        Long expire = this.expires.get(key);
+
+        if (expire != null && expire <= System.currentTimeMillis())
+        {
+            this.expires.remove(key);
+            this.data.remove(key);
+            return null;
+        }
+
+        return this.data.get(key);
+    }
+
+    private Object remove(String key)
+    {
+        Object value = lookup(key);
+        this.data.remove(key);
+        this.expires.remove(key);
+
+        return value;
+    }
+
+    private void cleanup(String key, boolean empty)
+    {
+        if (empty)
+            remove(key);
+    }
+
+    private String string(String key)
+    {
+        Object value = lookup(key);
+
+        if (value != null && !(value instanceof String))
+            throw new WrongTypeException();
+
+        return (String) value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, String> hash(String key, boolean create)
+    {
+        Object value = lookup(key);
+
+        if (value == null)
+        {
+            Map<String, String> hash = new LinkedHashMap<>();
+            if (create)
+                this.data.put(key, hash);
+            return hash;
+        }
+
+        if (!(value instanceof Map))
+            throw new WrongTypeException();
+
+        return (Map<String, String>) value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Set<String> set(String key, boolean create)
+    {
+        Object value = lookup(key);
+
+        if (value == null)
+        {
+            Set<String> set = new LinkedHashSet<>();
+            if (create)
+                this.data.put(key, set);
+            return set;
+        }
+
+        if (!(value instanceof Set))
+            throw new WrongTypeException();
+
+        return (Set<String>) value;
+    }
+
+    private long publish(String channel, String message)
+    {
+        long receivers = 0;
+
+        for (Client client : this.channels.getOrDefault(channel, new HashSet<>()))
+        {
+            client.push(Arrays.asList("message", channel, message));
+            receivers++;
+        }
+
+        for (Map.Entry<String, Set<Client>> entry : this.patterns.entrySet())
+        {
+            if (!glob(entry.getKey()).matcher(channel).matches())
+                continue;
+
+            for (Client client : entry.getValue())
+            {
+                client.push(Arrays.asList("pmessage", entry.getKey(), channel, message));
+                receivers++;
+            }
+        }
+
+        return receivers;
+    }
+
+    private void subscription(Client client, String command, List<String> args)
+    {
+        boolean pattern = command.startsWith("P");
+        boolean subscribe = !command.contains("UNSUBSCRIBE");
+        Map<String, Set<Client>> registry = pattern ? this.patterns : this.channels;
+        Set<String> owned = pattern ? client.patterns : client.channels;
+        List<String> targets = new ArrayList<>(args.subList(1, args.size()));
+
+        if (!subscribe && targets.isEmpty())
+            targets.addAll(owned);
+
+        if (targets.isEmpty())
+            client.push(Arrays.asList(command.toLowerCase(Locale.ROOT), NULL, (long) client.subscriptions()));
+
+        for (String target : targets)
+        {
+            if (subscribe)
+            {
+                registry.computeIfAbsent(target, key -> new CopyOnWriteArraySet<>()).add(client);
+                owned.add(target);
+            }
+            else
+            {
+                Set<Client> subscribers = registry.get(target);
+                if (subscribers != null)
+                    subscribers.remove(client);
+                owned.remove(target);
+            }
+
+            client.push(Arrays.asList(command.toLowerCase(Locale.ROOT), target, (long) client.subscriptions()));
+        }
+    }
+
+    private static Object nullable(Object value)
+    {
+        return value == null ? NULL : value;
+    }
+
+    private static String orDefault(String value, String fallback)
+    {
+        return value == null ? fallback : value;
+    }
+
+    private static Pattern glob(String glob)
+    {
+        StringBuilder regex = new StringBuilder();
+
+        for (char c : glob.toCharArray())
+        {
+            switch (c)
+            {
+                case '*':
+                    regex.append(".*");
+                    break;
+                case '?':
+                    regex.append('.');
+                    break;
+                case '[':
+                case ']':
+                    regex.append(c);
+                    break;
+                default:
+                    regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+
+        return Pattern.compile(regex.toString(), Pattern.DOTALL);
+    }
+
+    private static class StatusReply
+    {
+        private final String message;
+
+        private StatusReply(String message)
+        {
+            this.message = message;
+        }
+    }
+
+    private static class ErrorReply
+    {
+        private final String message;
+
+        private ErrorReply(String message)
+        {
+            this.message = message;
+        }
+    }
+
+    private static class WrongTypeException extends RuntimeException {}
+
+    private class Client implements Runnable
+    {
+        private final Socket socket;
+        private final Set<String> channels;
+        private final Set<String> patterns;
+        private OutputStream out;
+        private List<List<String>> transaction;
+        private boolean authenticated;
+        private boolean closing;
+
+        private Client(Socket socket)
+        {
+            this.socket = socket;
+            this.channels = ConcurrentHashMap.newKeySet();
+            this.patterns = ConcurrentHashMap.newKeySet();
+        }
+
+        @Override
+        public void run()
+        {
+            try
+            {
+                InputStream in = new BufferedInputStream(this.socket.getInputStream());
+                this.out = new BufferedOutputStream(this.socket.getOutputStream());
+
+                while (running && !this.closing)
+                {
+                    List<String> args = readCommand(in);
+
+                    if (args == null)
+                        break;
+                    if (args.isEmpty())
+                        continue;
+
+                    long delay = latency;
+                    if (delay > 0)
+                        Thread.sleep(delay);
+
+                    Object reply = execute(this, args);
+
+                    synchronized (this)
+                    {
+                        if (reply != null)
+                            write(this.out, reply);
+
+                        // Flush once the pipelined commands are all answered
+                        if (in.available() == 0)
+                            this.out.flush();
+                    }
+                }
+            }
+            catch (SocketException | EOFException ignored) {}
+            catch (Exception e)
+            {
+                if (running)
+                    e.printStackTrace();
+            }
+            finally
+            {
+                close();
+            }
+        }
+
+        private int subscriptions()
+        {
+            return this.channels.size() + this.patterns.size();
+        }
+
+        private synchronized void push(List<Object> message)
+        {
+            if (this.out == null)
+                return;
+
+            try
+            {
+                write(this.out, message);
+                this.out.flush();
+            }
+            catch (IOException e)
+            {
+                close();
+            }
+        }
+
+        private void close()
+        {
+            clients.remove(this);
+            this.channels.forEach(channel -> EmbeddedRedisServer.this.channels.getOrDefault(channel, new HashSet<>()).remove(this));
+            this.patterns.forEach(pattern -> EmbeddedRedisServer.this.patterns.getOrDefault(pattern, new HashSet<>()).remove(this));
+
+            try
+            {
+                this.socket.close();
+            }
+            catch (IOException ignored) {}
+        }
+    }
+
+    private static List<String> readCommand(InputStream in) throws IOException
+    {
+        int type = in.read();
+
+        if (type == -1)
+            return null;
+
+        String line = readLine(in);
+
+        if (type != '*')
+        {
+            // Inline command, as sent by telnet / redis-cli --pipe
+            List<String> args = new ArrayList<>();
+            for (String part : ((char) type + line).trim().split("\\s+"))
+                if (!part.isEmpty())
+                    args.add(part);
+            return args;
+        }
+
+        int count = Integer.parseInt(line);
+        List<String> args = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++)
+        {
+            if (in.read() != '$')
+                throw new IOException("Protocol error: expected bulk string");
+
+            int length = Integer.parseInt(readLine(in));
+            byte[] bytes = new byte[length];
+            int read = 0;
+
+            while (read < length)
+            {
+                int n = in.read(bytes, read, length - read);
+                if (n == -1)
+                    throw new EOFException();
+                read += n;
+            }
+
+            in.read();
+            in.read();
+            args.add(new String(bytes, StandardCharsets.UTF_8));
+        }
+
+        return args;
+    }
+
+    private static String readLine(InputStream in) throws IOException
+    {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+
+        while ((b = in.read()) != '\r')
+        {
+            if (b == -1)
+                throw new EOFException();
+            line.write(b);
+        }
+
+        in.read();
+
+        return new String(line.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static void write(OutputStream out, Object reply) throws IOException
+    {
+        if (reply == NULL)
+        {
+            out.write("$-1\r\n".getBytes(StandardCharsets.US_ASCII));
+        }
+        else if (reply instanceof StatusReply)
+        {
+            out.write(('+' + ((StatusReply) reply).message + "\r\n").getBytes(StandardCharsets.UTF_8));
+        }
+        else if (reply instanceof ErrorReply)
+        {
+            out.write(('-' + ((ErrorReply) reply).message + "\r\n").getBytes(StandardCharsets.UTF_8));
+        }
+        else if (reply instanceof Long)
+        {
+            out.write((":" + reply + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        }
+        else if (reply instanceof String)
+        {
+            byte[] bytes = ((String) reply).getBytes(StandardCharsets.UTF_8);
+            out.write(("$" + bytes.length + "\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.write(bytes);
+            out.write("\r\n".getBytes(StandardCharsets.US_ASCII));
+        }
+        else if (reply instanceof List)
+        {
+            List<?> list = (List<?>) reply;
+            out.write(("*" + list.size() + "\r\n").getBytes(StandardCharsets.US_ASCII));
+
+            for (Object element : list)
+                write(out, element);
+        }
+        else
+        {
+            throw new IOException("Cannot encode reply " + reply);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package net.samagames.core.database.async;
+
+import net.samagames.core.database.EmbeddedRedisServer;
+import net.samagames.core.database.RedisServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/*
+ * This file is part of SamaGamesCore.
+ *
+ * SamaGamesCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SamaGamesCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SamaGamesCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+public class NettyRedisClientTest
+{
+    private static final Logger LOGGER = Logger.getLogger("NettyRedisClientTest");
+
+    private EmbeddedRedisServer redis;
+    private NettyRedisClient client;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        this.redis = new EmbeddedRedisServer(0, "secret");
+        this.client = new NettyRedisClient(new RedisServer(this.redis.getHost(), this.redis.getPort(), "secret", 300, 1, 1, 300L, true), LOGGER);
+        awaitConnected(this.client);
+    }
+
+    @After
+    public void tearDown()
+    {
+        this.client.close();
+        this.redis.close();
+    }
+
+    @Test
+    public void pipelinedRepliesReachTheirCaller() throws Exception
+    {
+        List<CompletableFuture<String>> replies = new ArrayList<>();
+
+        for (int i = 0; i < 500; i++)
+            this.client.set("key:" + i, "value:" + i);
+
+        for (int i = 0; i < 500; i++)
+            replies.add(this.client.get("key:" + i));
+
+        for (int i = 0; i < 500; i++)
+            assertEquals("value:" + i, replies.get(i).get(2, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void repliesStayInOrderAfterReconnect() throws Exception
+    {
+        this.client.set("before", "1").get(2, TimeUnit.SECONDS);
+
+        this.redis.disconnectClients();
+        awaitConnected(this.client);
+
+        // A reply shifted by a stale future from the dead connection would show up here
+        this.client.set("after", "2").get(2, TimeUnit.SECONDS);
+        assertEquals("1", this.client.get("before").get(2, TimeUnit.SECONDS));
+        assertEquals("2", this.client.get("after").get(2, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void lateReplyDoesNotCompleteTheNextCommand() throws Exception
+    {
+        this.client.set("slow", "late").get(2, TimeUnit.SECONDS);
+        this.client.set("fast", "ontime").get(2, TimeUnit.SECONDS);
+
+        this.redis.setLatency(600);
+
+        try
+        {
+            this.client.get("slow").get(2, TimeUnit.SECONDS);
+            fail("Command should have timed out");
+        }
+        catch (ExecutionException e)
+        {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+
+        this.redis.setLatency(0);
+        assertEquals("ontime", this.client.get("fast").get(2, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void refusedAuthenticationNeverPublishesTheConnection() throws Exception
+    {
+        NettyRedisClient refused = new NettyRedisClient(new RedisServer(this.redis.getHost(), this.redis.getPort(), "wrong", 300, 1, 1, 300L, true), LOGGER);
+
+        try
+        {
+            Thread.sleep(500);
+            refused.get("key").get(2, TimeUnit.SECONDS);
+            fail("Command should not be sent on an unauthenticated connection");
+        }
+        catch (ExecutionException e)
+        {
+            assertTrue(e.getCause().getMessage(), e.getCause().getMessage().contains("not available"));
+        }
+        finally
+        {
+            refused.close();
+        }
+    }
+
+    private static void awaitConnected(NettyRedisClient client) throws InterruptedException
+    {
+        long deadline = System.currentTimeMillis() + 5000L;
+
+        while (System.currentTimeMillis() < deadline)
+        {
+            try
+            {
+                client.exists("ping").get(1, TimeUnit.SECONDS);
+                return;
+            }
+            catch (ExecutionException | TimeoutException e)
+            {
+                Thread.sleep(50);
+            }
+        }
+
+        fail("Async redis client did not connect");
+    }
+}
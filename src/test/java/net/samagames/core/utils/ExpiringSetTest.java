@@ -0,0 +1,121 @@
+package net.samagames.core.utils;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/*
+ * This file is part of SamaGamesCore.
+ *
+ * SamaGamesCore is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SamaGamesCore is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SamaGamesCore.  If not, see <http://www.gnu.org/licenses/>.
+ */
+public class ExpiringSetTest
+{
+    private ExpiringSet<String> set;
+    private Runnable timer;
+
+    @Before
+    public void setUp()
+    {
+        // The wheel is turned by hand, one tick is one second
+        ScheduledExecutorService executor = mock(ScheduledExecutorService.class);
+        this.set = new ExpiringSet<>(executor, 1000L, 4);
+
+        ArgumentCaptor<Runnable> captor = ArgumentCaptor.forClass(Runnable.class);
+        verify(executor).scheduleAtFixedRate(captor.capture(), anyLong(), eq(1000L), eq(TimeUnit.MILLISECONDS));
+        this.timer = captor.getValue();
+    }
+
+    @Test
+    public void elementExpiresAfterItsTtl()
+    {
+        this.set.add("player", 3000L);
+
+        tick(3);
+        assertTrue(this.set.contains("player"));
+
+        tick(1);
+        assertFalse(this.set.contains("player"));
+        assertTrue(this.set.isEmpty());
+    }
+
+    @Test
+    public void addingAgainPushesBackTheExpiration()
+    {
+        this.set.add("player", 3000L);
+        tick(2);
+        this.set.add("player", 3000L);
+
+        tick(3);
+        assertTrue(this.set.contains("player"));
+
+        tick(1);
+        assertFalse(this.set.contains("player"));
+    }
+
+    @Test
+    public void addingAgainKeepsOneWheelEntry()
+    {
+        // Deadline 2, then 6: one wheel turn later, same bucket
+        this.set.add("player", 1000L);
+        this.set.add("player", 1000L);
+        this.set.add("player", 5000L);
+
+        assertEquals(1, this.set.bucketSize(2));
+
+        tick(2);
+        assertTrue(this.set.contains("player"));
+        assertEquals(1, this.set.bucketSize(2));
+
+        tick(4);
+        assertFalse(this.set.contains("player"));
+        assertEquals(0, this.set.bucketSize(2));
+    }
+
+    @Test
+    public void removedThenAddedElementKeepsItsNewExpiration()
+    {
+        this.set.add("player", 1000L);
+        assertTrue(this.set.remove("player"));
+        assertEquals(0, this.set.bucketSize(2));
+
+        tick(1);
+        this.set.add("player", 3000L);
+
+        // The first deadline went with the removal
+        tick(1);
+        assertTrue(this.set.contains("player"));
+
+        tick(3);
+        assertFalse(this.set.contains("player"));
+        assertFalse(this.set.remove("player"));
+    }
+
+    private void tick(int ticks)
+    {
+        for (int i = 0; i < ticks; i++)
+            this.timer.run();
+    }
+}